@@ -0,0 +1,119 @@
+package com.icloudportal.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CopySummary}是{@link DirectoryCopier}复制目录的结果: 复制的文件、目录的数量,
+ * 复制的字节数、创建的硬链接的数量、同步时跳过和删除的数量以及所用的时间。
+ *
+ */
+public final class CopySummary {
+
+	private final long files;
+	private final long directories;
+	private final long bytes;
+	private final long linked;
+	private final long skipped;
+	private final long deleted;
+	private final long elapsed;
+
+	CopySummary(long files, long directories, long bytes, long linked, long skipped, long deleted, long elapsed) {
+		this.files = files;
+		this.directories = directories;
+		this.bytes = bytes;
+		this.linked = linked;
+		this.skipped = skipped;
+		this.deleted = deleted;
+		this.elapsed = elapsed;
+	}
+
+	/**
+	 * 返回复制的文件数量。
+	 *
+	 * @return 文件数量
+	 */
+	public long getFiles() {
+		return files;
+	}
+
+	/**
+	 * 返回复制的目录数量, 包括源目录本身。
+	 *
+	 * @return 目录数量
+	 */
+	public long getDirectories() {
+		return directories;
+	}
+
+	/**
+	 * 返回复制的文件的总字节数。
+	 *
+	 * @return 字节数
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * 返回以硬链接代替复制的文件数量, 这些文件不计入复制的文件数量和字节数。
+	 *
+	 * @return 硬链接的数量
+	 */
+	public long getLinked() {
+		return linked;
+	}
+
+	/**
+	 * 返回同步时因为与源文件相同而跳过的文件数量。
+	 *
+	 * @return 跳过的文件数量
+	 */
+	public long getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * 返回同步时删除的目标文件和目录的数量。
+	 *
+	 * @return 删除的文件和目录的数量
+	 */
+	public long getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * 返回复制所用的时间。
+	 *
+	 * @param unit
+	 *            时间单位
+	 * @return 所用的时间
+	 */
+	public long getElapsed(TimeUnit unit) {
+		return unit.convert(elapsed, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 返回每秒复制的字节数。
+	 *
+	 * @return 吞吐量（字节/秒）
+	 */
+	public double getThroughput() {
+		return elapsed == 0 ? 0 : bytes * 1e9 / elapsed;
+	}
+
+	/**
+	 * 返回每秒复制的文件数。
+	 *
+	 * @return 吞吐量（文件/秒）
+	 */
+	public double getFileRate() {
+		return elapsed == 0 ? 0 : files * 1e9 / elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d files, %d directories, %d bytes, %d linked, %d skipped, %d deleted in %d ms"
+				+ " (%.1f MB/s, %.0f files/s)", files, directories, bytes, linked, skipped, deleted,
+				getElapsed(TimeUnit.MILLISECONDS), getThroughput() / (1024 * 1024), getFileRate());
+	}
+}
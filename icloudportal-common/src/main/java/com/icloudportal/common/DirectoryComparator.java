@@ -0,0 +1,267 @@
+package com.icloudportal.common;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * {@link DirectoryComparator}同时遍历两个目录树, 将它们的差别逐个报告给{@link Listener}。<br>
+ * <br>
+ * 两个目录的子项按名称排序后合并比较, 只在一方存在的子项（如果是目录则只报告目录本身）报告为新增或者删除,
+ * 类型不同的子项报告为修改。大小不同的文件是修改过的, 大小和修改时间都相同的文件是相同的,
+ * 其他文件由有界的线程池计算内容的哈希后比较。符号链接比较链接目标, 不跟随链接。<br>
+ * <br>
+ * 同时只保存正在遍历的各级目录的子项和等待计算哈希的文件, 内存的使用与文件的总数无关。
+ *
+ */
+public final class DirectoryComparator {
+
+	/**
+	 * 接收目录差别的回调接口, 路径是相对于比较的目录的路径。计算哈希后确定的修改可能在其他线程中报告,
+	 * 但是回调不会被同时调用。
+	 */
+	public interface Listener {
+
+		/**
+		 * 只在新目录中存在的文件或者目录。
+		 *
+		 * @param path
+		 *            相对路径
+		 */
+		void added(Path path);
+
+		/**
+		 * 只在原目录中存在的文件或者目录。
+		 *
+		 * @param path
+		 *            相对路径
+		 */
+		void removed(Path path);
+
+		/**
+		 * 两个目录中内容或者类型不同的文件。
+		 *
+		 * @param path
+		 *            相对路径
+		 */
+		void modified(Path path);
+	}
+
+	private static final int ADDED = 0;
+	private static final int REMOVED = 1;
+	private static final int MODIFIED = 2;
+
+	private final Path original;
+	private final Path revised;
+
+	private int threads = 1;
+	private Executor executor;
+
+	DirectoryComparator(Path original, Path revised) {
+		this.original = Preconditions.checkNotNull(original, "original must not be null");
+		this.revised = Preconditions.checkNotNull(revised, "revised must not be null");
+	}
+
+	/**
+	 * 使用给定数量的线程并发计算文件的哈希。
+	 *
+	 * @param threads
+	 *            线程数量
+	 * @return 目录比较实例
+	 */
+	public DirectoryComparator parallel(int threads) {
+		Preconditions.checkArgument(threads > 0, "threads must be positive");
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * 使用给定的{@link Executor}计算文件的哈希, 同时等待计算的文件数量由{@link #parallel(int)}
+	 * 的线程数量决定。
+	 *
+	 * @param executor
+	 *            计算所用的{@link Executor}
+	 * @return 目录比较实例
+	 */
+	public DirectoryComparator using(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * 比较两个目录树, 所有的差别都报告后返回。
+	 *
+	 * @param listener
+	 *            接收差别的回调
+	 * @return 差别的数量
+	 * @throws IOException
+	 *             读取时发生IO错误
+	 */
+	public long compare(Listener listener) throws IOException {
+		Preconditions.checkNotNull(listener, "listener must not be null");
+		if (!Files.isDirectory(original)) {
+			throw new IOException("Invalid directory: " + original);
+		}
+		if (!Files.isDirectory(revised)) {
+			throw new IOException("Invalid directory: " + revised);
+		}
+		final Walker walker;
+		try (DirectoryTasks tasks = new DirectoryTasks("compare", executor, threads)) {
+			walker = new Walker(listener, tasks);
+			walker.compare(original.getFileSystem().getPath(""), original, revised);
+			walker.await();
+		}
+		return walker.differences.get();
+	}
+
+	/**
+	 * 检查两个目录树是否有差别, 发现第一个差别时不再继续比较。
+	 *
+	 * @return 有差别时返回true
+	 * @throws IOException
+	 *             读取时发生IO错误
+	 */
+	public boolean differs() throws IOException {
+		try {
+			compare(new Listener() {
+				@Override
+				public void added(Path path) {
+					throw new DifferenceFound();
+				}
+
+				@Override
+				public void removed(Path path) {
+					throw new DifferenceFound();
+				}
+
+				@Override
+				public void modified(Path path) {
+					throw new DifferenceFound();
+				}
+			});
+		} catch (DifferenceFound e) {
+			return true;
+		}
+		return false;
+	}
+
+	@SuppressWarnings("serial")
+	private static final class DifferenceFound extends RuntimeException {
+		DifferenceFound() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final class Walker {
+
+		private final Listener listener;
+		private final DirectoryTasks tasks;
+		private final AtomicLong differences = new AtomicLong();
+		private final List<Future<?>> pending = Lists.newLinkedList();
+
+		Walker(Listener listener, DirectoryTasks tasks) {
+			this.listener = listener;
+			this.tasks = tasks;
+		}
+
+		void compare(Path relative, Path left, Path right) throws IOException {
+			final List<String> before = DirectoryHasher.list(left);
+			final List<String> after = DirectoryHasher.list(right);
+			int i = 0;
+			int j = 0;
+			while (i < before.size() || j < after.size()) {
+				final int order = i == before.size() ? 1 : j == after.size() ? -1
+						: before.get(i).compareTo(after.get(j));
+				if (order < 0) {
+					report(relative.resolve(before.get(i++)), REMOVED);
+				} else if (order > 0) {
+					report(relative.resolve(after.get(j++)), ADDED);
+				} else {
+					final String name = before.get(i++);
+					j++;
+					compareEntry(relative.resolve(name), left.resolve(name), right.resolve(name));
+				}
+			}
+		}
+
+		private void compareEntry(final Path relative, final Path left, final Path right) throws IOException {
+			final BasicFileAttributes a = Files.readAttributes(left, BasicFileAttributes.class, NOFOLLOW_LINKS);
+			final BasicFileAttributes b = Files.readAttributes(right, BasicFileAttributes.class, NOFOLLOW_LINKS);
+			if (a.isDirectory() && b.isDirectory()) {
+				compare(relative, left, right);
+			} else if (a.isSymbolicLink() && b.isSymbolicLink()) {
+				if (!Files.readSymbolicLink(left).equals(Files.readSymbolicLink(right))) {
+					report(relative, MODIFIED);
+				}
+			} else if (a.isRegularFile() && b.isRegularFile()) {
+				if (a.size() != b.size()) {
+					report(relative, MODIFIED);
+				} else if (a.lastModifiedTime().toMillis() != b.lastModifiedTime().toMillis()) {
+					drain();
+					pending.add(tasks.submit(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							if (!DirectoryHasher.hashFile(left).equals(DirectoryHasher.hashFile(right))) {
+								report(relative, MODIFIED);
+							}
+							return null;
+						}
+					}));
+				}
+			} else if (getType(a) != getType(b)) {
+				report(relative, MODIFIED);
+			}
+		}
+
+		private static int getType(BasicFileAttributes attrs) {
+			return attrs.isDirectory() ? 0 : attrs.isSymbolicLink() ? 1 : attrs.isRegularFile() ? 2 : 3;
+		}
+
+		private void report(Path path, int kind) {
+			differences.incrementAndGet();
+			synchronized (listener) {
+				switch (kind) {
+				case ADDED:
+					listener.added(path);
+					break;
+				case REMOVED:
+					listener.removed(path);
+					break;
+				default:
+					listener.modified(path);
+				}
+			}
+		}
+
+		/**
+		 * 取出已经完成的哈希比较, 抛出其中发生的错误。
+		 */
+		private void drain() throws IOException {
+			for (Iterator<Future<?>> it = pending.iterator(); it.hasNext();) {
+				final Future<?> future = it.next();
+				if (future.isDone()) {
+					it.remove();
+					DirectoryTasks.get(future);
+				}
+			}
+		}
+
+		void await() throws IOException {
+			while (!pending.isEmpty()) {
+				DirectoryTasks.get(pending.remove(0));
+			}
+		}
+	}
+}
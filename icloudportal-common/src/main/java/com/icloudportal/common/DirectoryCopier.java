@@ -0,0 +1,485 @@
+package com.icloudportal.common;
+
+import static java.nio.file.FileVisitOption.FOLLOW_LINKS;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.TERMINATE;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+/**
+ * {@link DirectoryCopier}将源目录复制到目标目录。<br>
+ * <br>
+ * 目录树只遍历一次, 目录在遍历时按顺序创建, 文件由有界的线程池并发复制,
+ * 同时等待复制的文件数量也有上限。一个目录的所有子项都复制完成后再恢复它的修改时间。
+ * 默认在当前线程中逐个复制, 与{@link FileUtils#copyDirectory(Path, Path)}相同。<br>
+ * <br>
+ * 同步模式（{@link #sync()}）类似于rsync, 跳过大小和修改时间（或者内容）与源文件相同的目标文件,
+ * 并可以删除源目录中不存在的目标文件。<br>
+ * <br>
+ * 设置了{@link #transferThreshold(long)}时, 不小于它的文件通过{@link FileChannel}的
+ * <code>transferTo</code>复制, 由操作系统在内核中完成（sendfile、copy_file_range等）;
+ * 默认所有文件都使用{@link Files#copy(Path, Path, java.nio.file.CopyOption...)}。源目录和目标目录
+ * 在同一个文件系统上时还可以用硬链接代替复制（{@link #hardLinks()}）。
+ *
+ */
+public final class DirectoryCopier {
+
+	private static final long DEFAULT_TRANSFER_THRESHOLD = Long.MAX_VALUE;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * 比较内容时每个线程重复使用的两个读缓冲区。
+	 */
+	private static final ThreadLocal<byte[][]> BUFFERS = new ThreadLocal<byte[][]>() {
+		@Override
+		protected byte[][] initialValue() {
+			return new byte[2][BUFFER_SIZE];
+		}
+	};
+
+	private final Path source;
+	private final Path target;
+
+	private int threads = 1;
+	private Executor executor;
+	private boolean sync;
+	private boolean compareContent;
+	private boolean deleteExtra;
+	private long transferThreshold = DEFAULT_TRANSFER_THRESHOLD;
+	private boolean hardLinks;
+
+	DirectoryCopier(Path source, Path target) {
+		this.source = Preconditions.checkNotNull(source, "source must not be null");
+		this.target = Preconditions.checkNotNull(target, "target must not be null");
+	}
+
+	/**
+	 * 使用给定数量的线程并发复制文件。
+	 *
+	 * @param threads
+	 *            线程数量
+	 * @return 目录复制实例
+	 */
+	public DirectoryCopier parallel(int threads) {
+		Preconditions.checkArgument(threads > 0, "threads must be positive");
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * 使用给定的{@link Executor}复制文件, 同时等待复制的文件数量由{@link #parallel(int)}
+	 * 的线程数量决定。
+	 *
+	 * @param executor
+	 *            复制所用的{@link Executor}
+	 * @return 目录复制实例
+	 */
+	public DirectoryCopier using(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * 跳过大小和修改时间与源文件相同的目标文件。
+	 *
+	 * @return 目录复制实例
+	 */
+	public DirectoryCopier sync() {
+		this.sync = true;
+		return this;
+	}
+
+	/**
+	 * 跳过大小和内容与源文件相同的目标文件, 不比较修改时间。内容相同而修改时间不同的目标文件
+	 * 只更新修改时间。
+	 *
+	 * @return 目录复制实例
+	 */
+	public DirectoryCopier compareContent() {
+		this.sync = true;
+		this.compareContent = true;
+		return this;
+	}
+
+	/**
+	 * 删除源目录中不存在的目标文件和目录, 以及与源文件类型不同（文件和目录）的目标文件。
+	 *
+	 * @return 目录复制实例
+	 */
+	public DirectoryCopier deleteExtra() {
+		this.deleteExtra = true;
+		return this;
+	}
+
+	/**
+	 * 设置使用{@link FileChannel}的<code>transferTo</code>复制的文件大小的下限, 默认为
+	 * {@link Long#MAX_VALUE}, 即总是使用{@link Files#copy(Path, Path, java.nio.file.CopyOption...)}。<br>
+	 * <br>
+	 * 新的JDK在Linux上的<code>Files.copy</code>已经在内核中复制（copy_file_range）,
+	 * <code>transferTo</code>并不更快（参见测试中的<code>DirectoryCopierBenchmark</code>）,
+	 * 只在旧的JDK或者其他平台上经过测量后使用。<code>transferTo</code>复制时间、所有者和权限
+	 * （Windows上为DOS属性）, 不复制ACL和扩展属性。
+	 *
+	 * @param bytes
+	 *            文件大小的下限
+	 * @return 目录复制实例
+	 */
+	public DirectoryCopier transferThreshold(long bytes) {
+		Preconditions.checkArgument(bytes >= 0, "threshold must not be negative");
+		this.transferThreshold = bytes;
+		return this;
+	}
+
+	/**
+	 * 源目录和目标目录在同一个文件系统上时, 先尝试创建硬链接, 不能创建时再复制。<br>
+	 * <br>
+	 * 硬链接与源文件共享内容, 之后修改任何一方都会影响另一方, 只适用于不会被修改的文件。
+	 *
+	 * @return 目录复制实例
+	 */
+	public DirectoryCopier hardLinks() {
+		this.hardLinks = true;
+		return this;
+	}
+
+	/**
+	 * 复制目录。
+	 *
+	 * @return 复制的结果
+	 * @throws IOException
+	 *             当复制时发生IO错误
+	 */
+	public CopySummary copy() throws IOException {
+		if (!Files.isDirectory(source)) {
+			throw new IOException("Invalid source directory: " + source);
+		}
+		if (Files.exists(target) && !Files.isDirectory(target)) {
+			throw new IOException("Invalid target directory: " + target);
+		}
+		if (!Files.exists(target)) {
+			Files.createDirectories(target);
+		}
+		final long start = System.nanoTime();
+		final Walker walker;
+		try (DirectoryTasks tasks = new DirectoryTasks("copy", executor, threads)) {
+			walker = new Walker(tasks);
+			walker.linkable = hardLinks && Files.getFileStore(source).equals(Files.getFileStore(target));
+			try {
+				Files.walkFileTree(source, EnumSet.of(FOLLOW_LINKS), Integer.MAX_VALUE, walker);
+			} finally {
+				tasks.await();
+			}
+			tasks.check();
+		}
+		return new CopySummary(walker.files.get(), walker.directories, walker.bytes.get(), walker.linked.get(),
+				walker.skipped.get(), walker.deleted, System.nanoTime() - start);
+	}
+
+	/**
+	 * 所有子项都复制完成后恢复修改时间的目标目录。
+	 */
+	private static final class Directory extends DirectoryTasks.Directory {
+
+		private final Path source;
+		private final Path target;
+
+		Directory(Path source, Path target, DirectoryTasks.Directory parent) {
+			super(parent);
+			this.source = source;
+			this.target = target;
+		}
+
+		@Override
+		void complete() {
+			try {
+				FileTime time = Files.getLastModifiedTime(source);
+				Files.setLastModifiedTime(target, time);
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private final class Walker extends SimpleFileVisitor<Path> {
+
+		private final DirectoryTasks tasks;
+		private final AtomicLong files = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLong linked = new AtomicLong();
+		private final AtomicLong skipped = new AtomicLong();
+		private volatile boolean linkable;
+		private long directories;
+		private long deleted;
+		private DirectoryTasks.Directory current;
+
+		Walker(DirectoryTasks tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+			final Path dest = target.resolve(source.relativize(dir));
+			if (deleteExtra && Files.exists(dest, NOFOLLOW_LINKS)) {
+				if (Files.isDirectory(dest, NOFOLLOW_LINKS)) {
+					deleteExtra(dir, dest);
+				} else {
+					delete(dest);
+				}
+			}
+			try {
+				Files.copy(dir, dest, COPY_ATTRIBUTES);
+			} catch (FileAlreadyExistsException e) {
+			}
+			current = new Directory(dir, dest, current);
+			directories++;
+			return CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+			if (tasks.isFailed()) {
+				return TERMINATE;
+			}
+			final Path dest = target.resolve(source.relativize(file));
+			tasks.execute(file, current, new DirectoryTasks.FileTask() {
+				@Override
+				public void run() throws IOException {
+					if (sync && isUnchanged(file, attrs, dest)) {
+						skipped.incrementAndGet();
+						return;
+					}
+					if (linkable && link(file, dest)) {
+						linked.incrementAndGet();
+						return;
+					}
+					if (attrs.size() >= transferThreshold) {
+						transfer(file, dest, attrs);
+					} else {
+						Files.copy(file, dest, COPY_ATTRIBUTES, REPLACE_EXISTING);
+					}
+					files.incrementAndGet();
+					bytes.addAndGet(attrs.size());
+				}
+			});
+			return tasks.isFailed() ? TERMINATE : CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+			if (exc != null) {
+				tasks.fail(exc);
+			}
+			final DirectoryTasks.Directory done = current;
+			current = done.getParent();
+			done.release();
+			return tasks.isFailed() ? TERMINATE : CONTINUE;
+		}
+
+		/**
+		 * 检查目标文件是否与源文件相同。
+		 */
+		private boolean isUnchanged(Path file, BasicFileAttributes attrs, Path dest) throws IOException {
+			final BasicFileAttributes existing;
+			try {
+				existing = Files.readAttributes(dest, BasicFileAttributes.class);
+			} catch (NoSuchFileException e) {
+				return false;
+			}
+			if (!existing.isRegularFile() || existing.size() != attrs.size()) {
+				return false;
+			}
+			final long modified = attrs.lastModifiedTime().toMillis();
+			if (!compareContent) {
+				return existing.lastModifiedTime().toMillis() == modified;
+			}
+			if (!contentEquals(file, dest)) {
+				return false;
+			}
+			if (existing.lastModifiedTime().toMillis() != modified) {
+				Files.setLastModifiedTime(dest, attrs.lastModifiedTime());
+			}
+			return true;
+		}
+
+		/**
+		 * 逐块比较两个文件的内容, 只使用{@link Path}, 适用于任何文件系统。
+		 */
+		private boolean contentEquals(Path file, Path dest) throws IOException {
+			final byte[][] buffers = BUFFERS.get();
+			final InputStream left = Files.newInputStream(file);
+			try {
+				final InputStream right = Files.newInputStream(dest);
+				try {
+					while (true) {
+						final int count = ByteStreams.read(left, buffers[0], 0, BUFFER_SIZE);
+						if (ByteStreams.read(right, buffers[1], 0, BUFFER_SIZE) != count) {
+							return false;
+						}
+						for (int i = 0; i < count; i++) {
+							if (buffers[0][i] != buffers[1][i]) {
+								return false;
+							}
+						}
+						if (count < BUFFER_SIZE) {
+							return true;
+						}
+					}
+				} finally {
+					right.close();
+				}
+			} finally {
+				left.close();
+			}
+		}
+
+		/**
+		 * 创建硬链接, 文件系统不支持时不再尝试。
+		 */
+		private boolean link(Path file, Path dest) throws IOException {
+			try {
+				Files.deleteIfExists(dest);
+				Files.createLink(dest, file);
+				return true;
+			} catch (UnsupportedOperationException | FileSystemException e) {
+				linkable = false;
+				return false;
+			}
+		}
+
+		/**
+		 * 以{@link FileChannel}的<code>transferTo</code>复制文件, 源文件在复制时变小则抛出异常。
+		 */
+		private void transfer(Path file, Path dest, BasicFileAttributes attrs) throws IOException {
+			// 与Files.copy相同, 替换符号链接本身而不是写入链接的目标
+			Files.deleteIfExists(dest);
+			final FileChannel in = FileChannel.open(file, READ);
+			try {
+				final FileChannel out = FileChannel.open(dest, CREATE_NEW, WRITE);
+				try {
+					final long size = in.size();
+					long position = 0;
+					while (position < size) {
+						final long count = in.transferTo(position, size - position, out);
+						if (count <= 0) {
+							throw new IOException("Unexpected end of file, " + file + " has " + position + " of "
+									+ size + " bytes");
+						}
+						position += count;
+					}
+				} finally {
+					out.close();
+				}
+			} finally {
+				in.close();
+			}
+			copyAttributes(file, dest, attrs);
+		}
+
+		/**
+		 * 与{@link Files#copy(Path, Path, java.nio.file.CopyOption...)}的<code>COPY_ATTRIBUTES</code>
+		 * 相同, 复制POSIX的所有者和权限（不能修改所有者时忽略）或者DOS属性, 最后复制时间。
+		 */
+		private void copyAttributes(Path file, Path dest, BasicFileAttributes attrs) throws IOException {
+			final PosixFileAttributeView posix = Files.getFileAttributeView(dest, PosixFileAttributeView.class);
+			DosFileAttributes dos = null;
+			if (posix != null) {
+				final PosixFileAttributes origin = Files.readAttributes(file, PosixFileAttributes.class);
+				try {
+					posix.setOwner(origin.owner());
+					posix.setGroup(origin.group());
+				} catch (IOException e) {
+				}
+				posix.setPermissions(origin.permissions());
+			} else if (Files.getFileAttributeView(dest, DosFileAttributeView.class) != null) {
+				dos = Files.readAttributes(file, DosFileAttributes.class);
+			}
+			Files.getFileAttributeView(dest, BasicFileAttributeView.class).setTimes(attrs.lastModifiedTime(),
+					attrs.lastAccessTime(), attrs.creationTime());
+			if (dos != null) {
+				final DosFileAttributeView view = Files.getFileAttributeView(dest, DosFileAttributeView.class);
+				view.setArchive(dos.isArchive());
+				view.setHidden(dos.isHidden());
+				view.setSystem(dos.isSystem());
+				// 只读属性最后设置
+				view.setReadOnly(dos.isReadOnly());
+			}
+		}
+
+		/**
+		 * 删除目标目录中源目录不存在的或者类型不同的子项。
+		 */
+		private void deleteExtra(Path dir, Path dest) throws IOException {
+			final List<Path> extra = Lists.newArrayList();
+			final DirectoryStream<Path> entries = Files.newDirectoryStream(dest);
+			try {
+				for (Path entry : entries) {
+					final Path origin = dir.resolve(entry.getFileName().toString());
+					if (!Files.exists(origin)
+							|| Files.isDirectory(origin) != Files.isDirectory(entry, NOFOLLOW_LINKS)) {
+						extra.add(entry);
+					}
+				}
+			} finally {
+				entries.close();
+			}
+			for (Path entry : extra) {
+				delete(entry);
+			}
+		}
+
+		/**
+		 * 删除文件或者目录树, 不跟随符号链接。
+		 */
+		private void delete(Path path) throws IOException {
+			Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					Files.delete(file);
+					deleted++;
+					return CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+					if (exc != null) {
+						throw exc;
+					}
+					Files.delete(dir);
+					deleted++;
+					return CONTINUE;
+				}
+			});
+		}
+	}
+}
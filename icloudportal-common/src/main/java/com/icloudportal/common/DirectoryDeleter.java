@@ -0,0 +1,275 @@
+package com.icloudportal.common;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.TERMINATE;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link DirectoryDeleter}递归删除一个目录。<br>
+ * <br>
+ * 删除前先将目录原子地重命名为同一个父目录中的墓碑目录（<code>.name.deleting-*</code>）,
+ * 原来的路径立即可以重新使用, 删除中途失败或者进程退出也不会留下删除了一半的目录,
+ * 遗留的墓碑目录可以由{@link FileUtils#deleteTombstones(Path)}清除。墓碑目录中的文件由有界的线程池
+ * 并发删除, 一个目录的所有子项都删除后再删除这个目录, 也可以在后台删除并返回表示完成的
+ * {@link ListenableFuture}。<br>
+ * <br>
+ * 文件系统不支持原子重命名或者目录没有父目录时抛出异常, 除非通过{@link #inPlace()}允许直接删除原来的目录。<br>
+ * <br>
+ * 删除时不跟随符号链接, 只删除链接本身。
+ *
+ */
+public final class DirectoryDeleter {
+
+	static final String TOMBSTONE = ".deleting-";
+
+	private static final Pattern TOMBSTONE_NAME = Pattern.compile("\\..+" + Pattern.quote(TOMBSTONE)
+			+ "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+	private final Path directory;
+
+	private int threads = 1;
+	private Executor executor;
+	private boolean inPlace;
+
+	DirectoryDeleter(Path directory) {
+		this.directory = Preconditions.checkNotNull(directory, "directory must not be null");
+	}
+
+	/**
+	 * 使用给定数量的线程并发删除文件。
+	 *
+	 * @param threads
+	 *            线程数量
+	 * @return 目录删除实例
+	 */
+	public DirectoryDeleter parallel(int threads) {
+		Preconditions.checkArgument(threads > 0, "threads must be positive");
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * 使用给定的{@link Executor}删除文件, 同时等待删除的文件数量由{@link #parallel(int)}
+	 * 的线程数量决定。
+	 *
+	 * @param executor
+	 *            删除所用的{@link Executor}
+	 * @return 目录删除实例
+	 */
+	public DirectoryDeleter using(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * 不能重命名为墓碑目录（文件系统不支持原子重命名或者目录没有父目录）时直接删除原来的目录,
+	 * 而不是抛出异常。直接删除中途失败时会留下删除了一半的目录。
+	 *
+	 * @return 目录删除实例
+	 */
+	public DirectoryDeleter inPlace() {
+		this.inPlace = true;
+		return this;
+	}
+
+	/**
+	 * 将目录重命名为墓碑目录后删除。
+	 *
+	 * @return 删除的文件和目录的数量
+	 * @throws IOException
+	 *             删除不成功时抛出的异常
+	 */
+	public long delete() throws IOException {
+		return deleteTree(bury());
+	}
+
+	/**
+	 * 将目录重命名为墓碑目录, 然后在后台删除。方法返回时原来的路径已经不存在,
+	 * 只有通过{@link #inPlace()}直接删除原来的目录时, 原来的路径在删除完成前仍然存在。
+	 *
+	 * @return 删除完成时得到删除的文件和目录数量的{@link ListenableFuture}
+	 * @throws IOException
+	 *             重命名不成功时抛出的异常
+	 */
+	public ListenableFuture<Long> deleteInBackground() throws IOException {
+		final Path tombstone = bury();
+		// 遍历在单独的线程中进行, 否则会占用较小的线程池并等待自己提交的任务
+		return Background.INSTANCE.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws Exception {
+				return deleteTree(tombstone);
+			}
+		});
+	}
+
+	/**
+	 * 删除给定目录中遗留的墓碑目录（<code>.name.deleting-&lt;uuid&gt;</code>）, 不匹配的文件和目录不受影响。
+	 *
+	 * @param parent
+	 *            父目录
+	 * @return 删除的文件和目录的数量
+	 * @throws IOException
+	 *             删除不成功时抛出的异常
+	 */
+	static long deleteTombstones(Path parent) throws IOException {
+		final List<Path> tombstones = Lists.newArrayList();
+		final DirectoryStream<Path> entries = Files.newDirectoryStream(parent);
+		try {
+			for (Path entry : entries) {
+				final String name = entry.getFileName().toString();
+				if (TOMBSTONE_NAME.matcher(name).matches() && Files.isDirectory(entry, NOFOLLOW_LINKS)) {
+					tombstones.add(entry);
+				}
+			}
+		} finally {
+			entries.close();
+		}
+		long count = 0;
+		for (Path tombstone : tombstones) {
+			count += new DirectoryDeleter(tombstone).deleteTree(tombstone);
+		}
+		return count;
+	}
+
+	/**
+	 * 原子地将目录重命名为墓碑目录, 不能重命名时只在允许直接删除时返回原来的目录。
+	 */
+	private Path bury() throws IOException {
+		if (!Files.isDirectory(directory)) {
+			throw new IOException("Invalid directory: " + directory);
+		}
+		final Path parent = directory.toAbsolutePath().getParent();
+		if (parent == null) {
+			if (inPlace) {
+				return directory;
+			}
+			throw new IOException("Cannot rename root directory to a tombstone: " + directory);
+		}
+		final Path tombstone = parent.resolve("." + directory.getFileName() + TOMBSTONE + UUID.randomUUID());
+		try {
+			return Files.move(directory, tombstone, ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			if (inPlace) {
+				return directory;
+			}
+			throw e;
+		}
+	}
+
+	private long deleteTree(Path root) throws IOException {
+		final Walker walker;
+		try (DirectoryTasks tasks = new DirectoryTasks("delete", executor, threads)) {
+			walker = new Walker(tasks);
+			try {
+				Files.walkFileTree(root, walker);
+			} finally {
+				tasks.await();
+			}
+			tasks.check();
+		}
+		return walker.deleted.get();
+	}
+
+	private static final class Background {
+		static final ListeningExecutorService INSTANCE = MoreExecutors.listeningDecorator(Executors
+				.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tombstone-%d").build()));
+	}
+
+	private static final class Walker extends SimpleFileVisitor<Path> {
+
+		private final DirectoryTasks tasks;
+		private final AtomicLong deleted = new AtomicLong();
+		private DirectoryTasks.Directory current;
+
+		Walker(DirectoryTasks tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+			current = new Directory(dir, current);
+			return CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs) throws IOException {
+			if (tasks.isFailed()) {
+				return TERMINATE;
+			}
+			if (current == null) {
+				// 根目录本身是符号链接
+				Files.delete(file);
+				deleted.incrementAndGet();
+				return CONTINUE;
+			}
+			tasks.execute(file, current, new DirectoryTasks.FileTask() {
+				@Override
+				public void run() throws IOException {
+					Files.delete(file);
+					deleted.incrementAndGet();
+				}
+			});
+			return tasks.isFailed() ? TERMINATE : CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+			if (exc != null) {
+				tasks.fail(exc);
+			}
+			final DirectoryTasks.Directory done = current;
+			current = done.getParent();
+			done.release();
+			return tasks.isFailed() ? TERMINATE : CONTINUE;
+		}
+
+		/**
+		 * 所有子项都删除后删除的目录。
+		 */
+		private final class Directory extends DirectoryTasks.Directory {
+
+			private final Path path;
+
+			Directory(Path path, DirectoryTasks.Directory parent) {
+				super(parent);
+				this.path = path;
+			}
+
+			@Override
+			void complete() {
+				if (!tasks.isFailed()) {
+					try {
+						Files.delete(path);
+						deleted.incrementAndGet();
+					} catch (IOException e) {
+						tasks.fail(e);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.icloudportal.common;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * {@link DirectoryHasher}计算一个目录树的Merkle哈希（SHA-256）。<br>
+ * <br>
+ * 文件的哈希是内容的哈希, 符号链接的哈希是链接目标的哈希（不跟随链接）, 目录的哈希由按名称排序的
+ * 子项的类型、名称和哈希计算。因此哈希只与目录树的内容有关, 与修改时间和遍历的顺序无关。
+ * 其他类型的子项（命名管道、设备和套接字等）只计入类型和名称, 不打开读取。<br>
+ * <br>
+ * 文件由有界的线程池并发计算哈希, 每个线程重复使用同一个读缓冲区; 同时只保存正在遍历的各级目录
+ * 的子项, 内存的使用与文件的总数无关。
+ *
+ */
+public final class DirectoryHasher {
+
+	private static final HashFunction FUNCTION = Hashing.sha256();
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final byte FILE = 'f';
+	private static final byte DIRECTORY = 'd';
+	private static final byte LINK = 'l';
+	private static final byte OTHER = 'o';
+
+	private static final HashCode EMPTY = FUNCTION.hashBytes(new byte[0]);
+
+	private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	};
+
+	private final Path directory;
+
+	private int threads = 1;
+	private Executor executor;
+
+	DirectoryHasher(Path directory) {
+		this.directory = Preconditions.checkNotNull(directory, "directory must not be null");
+	}
+
+	/**
+	 * 使用给定数量的线程并发计算文件的哈希。
+	 *
+	 * @param threads
+	 *            线程数量
+	 * @return 目录哈希实例
+	 */
+	public DirectoryHasher parallel(int threads) {
+		Preconditions.checkArgument(threads > 0, "threads must be positive");
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * 使用给定的{@link Executor}计算文件的哈希, 同时等待计算的文件数量由{@link #parallel(int)}
+	 * 的线程数量决定。
+	 *
+	 * @param executor
+	 *            计算所用的{@link Executor}
+	 * @return 目录哈希实例
+	 */
+	public DirectoryHasher using(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * 计算目录树的哈希。
+	 *
+	 * @return 哈希
+	 * @throws IOException
+	 *             读取时发生IO错误
+	 */
+	public HashCode hash() throws IOException {
+		if (!Files.isDirectory(directory)) {
+			throw new IOException("Invalid directory: " + directory);
+		}
+		try (DirectoryTasks tasks = new DirectoryTasks("hash", executor, threads)) {
+			return hash(directory, tasks);
+		}
+	}
+
+	private HashCode hash(Path dir, DirectoryTasks tasks) throws IOException {
+		final List<String> names = list(dir);
+		final byte[] types = new byte[names.size()];
+		final List<Future<HashCode>> hashes = Lists.newArrayListWithCapacity(names.size());
+		for (int i = 0; i < names.size(); i++) {
+			final Path path = dir.resolve(names.get(i));
+			final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, NOFOLLOW_LINKS);
+			if (attrs.isDirectory()) {
+				types[i] = DIRECTORY;
+				hashes.add(Futures.immediateFuture(hash(path, tasks)));
+			} else if (attrs.isSymbolicLink()) {
+				types[i] = LINK;
+				hashes.add(Futures.immediateFuture(hashLink(path)));
+			} else if (attrs.isRegularFile()) {
+				types[i] = FILE;
+				hashes.add(tasks.submit(new Callable<HashCode>() {
+					@Override
+					public HashCode call() throws Exception {
+						return hashFile(path);
+					}
+				}));
+			} else {
+				// 打开命名管道会阻塞, 读取设备可能没有尽头
+				types[i] = OTHER;
+				hashes.add(Futures.immediateFuture(EMPTY));
+			}
+		}
+		final Hasher hasher = FUNCTION.newHasher();
+		for (int i = 0; i < names.size(); i++) {
+			hasher.putByte(types[i]);
+			hasher.putString(names.get(i), StandardCharsets.UTF_8);
+			hasher.putByte((byte) 0);
+			hasher.putBytes(DirectoryTasks.get(hashes.get(i)).asBytes());
+		}
+		return hasher.hash();
+	}
+
+	/**
+	 * 返回按名称排序的目录子项。
+	 */
+	static List<String> list(Path dir) throws IOException {
+		final List<String> names = Lists.newArrayList();
+		final DirectoryStream<Path> entries = Files.newDirectoryStream(dir);
+		try {
+			for (Path entry : entries) {
+				names.add(entry.getFileName().toString());
+			}
+		} finally {
+			entries.close();
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * 计算文件内容的哈希, 使用当前线程的读缓冲区。
+	 */
+	static HashCode hashFile(Path file) throws IOException {
+		final Hasher hasher = FUNCTION.newHasher();
+		final ByteBuffer buffer = BUFFER.get();
+		final FileChannel channel = FileChannel.open(file, READ);
+		try {
+			buffer.clear();
+			while (channel.read(buffer) >= 0) {
+				hasher.putBytes(buffer.array(), 0, buffer.position());
+				buffer.clear();
+			}
+		} finally {
+			channel.close();
+		}
+		return hasher.hash();
+	}
+
+	private static HashCode hashLink(Path link) throws IOException {
+		return FUNCTION.hashString(Files.readSymbolicLink(link).toString(), StandardCharsets.UTF_8);
+	}
+}
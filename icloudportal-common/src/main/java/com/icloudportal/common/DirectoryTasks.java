@@ -0,0 +1,224 @@
+package com.icloudportal.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link DirectoryTasks}执行目录树操作（复制、删除、比较和哈希）中对单个文件的任务。<br>
+ * <br>
+ * 没有给定{@link Executor}时按线程数量创建固定大小的线程池, 单线程时在当前线程中执行,
+ * 线程池在{@link #close()}时关闭。同时等待执行的任务数量有上限, 任务中的第一个错误被记录,
+ * 之后的错误作为它的suppressed异常。{@link Directory}记录目录中尚未完成的任务, 所有子项完成后
+ * 再完成目录本身。
+ *
+ */
+final class DirectoryTasks implements Closeable {
+
+	private static final int PENDING_PER_THREAD = 4;
+
+	private final String action;
+	private final ExecutorService pool;
+	private final Executor executor;
+	private final Semaphore permits;
+	private final int maxPending;
+	private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+	/**
+	 * @param action
+	 *            操作的名称, 用于线程名称和错误信息, 例如<code>copy</code>
+	 * @param executor
+	 *            执行任务的{@link Executor}, 为null时按线程数量创建
+	 * @param threads
+	 *            线程数量, 同时等待执行的任务数量与之成正比
+	 */
+	DirectoryTasks(String action, Executor executor, int threads) {
+		this.action = action;
+		this.maxPending = PENDING_PER_THREAD * threads;
+		this.permits = new Semaphore(maxPending);
+		if (executor == null && threads > 1) {
+			pool = Executors.newFixedThreadPool(threads,
+					new ThreadFactoryBuilder().setDaemon(true).setNameFormat(action + "-%d").build());
+			executor = pool;
+		} else {
+			pool = null;
+		}
+		this.executor = executor == null ? MoreExecutors.directExecutor() : executor;
+	}
+
+	/**
+	 * 对给定目录中的文件执行任务, 任务完成后释放目录。任务中的异常记录为失败, 不会抛出。
+	 */
+	void execute(final Path file, final Directory parent, final FileTask task) throws IOException {
+		acquire();
+		parent.retain();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} catch (IOException e) {
+						fail(e);
+					} catch (RuntimeException e) {
+						// 线程池中的异常不会传到遍历的线程, 当作操作失败记录
+						fail(new IOException("Failed to " + action + " " + file, e));
+					} finally {
+						// 先完成目录再归还许可, await()返回时所有目录都已完成
+						parent.release();
+						permits.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			parent.release();
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 执行返回结果的任务, 任务中的异常由{@link #get(Future)}抛出。
+	 */
+	<T> Future<T> submit(final Callable<T> callable) throws IOException {
+		acquire();
+		final FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				try {
+					return callable.call();
+				} finally {
+					permits.release();
+				}
+			}
+		});
+		try {
+			executor.execute(task);
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+		return task;
+	}
+
+	private void acquire() throws InterruptedIOException {
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(action + " interrupted");
+		}
+	}
+
+	/**
+	 * 等待任务的结果。
+	 */
+	static <T> T get(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted");
+		} catch (ExecutionException e) {
+			Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	void fail(IOException e) {
+		if (!failure.compareAndSet(null, e)) {
+			failure.get().addSuppressed(e);
+		}
+	}
+
+	boolean isFailed() {
+		return failure.get() != null;
+	}
+
+	/**
+	 * 等待所有已提交的任务完成。
+	 */
+	void await() {
+		permits.acquireUninterruptibly(maxPending);
+		permits.release(maxPending);
+	}
+
+	/**
+	 * 抛出任务中记录的第一个错误。
+	 */
+	void check() throws IOException {
+		final IOException e = failure.get();
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * 对单个文件的任务。
+	 */
+	interface FileTask {
+		void run() throws IOException;
+	}
+
+	/**
+	 * 目录和尚未完成的子项的数量（包括目录本身的遍历）, 数量为0时完成目录并释放父目录。
+	 */
+	abstract static class Directory {
+
+		private final Directory parent;
+		private final AtomicInteger pending = new AtomicInteger(1);
+
+		Directory(Directory parent) {
+			this.parent = parent;
+			if (parent != null) {
+				parent.retain();
+			}
+		}
+
+		Directory getParent() {
+			return parent;
+		}
+
+		void retain() {
+			pending.incrementAndGet();
+		}
+
+		void release() {
+			if (pending.decrementAndGet() == 0) {
+				complete();
+				if (parent != null) {
+					parent.release();
+				}
+			}
+		}
+
+		/**
+		 * 所有子项都完成后调用。
+		 */
+		abstract void complete();
+	}
+}
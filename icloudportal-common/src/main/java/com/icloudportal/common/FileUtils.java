@@ -19,6 +19,8 @@ import java.nio.file.attribute.FileTime;
 import java.util.EnumSet;
 
 import com.google.common.base.Preconditions;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * 这个类提供了一些辅助处理文件的方法。
@@ -107,7 +109,58 @@ public final class FileUtils {
 		final EnumSet<FileVisitOption> opts = EnumSet.of(FOLLOW_LINKS);
 		Files.walkFileTree(source, opts, Integer.MAX_VALUE, copier);
 	}
-	
+
+	/**
+	 * 使用给定数量的线程将源目录复制到目标目录。
+	 *
+	 * @param source
+	 *            源目录
+	 * @param target
+	 *            目标目录
+	 * @param threads
+	 *            复制文件的线程数量
+	 * @return 复制的文件数量、字节数和吞吐量
+	 * @throws IOException
+	 *             当复制时发送IO错误
+	 */
+	public static CopySummary copyDirectory(Path source, Path target, int threads) throws IOException {
+		return copier(source, target).parallel(threads).copy();
+	}
+
+	/**
+	 * 将源目录同步到目标目录, 大小和修改时间与源文件相同的目标文件不再复制。
+	 *
+	 * @param source
+	 *            源目录
+	 * @param target
+	 *            目标目录
+	 * @param delete
+	 *            是否删除源目录中不存在的目标文件
+	 * @return 复制、跳过和删除的文件数量
+	 * @throws IOException
+	 *             当复制时发送IO错误
+	 */
+	public static CopySummary syncDirectory(Path source, Path target, boolean delete) throws IOException {
+		final DirectoryCopier copier = copier(source, target).sync();
+		if (delete) {
+			copier.deleteExtra();
+		}
+		return copier.copy();
+	}
+
+	/**
+	 * 创建一个将源目录复制到目标目录的{@link DirectoryCopier}。
+	 *
+	 * @param source
+	 *            源目录
+	 * @param target
+	 *            目标目录
+	 * @return {@link DirectoryCopier}实例
+	 */
+	public static DirectoryCopier copier(Path source, Path target) {
+		return new DirectoryCopier(source, target);
+	}
+
 	/**
 	 * 递归删除给定的目录。
 	 * 
@@ -137,6 +190,118 @@ public final class FileUtils {
 		Files.walkFileTree(directory, opts, Integer.MAX_VALUE, cleaner);
 	}
 
+	/**
+	 * 将给定的目录重命名为墓碑目录, 然后使用给定数量的线程递归删除。<br>
+	 * <br>
+	 * 与{@link #deleteDirectory(Path)}不同：不跟随符号链接, 只删除链接本身; 目录先原子地重命名,
+	 * 所以不能删除根目录, 文件系统不支持原子重命名时抛出{@link java.nio.file.AtomicMoveNotSupportedException};
+	 * 删除失败时留下墓碑目录而不是原来的目录, 可以由{@link #deleteTombstones(Path)}清除。
+	 *
+	 * @param directory
+	 *            要删除的目录
+	 * @param threads
+	 *            删除文件的线程数量
+	 * @return 删除的文件和目录的数量
+	 * @throws IOException
+	 *             删除或者重命名不成功时抛出的异常
+	 */
+	public static long deleteDirectoryParallel(Path directory, int threads) throws IOException {
+		return deleter(directory).parallel(threads).delete();
+	}
+
+	/**
+	 * 将给定的目录重命名为墓碑目录, 然后在后台递归删除。方法返回时原来的路径已经可以重新使用。
+	 * 与{@link #deleteDirectoryParallel(Path, int)}相同, 不跟随符号链接, 也不能删除根目录。
+	 *
+	 * @param directory
+	 *            要删除的目录
+	 * @return 删除完成时得到删除的文件和目录数量的{@link ListenableFuture}
+	 * @throws IOException
+	 *             重命名不成功（包括文件系统不支持原子重命名）时抛出的异常
+	 */
+	public static ListenableFuture<Long> deleteDirectoryInBackground(Path directory) throws IOException {
+		return deleter(directory).deleteInBackground();
+	}
+
+	/**
+	 * 删除给定目录中因为删除失败或者进程退出而遗留的墓碑目录。
+	 *
+	 * @param parent
+	 *            被删除的目录所在的父目录
+	 * @return 删除的文件和目录的数量
+	 * @throws IOException
+	 *             删除不成功时抛出的异常
+	 */
+	public static long deleteTombstones(Path parent) throws IOException {
+		return DirectoryDeleter.deleteTombstones(parent);
+	}
+
+	/**
+	 * 创建一个删除给定目录的{@link DirectoryDeleter}。
+	 *
+	 * @param directory
+	 *            要删除的目录
+	 * @return {@link DirectoryDeleter}实例
+	 */
+	public static DirectoryDeleter deleter(Path directory) {
+		return new DirectoryDeleter(directory);
+	}
+
+	/**
+	 * 比较两个目录树, 将差别逐个报告给给定的回调。
+	 *
+	 * @param original
+	 *            原目录
+	 * @param revised
+	 *            新目录
+	 * @param listener
+	 *            接收差别的回调
+	 * @return 差别的数量
+	 * @throws IOException
+	 *             读取时发生IO错误
+	 */
+	public static long compareDirectories(Path original, Path revised, DirectoryComparator.Listener listener)
+			throws IOException {
+		return comparator(original, revised).compare(listener);
+	}
+
+	/**
+	 * 创建一个比较两个目录树的{@link DirectoryComparator}。
+	 *
+	 * @param original
+	 *            原目录
+	 * @param revised
+	 *            新目录
+	 * @return {@link DirectoryComparator}实例
+	 */
+	public static DirectoryComparator comparator(Path original, Path revised) {
+		return new DirectoryComparator(original, revised);
+	}
+
+	/**
+	 * 计算目录树的Merkle哈希, 内容相同的目录树的哈希相同。
+	 *
+	 * @param directory
+	 *            目录
+	 * @return 哈希
+	 * @throws IOException
+	 *             读取时发生IO错误
+	 */
+	public static HashCode hashDirectory(Path directory) throws IOException {
+		return hasher(directory).hash();
+	}
+
+	/**
+	 * 创建一个计算目录树哈希的{@link DirectoryHasher}。
+	 *
+	 * @param directory
+	 *            目录
+	 * @return {@link DirectoryHasher}实例
+	 */
+	public static DirectoryHasher hasher(Path directory) {
+		return new DirectoryHasher(directory);
+	}
+
 	static class DirCopier extends SimpleFileVisitor<Path> {
 		
 		private final Path source;
@@ -1,28 +1,38 @@
-
 package com.icloudportal.common;
 
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 /**
- *  {@link Inflections} 定义单数、复数词形变化的规则。
+ *  {@link Inflections} 定义单数、复数词形变化的规则。<br>
+ *  <br>
+ *  规则保存在不可变的{@link Snapshot}中, 添加规则时复制并替换整个快照（copy-on-write）,
+ *  读取时不需要加锁, 在其他线程添加规则时也是安全的。一组规则可以通过{@link Builder}
+ *  一次性地添加。<br>
+ *  <br>
+ *  规则在第一次使用时编译为{@link Dispatcher}：不规则单词放在哈希表中,
+ *  以<code>$</code>结尾的规则按照可能匹配的词尾组织成后缀树, 只有词尾一致的规则
+ *  才会执行正则表达式, 纯字面的词尾规则直接替换。规则的优先顺序不变。
  *
  */
 public class Inflections {
 	
-	private static final Map<String, Inflections> INSTANCES = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Inflections> INSTANCES = new ConcurrentHashMap<>();
 	private static final String DEFAULT_LANG = "en";
 
-	private Set<String> ignored = new HashSet<>();
-
-	private List<Rule> singulars = new LinkedList<>();
-	private List<Rule> plurals = new LinkedList<>();
+	private volatile Snapshot snapshot = Snapshot.EMPTY;
 	
 	private Inflections() {
 		
@@ -38,7 +48,7 @@ public class Inflections {
 	}
 	
 	/**
-	 * 获取指定语言的词形变化{@link Inflections} 实例。
+	 * 获取指定语言的词形变化{@link Inflections} 实例。并发调用时返回同一个实例。
 	 * 
 	 * @param language
 	 *            语言名称
@@ -47,16 +57,67 @@ public class Inflections {
 	public static Inflections getInstance(String language) {
 		Inflections instance = INSTANCES.get(language);
 		if (instance == null) {
-			instance = new Inflections();
-			INSTANCES.put(language, instance);
+			final Inflections created = new Inflections();
+			instance = INSTANCES.putIfAbsent(language, created);
+			if (instance == null) {
+				instance = created;
+			}
 		}
 		return instance;
 	}
 
-	private String capitalize(String word) {
+	/**
+	 * 返回用于创建一组规则的{@link Builder}。
+	 * 
+	 * @return {@link Builder}实例
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * 返回规则的版本, 每次添加规则或者忽略的单词时递增, 用于使缓存的转换结果失效。
+	 * 
+	 * @return 版本号
+	 */
+	int getVersion() {
+		return snapshot.version;
+	}
+
+	/**
+	 * 返回当前编译后的复数规则。
+	 * 
+	 * @return {@link Dispatcher}实例
+	 */
+	Dispatcher getPluralDispatcher() {
+		return snapshot.getPluralDispatcher();
+	}
+
+	/**
+	 * 返回当前编译后的单数规则。
+	 * 
+	 * @return {@link Dispatcher}实例
+	 */
+	Dispatcher getSingularDispatcher() {
+		return snapshot.getSingularDispatcher();
+	}
+
+	private static String capitalize(String word) {
 		return Character.toUpperCase(word.charAt(0)) + word.substring(1).toLowerCase();
 	}
 
+	/**
+	 * 以一次原子的替换添加给定{@link Builder}中的所有规则, 结果与按照添加到{@link Builder}的顺序
+	 * 逐个调用相应的方法相同。
+	 * 
+	 * @param rules
+	 *            要添加的规则
+	 */
+	public synchronized void add(Builder rules) {
+		Preconditions.checkNotNull(rules);
+		snapshot = snapshot.add(rules.ignored, rules.plurals, rules.singulars);
+	}
+
 	/**
 	 * 为词性变化添加需要忽略的单词。
 	 * 
@@ -64,11 +125,7 @@ public class Inflections {
 	 *            要忽略的单词。
 	 */
 	public void ignore(String... words) {
-		if (words != null) {
-			for (String word : words) {
-				ignored.add(word.toLowerCase());
-			}
-		}
+		add(new Builder().ignore(words));
 	}
 
 	/**
@@ -80,10 +137,7 @@ public class Inflections {
 	 *            复数单词
 	 */
 	public void irregular(String singular, String plural) {
-		plurals.add(0, new Rule(singular.toLowerCase(), plural.toLowerCase(), true));
-		plurals.add(0, new Rule(capitalize(singular), capitalize(plural), true));
-		singulars.add(0, new Rule(plural.toLowerCase(), singular.toLowerCase(), true));
-		singulars.add(0, new Rule(capitalize(plural), capitalize(singular), true));
+		add(new Builder().irregular(singular, plural));
 	}
 
 	/**
@@ -95,7 +149,7 @@ public class Inflections {
 	 *            替换文本
 	 */
 	public void singular(String pattern, String replacement) {
-		singulars.add(0, new Rule(pattern, replacement, false));
+		add(new Builder().singular(pattern, replacement));
 	}
 
 	/**
@@ -107,26 +161,7 @@ public class Inflections {
 	 *            替换文本
 	 */
 	public void plural(String pattern, String replacement) {
-		plurals.add(0, new Rule(pattern, replacement, false));
-	}
-	
-	/**
-	 * Apply the given list of inflection rules on the provided word.
-	 * 
-	 * @param word
-	 *            the word on which to apply the rules
-	 * @param rules
-	 *            the inflection rules
-	 * @return the inflected text
-	 */
-	protected String apply(String word, List<Rule> rules) {
-		if (word == null || "".equals(word.trim())) return word;
-		if (ignored.contains(word.toLowerCase())) return word;
-		for (Rule rule : rules) {
-			String result = rule.apply(word);
-			if (result != null) return result;
-		}
-		return word;
+		add(new Builder().plural(pattern, replacement));
 	}
 	
 	/**
@@ -137,7 +172,8 @@ public class Inflections {
 	 * @return 转换后的文本
 	 */
 	public String singularize(String word) {
-		return apply(word, singulars);
+		final Snapshot current = snapshot;
+		return apply(word, current, current.getSingularDispatcher());
 	}
 	
 	/**
@@ -148,24 +184,185 @@ public class Inflections {
 	 * @return 转换后的文本
 	 */
 	public String pluralize(String word) {
-		return apply(word, plurals);
+		final Snapshot current = snapshot;
+		return apply(word, current, current.getPluralDispatcher());
+	}
+
+	private static String apply(String word, Snapshot snapshot, Dispatcher dispatcher) {
+		if (word == null || "".equals(word.trim())) return word;
+		if (snapshot.ignored.contains(word.toLowerCase())) return word;
+		final String result = dispatcher.apply(word);
+		return result == null ? word : result;
+	}
+
+	/**
+	 * 一组待添加的规则。规则的优先顺序与添加的顺序相反, 后添加的规则优先。
+	 *
+	 */
+	public static final class Builder {
+
+		private final Set<String> ignored = Sets.newHashSet();
+		private final LinkedList<Rule> singulars = new LinkedList<>();
+		private final LinkedList<Rule> plurals = new LinkedList<>();
+
+		private Builder() {
+		}
+
+		/**
+		 * 添加需要忽略的单词。
+		 * 
+		 * @param words
+		 *            要忽略的单词
+		 * @return 此{@link Builder}
+		 */
+		public Builder ignore(String... words) {
+			if (words != null) {
+				for (String word : words) {
+					ignored.add(word.toLowerCase());
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * 添加不规则的单数、复数单词。
+		 * 
+		 * @param singular
+		 *            单数单词
+		 * @param plural
+		 *            复数单词
+		 * @return 此{@link Builder}
+		 */
+		public Builder irregular(String singular, String plural) {
+			plurals.addFirst(new Rule(singular.toLowerCase(), plural.toLowerCase(), true));
+			plurals.addFirst(new Rule(capitalize(singular), capitalize(plural), true));
+			singulars.addFirst(new Rule(plural.toLowerCase(), singular.toLowerCase(), true));
+			singulars.addFirst(new Rule(capitalize(plural), capitalize(singular), true));
+			return this;
+		}
+
+		/**
+		 * 添加复数转单数的规则。
+		 * 
+		 * @param pattern
+		 *            匹配复数的模式
+		 * @param replacement
+		 *            替换文本
+		 * @return 此{@link Builder}
+		 */
+		public Builder singular(String pattern, String replacement) {
+			singulars.addFirst(new Rule(pattern, replacement, false));
+			return this;
+		}
+
+		/**
+		 * 添加单数转复数的规则。
+		 * 
+		 * @param pattern
+		 *            匹配单数的模式
+		 * @param replacement
+		 *            替换文本
+		 * @return 此{@link Builder}
+		 */
+		public Builder plural(String pattern, String replacement) {
+			plurals.addFirst(new Rule(pattern, replacement, false));
+			return this;
+		}
+
+		/**
+		 * 创建一个只包含这些规则的、不注册到任何语言的{@link Inflections}实例。
+		 * 
+		 * @return {@link Inflections}实例
+		 */
+		public Inflections build() {
+			final Inflections inflections = new Inflections();
+			inflections.add(this);
+			return inflections;
+		}
+	}
+
+	/**
+	 * 规则的不可变快照。规则数组中优先的规则在前, 编译后的{@link Dispatcher}在第一次使用时创建。
+	 *
+	 */
+	private static final class Snapshot {
+
+		static final Snapshot EMPTY = new Snapshot(ImmutableSet.<String> of(), new Rule[0], new Rule[0], 0);
+
+		private final Set<String> ignored;
+		private final Rule[] plurals;
+		private final Rule[] singulars;
+		private final int version;
+
+		private volatile Dispatcher pluralDispatcher;
+		private volatile Dispatcher singularDispatcher;
+
+		Snapshot(Set<String> ignored, Rule[] plurals, Rule[] singulars, int version) {
+			this.ignored = ignored;
+			this.plurals = plurals;
+			this.singulars = singulars;
+			this.version = version;
+		}
+
+		Snapshot add(Set<String> ignored, List<Rule> plurals, List<Rule> singulars) {
+			final Set<String> words = ignored.isEmpty() ? this.ignored
+					: ImmutableSet.<String> builder().addAll(this.ignored).addAll(ignored).build();
+			return new Snapshot(words, prepend(plurals, this.plurals), prepend(singulars, this.singulars),
+					version + 1);
+		}
+
+		private static Rule[] prepend(List<Rule> first, Rule[] rest) {
+			if (first.isEmpty()) {
+				return rest;
+			}
+			final Rule[] rules = new Rule[first.size() + rest.length];
+			first.toArray(rules);
+			System.arraycopy(rest, 0, rules, first.size(), rest.length);
+			return rules;
+		}
+
+		Dispatcher getPluralDispatcher() {
+			Dispatcher dispatcher = pluralDispatcher;
+			if (dispatcher == null) {
+				pluralDispatcher = dispatcher = new Dispatcher(plurals);
+			}
+			return dispatcher;
+		}
+
+		Dispatcher getSingularDispatcher() {
+			Dispatcher dispatcher = singularDispatcher;
+			if (dispatcher == null) {
+				singularDispatcher = dispatcher = new Dispatcher(singulars);
+			}
+			return dispatcher;
+		}
 	}
 	
 	static class Rule {
 		
-		private String pattern;
-		private String replacement;
+		private final String pattern;
+		private final String replacement;
 
-		private Pattern regex;
+		private final Pattern regex;
 
 		public Rule(String pattern, String replacement, boolean simple) {
 			this.pattern = pattern;
 			this.replacement = replacement;
-			if (!simple) {
-				this.regex = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-			}
+			this.regex = simple ? null : Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
 		}
 		
+		String getPattern() {
+			return pattern;
+		}
+
+		String getReplacement() {
+			return replacement;
+		}
+
+		boolean isSimple() {
+			return regex == null;
+		}
+
 		public String apply(String input) {
 			if (input == null) return null;
 			if (input.trim().equals("")) return null;
@@ -194,4 +391,364 @@ public class Inflections {
 			return false;
 		}
 	}
+
+	/**
+	 * 编译后的规则列表。给定单词时, 先从不规则单词的哈希表和词尾后缀树中找出可能匹配的规则,
+	 * 然后按照规则原来的顺序逐个执行, 第一个匹配的规则的结果即为结果。<br>
+	 * <br>
+	 * 词尾由规则的正则表达式推导（例如<code>(octop|vir)us$</code>的词尾是
+	 * <code>octopus</code>和<code>virus</code>）, 只作为必要条件使用;
+	 * 无法推导词尾的规则总是作为候选规则执行。
+	 *
+	 */
+	static final class Dispatcher {
+
+		private static final int MAX_ENDINGS = 32;
+
+		/**
+		 * 每个线程重复使用的候选规则集合, 规则的转换不会再调用{@link #apply(String)}。
+		 */
+		private static final ThreadLocal<BitSet> CANDIDATES = new ThreadLocal<BitSet>() {
+			@Override
+			protected BitSet initialValue() {
+				return new BitSet();
+			}
+		};
+
+		private final Rule[] rules;
+		private final String[] literals;
+		private final Map<String, Integer> exact = Maps.newHashMap();
+		private final BitSet always = new BitSet();
+		private final Node root = new Node();
+
+		Dispatcher(Rule[] rules) {
+			this.rules = rules;
+			this.literals = new String[this.rules.length];
+			for (int i = 0; i < this.rules.length; i++) {
+				final Rule rule = this.rules[i];
+				if (rule.isSimple()) {
+					if (!exact.containsKey(rule.getPattern())) {
+						exact.put(rule.getPattern(), i);
+					}
+					continue;
+				}
+				final Set<String> endings = getEndings(rule.getPattern());
+				if (endings == null) {
+					always.set(i);
+					continue;
+				}
+				for (String ending : endings) {
+					root.add(toLower(ending), ending.length(), i);
+				}
+				if (isLiteral(rule.getPattern()) && rule.getReplacement().indexOf('$') < 0
+						&& rule.getReplacement().indexOf('\\') < 0) {
+					literals[i] = toLower(endings.iterator().next());
+				}
+			}
+		}
+
+		/**
+		 * 返回按照优先顺序排列的规则。
+		 */
+		Rule[] getRules() {
+			return rules.clone();
+		}
+
+		/**
+		 * 返回第一个匹配的规则的结果, 没有匹配的规则时返回null。
+		 */
+		String apply(String word) {
+			if (hasLineTerminator(word)) {
+				// '$' also matches before a final line terminator
+				for (Rule rule : rules) {
+					final String result = rule.apply(word);
+					if (result != null) return result;
+				}
+				return null;
+			}
+			final BitSet candidates = CANDIDATES.get();
+			candidates.clear();
+			candidates.or(always);
+			final Integer simple = exact.get(word);
+			if (simple != null) {
+				candidates.set(simple);
+			}
+			final String lower = toLower(word);
+			Node node = root;
+			candidates.or(node.rules);
+			for (int i = lower.length() - 1; i >= 0 && node.children != null; i--) {
+				node = node.children.get(lower.charAt(i));
+				if (node == null) break;
+				candidates.or(node.rules);
+			}
+			for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+				final String result;
+				if (literals[i] != null) {
+					result = word.substring(0, word.length() - literals[i].length()) + rules[i].getReplacement();
+				} else {
+					result = rules[i].apply(word);
+				}
+				if (result != null) return result;
+			}
+			return null;
+		}
+
+		private static boolean hasLineTerminator(String word) {
+			for (int i = 0; i < word.length(); i++) {
+				final char c = word.charAt(i);
+				if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * 正则表达式的大小写不敏感匹配只针对ASCII字符。
+		 */
+		private static String toLower(String text) {
+			char[] chars = null;
+			for (int i = 0; i < text.length(); i++) {
+				final char c = text.charAt(i);
+				if (c >= 'A' && c <= 'Z') {
+					if (chars == null) {
+						chars = text.toCharArray();
+					}
+					chars[i] = (char) (c + ('a' - 'A'));
+				}
+			}
+			return chars == null ? text : new String(chars);
+		}
+
+		private static boolean isLiteral(String pattern) {
+			for (int i = 0; i < pattern.length() - 1; i++) {
+				if ("\\^$.|?*+()[]{}".indexOf(pattern.charAt(i)) >= 0) {
+					return false;
+				}
+			}
+			return pattern.endsWith("$");
+		}
+
+		/**
+		 * 返回以<code>$</code>结尾的正则表达式的所有匹配可能的词尾, 无法推导时返回null。
+		 * 最外层有分支（例如<code>ch|sh$</code>）时<code>$</code>只属于最后一个分支, 也返回null。
+		 */
+		static Set<String> getEndings(String pattern) {
+			if (!pattern.endsWith("$") || pattern.endsWith("\\$")) {
+				return null;
+			}
+			final Parser parser = new Parser(pattern.substring(0, pattern.length() - 1));
+			final Endings endings = parser.parseAlternatives();
+			return parser.failed || parser.position < parser.pattern.length() ? null : endings.values;
+		}
+
+		private static final class Node {
+
+			private final BitSet rules = new BitSet();
+			private Map<Character, Node> children;
+
+			void add(String ending, int length, int rule) {
+				Node node = this;
+				for (int i = length - 1; i >= 0; i--) {
+					if (node.children == null) {
+						node.children = Maps.newHashMap();
+					}
+					Node child = node.children.get(ending.charAt(i));
+					if (child == null) {
+						child = new Node();
+						node.children.put(ending.charAt(i), child);
+					}
+					node = child;
+				}
+				node.rules.set(rule);
+			}
+		}
+
+		/**
+		 * 一段正则表达式所有匹配的可能的结尾。complete为false时,
+		 * 匹配的文本只是以这些字符串结尾, 不能再向前扩展。
+		 */
+		private static final class Endings {
+
+			private final Set<String> values;
+			private final boolean complete;
+
+			Endings(Set<String> values, boolean complete) {
+				this.values = values;
+				this.complete = complete;
+			}
+
+			static Endings unknown() {
+				return new Endings(ImmutableSet.of(""), false);
+			}
+
+			Endings prepend(Endings head) {
+				if (!complete) {
+					return this;
+				}
+				final Set<String> values = Sets.newLinkedHashSet();
+				for (String first : head.values) {
+					for (String last : this.values) {
+						values.add(first + last);
+					}
+				}
+				if (values.size() > MAX_ENDINGS) {
+					return new Endings(this.values, false);
+				}
+				return new Endings(values, head.complete);
+			}
+		}
+
+		/**
+		 * 只识别字面字符、分组、分支、字符类和量词的简单解析器。
+		 */
+		private static final class Parser {
+
+			private final String pattern;
+			private int position;
+			private int depth;
+			private boolean failed;
+
+			Parser(String pattern) {
+				this.pattern = pattern;
+			}
+
+			Endings parseAlternatives() {
+				final Set<String> values = Sets.newLinkedHashSet();
+				boolean complete = true;
+				while (true) {
+					final Endings sequence = parseSequence();
+					values.addAll(sequence.values);
+					complete &= sequence.complete;
+					if (position < pattern.length() && pattern.charAt(position) == '|') {
+						if (depth == 0) {
+							failed = true;
+							break;
+						}
+						position++;
+						continue;
+					}
+					break;
+				}
+				if (values.size() > MAX_ENDINGS) {
+					return Endings.unknown();
+				}
+				return new Endings(values, complete);
+			}
+
+			private Endings parseSequence() {
+				final List<Endings> items = new LinkedList<>();
+				while (position < pattern.length() && pattern.charAt(position) != '|'
+						&& pattern.charAt(position) != ')') {
+					Endings item = parseAtom();
+					if (failed) {
+						return Endings.unknown();
+					}
+					item = parseQuantifier(item);
+					items.add(0, item);
+				}
+				Endings result = new Endings(ImmutableSet.of(""), true);
+				for (Endings item : items) {
+					result = result.prepend(item);
+					if (!result.complete) break;
+				}
+				return result;
+			}
+
+			private Endings parseAtom() {
+				final char c = pattern.charAt(position++);
+				switch (c) {
+				case '(':
+					if (pattern.startsWith("?:", position)) {
+						position += 2;
+					} else if (position < pattern.length() && pattern.charAt(position) == '?') {
+						// inline flags and look-arounds
+						failed = true;
+						return null;
+					}
+					depth++;
+					final Endings group = parseAlternatives();
+					depth--;
+					if (failed) {
+						return null;
+					}
+					if (position >= pattern.length() || pattern.charAt(position) != ')') {
+						failed = true;
+						return null;
+					}
+					position++;
+					return group;
+				case '[':
+					final int end = pattern.indexOf(']', position + 1);
+					if (end < 0 || pattern.indexOf('[', position) >= 0 && pattern.indexOf('[', position) < end) {
+						failed = true;
+						return null;
+					}
+					position = end + 1;
+					return Endings.unknown();
+				case '\\':
+					if (position >= pattern.length()) {
+						failed = true;
+						return null;
+					}
+					final char escaped = pattern.charAt(position++);
+					if (Character.isLetterOrDigit(escaped)) {
+						return Endings.unknown();
+					}
+					return new Endings(ImmutableSet.of(String.valueOf(escaped)), true);
+				case '^':
+					return new Endings(ImmutableSet.of(""), true);
+				case '.':
+				case '$':
+					return Endings.unknown();
+				case '?':
+				case '*':
+				case '+':
+				case '{':
+				case ']':
+				case '}':
+					failed = true;
+					return null;
+				default:
+					return new Endings(ImmutableSet.of(String.valueOf(c)), true);
+				}
+			}
+
+			private Endings parseQuantifier(Endings item) {
+				if (position >= pattern.length()) {
+					return item;
+				}
+				final char c = pattern.charAt(position);
+				if (c == '?') {
+					position++;
+					skipMode();
+					final Set<String> values = Sets.newLinkedHashSet(item.values);
+					values.add("");
+					return new Endings(values, item.complete);
+				}
+				if (c == '*' || c == '+') {
+					position++;
+					skipMode();
+					return Endings.unknown();
+				}
+				if (c == '{') {
+					final int end = pattern.indexOf('}', position);
+					if (end < 0) {
+						failed = true;
+						return item;
+					}
+					position = end + 1;
+					skipMode();
+					return Endings.unknown();
+				}
+				return item;
+			}
+
+			private void skipMode() {
+				if (position < pattern.length() && (pattern.charAt(position) == '?' || pattern.charAt(position) == '+')) {
+					position++;
+				}
+			}
+		}
+	}
 }
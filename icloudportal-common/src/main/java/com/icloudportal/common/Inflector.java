@@ -1,25 +1,189 @@
 
 package com.icloudportal.common;
 
+import java.io.IOException;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 /**
- * {@link Inflector}提供单词转换为复数、单数、标题、类名、表名的各种方法 
+ * {@link Inflector}提供单词转换为复数、单数、标题、类名、表名的各种方法 <br>
+ * <br>
+ * <code>tableize</code>、<code>classify</code>、<code>camelize</code>、
+ * <code>underscore</code>和<code>humanize</code>的结果可以分别缓存在有大小限制的并发缓存中,
+ * 每个缓存的最大条目数通过系统属性<code>icloudportal.inflector.cache</code>指定
+ * （默认为0, 即不使用缓存）。缓存与规则的版本一起替换, 添加词形变化规则后旧的结果不再使用。<br>
+ * <br>
+ * ASCII文本的<code>underscore</code>、<code>camelize</code>、<code>dasherize</code>、
+ * <code>humanize</code>和<code>titleize</code>由单次遍历的分词器直接写入一个
+ * {@link StringBuilder}, 结果与正则表达式的实现完全相同; 其他文本仍然使用正则表达式。<br>
+ * <br>
+ * 批量转换的方法（例如{@link #tableizeAll(Collection)}）不经过缓存, 每批单词共用一个缓冲区,
+ * 大的输入分成多批并行转换。{@link #underscore(CharSequence, Appendable)}等方法将结果
+ * 直接写入调用者提供的{@link Appendable}。
  * 
  */
 public final class Inflector {
 
+	static final String CACHE_PROPERTY = "icloudportal.inflector.cache";
+
+	private static final long DEFAULT_CACHE_SIZE = 0;
+
+	private static final int TABLEIZE = 0;
+	private static final int CLASSIFY = 1;
+	private static final int CAMELIZE = 2;
+	private static final int LOWER_CAMELIZE = 3;
+	private static final int UNDERSCORE = 4;
+	private static final int HUMANIZE = 5;
+	private static final String[] OPERATIONS = { "tableize", "classify", "camelize", "lowerCamelize", "underscore",
+			"humanize" };
+
+	private static final int UNDERSCORE_FORMAT = 0;
+	private static final int HYPHEN_FORMAT = 1;
+	private static final int UPPER_CAMEL_FORMAT = 2;
+	private static final int LOWER_CAMEL_FORMAT = 3;
+
+	private static final int BATCH_SIZE = 2048;
+	private static final int MAX_BUFFER = 8192;
+
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder();
+		}
+	};
+
 	private static final Inflections INFLECTIONS_EN = Inflections.getInstance();
-	private static final Inflector INSTANCE = new Inflector();
 
-	private Inflector() {
+	static {
 		initEnglishRules();
 	}
+
+	private static final Inflector INSTANCE = new Inflector(getCacheSize());
+
+	private final long cacheSize;
+	private volatile Caches caches;
+
+	/**
+	 * 创建使用给定缓存大小的实例, 英语规则在类初始化时已经添加。
+	 * 
+	 * @param cacheSize
+	 *            每个缓存的最大条目数, 不大于0时不使用缓存
+	 */
+	Inflector(long cacheSize) {
+		this.cacheSize = cacheSize;
+		caches = cacheSize > 0 ? new Caches(INFLECTIONS_EN.getVersion()) : null;
+	}
+
+	private static long getCacheSize() {
+		final String value = System.getProperty(CACHE_PROPERTY);
+		if (value == null || value.trim().isEmpty()) {
+			return DEFAULT_CACHE_SIZE;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return DEFAULT_CACHE_SIZE;
+		}
+	}
+
+	/**
+	 * 一个规则版本的所有缓存。规则变化时整体替换, 正在计算的旧版本的结果只会写入旧的缓存。
+	 */
+	private final class Caches {
+
+		private final int version;
+		private final List<LoadingCache<String, String>> caches = Lists.newArrayList();
+
+		Caches(int version) {
+			this.version = version;
+			for (int i = 0; i < OPERATIONS.length; i++) {
+				caches.add(newCache(i));
+			}
+		}
+
+		private LoadingCache<String, String> newCache(final int operation) {
+			return CacheBuilder.newBuilder()
+					.maximumSize(cacheSize)
+					.recordStats()
+					.build(new CacheLoader<String, String>() {
+						@Override
+						public String load(String word) throws Exception {
+							return compute(operation, word);
+						}
+					});
+		}
+	}
+
+	private String compute(int operation, String word) {
+		return compute(operation, word, new StringBuilder());
+	}
+
+	/**
+	 * 执行给定的转换, 中间结果写入给定的缓冲区。
+	 */
+	private String compute(int operation, String word, StringBuilder buffer) {
+		switch (operation) {
+		case TABLEIZE:
+			return pluralize(toUnderscore(word, buffer));
+		case CLASSIFY:
+			return toCamelCase(toUnderscore(singularize(word), buffer), false, buffer);
+		case CAMELIZE:
+			return toCamelCase(word, false, buffer);
+		case LOWER_CAMELIZE:
+			return toCamelCase(word, true, buffer);
+		case UNDERSCORE:
+			return toUnderscore(word, buffer);
+		case HUMANIZE:
+			return toHuman(word, buffer);
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+
+	private String cached(int operation, String word) {
+		Caches current = caches;
+		if (current == null || word == null) {
+			return compute(operation, word);
+		}
+		// 版本在缓存之后读取, 缓存中的结果所用的规则不会比缓存的版本旧
+		final int version = INFLECTIONS_EN.getVersion();
+		if (current.version < version) {
+			current = renewCaches(version);
+		}
+		try {
+			return current.caches.get(operation).getUnchecked(word);
+		} catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		}
+	}
 	
+	private synchronized Caches renewCaches(int version) {
+		Caches current = caches;
+		if (current.version < version) {
+			caches = current = new Caches(version);
+		}
+		return current;
+	}
+
 	public static Inflector getInstance() {
 		return INSTANCE;
 	}
@@ -76,8 +240,46 @@ public final class Inflector {
 	 * @return 驼峰格式字符串
 	 */
 	public String camelize(String word, boolean lower) {
+		return cached(lower ? LOWER_CAMELIZE : CAMELIZE, word);
+	}
+
+	private String toCamelCase(String word, boolean lower, StringBuilder buffer) {
+		if (isSimple(word)) {
+			buffer.setLength(0);
+			tokenize(word, buffer, lower ? LOWER_CAMEL_FORMAT : UPPER_CAMEL_FORMAT);
+			return buffer.toString();
+		}
 		final CaseFormat target = lower ? CaseFormat.LOWER_CAMEL : CaseFormat.UPPER_CAMEL;
-		return CaseFormat.LOWER_UNDERSCORE.to(target, underscore(word));
+		return CaseFormat.LOWER_UNDERSCORE.to(target, toUnderscore(word, buffer));
+	}
+
+	/**
+	 * 转换给定文本为驼峰格式, 并将结果写入给定的{@link Appendable}。
+	 * 
+	 * @param text
+	 *            要转换的文本
+	 * @param lower
+	 *            是否创建小写驼峰
+	 * @param out
+	 *            写入结果的{@link Appendable}
+	 * @throws IOException
+	 *             写入时发生IO错误
+	 */
+	public void camelize(CharSequence text, boolean lower, Appendable out) throws IOException {
+		write(text, out, lower ? LOWER_CAMEL_FORMAT : UPPER_CAMEL_FORMAT);
+	}
+
+	/**
+	 * 批量转换给定单词为驼峰格式。
+	 * 
+	 * @param words
+	 *            要转换的单词
+	 * @param lower
+	 *            是否创建小写驼峰
+	 * @return 与给定单词顺序一致的转换结果
+	 */
+	public List<String> camelizeAll(Collection<String> words, boolean lower) {
+		return computeAll(lower ? LOWER_CAMELIZE : CAMELIZE, words);
 	}
 	
 	/**
@@ -111,7 +313,16 @@ public final class Inflector {
 	 * @return 转换后的字符串
 	 */
 	public String underscore(String camelCase) {
+		return cached(UNDERSCORE, camelCase);
+	}
+
+	private String toUnderscore(String camelCase, StringBuilder buffer) {
 		Preconditions.checkNotNull(camelCase);
+		if (isSimple(camelCase)) {
+			buffer.setLength(0);
+			tokenize(camelCase, buffer, UNDERSCORE_FORMAT);
+			return buffer.toString();
+		}
 		return camelCase.trim()
 				   .replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2")
 				   .replaceAll("([a-z\\d])([A-Z])", "$1_$2")
@@ -119,6 +330,31 @@ public final class Inflector {
 				   .toLowerCase();
 	}
 
+	/**
+	 * 将驼峰格式文本转换为下划线、小写形式, 并将结果写入给定的{@link Appendable}。
+	 * 
+	 * @param camelCase
+	 *            驼峰格式文本
+	 * @param out
+	 *            写入结果的{@link Appendable}
+	 * @throws IOException
+	 *             写入时发生IO错误
+	 */
+	public void underscore(CharSequence camelCase, Appendable out) throws IOException {
+		write(camelCase, out, UNDERSCORE_FORMAT);
+	}
+
+	/**
+	 * 批量将驼峰格式字符串转换为下划线、小写形式。
+	 * 
+	 * @param words
+	 *            驼峰格式字符串
+	 * @return 与给定字符串顺序一致的转换结果
+	 */
+	public List<String> underscoreAll(Collection<String> words) {
+		return computeAll(UNDERSCORE, words);
+	}
+
 	/**
 	 * 将给定的单词转换成可读的形式。
 	 * 
@@ -133,8 +369,16 @@ public final class Inflector {
 	 * @return 转换后的字符串
 	 */
 	public String humanize(String word) {
+		return cached(HUMANIZE, word);
+	}
+
+	private String toHuman(String word, StringBuilder buffer) {
 		Preconditions.checkNotNull(word);
-		String result = underscore(word)
+		if (isSimple(word)) {
+			buffer.setLength(0);
+			return humanize(word, buffer);
+		}
+		String result = toUnderscore(word, buffer)
 				.replaceAll("_id$", "")
 				.replaceAll("\\A_+", "")
 				.replaceAll("[_\\s]+", " ");
@@ -154,6 +398,10 @@ public final class Inflector {
 	 * @return 转换后的字符串
 	 */
 	public String titleize(String word) {
+		if (word != null && isSimple(word)) {
+			// underscore() of an ASCII text is already in underscore format
+			return capitalize(humanize(word));
+		}
 		return capitalize(humanize(underscore(word)));
 	}
 	
@@ -170,7 +418,22 @@ public final class Inflector {
 	 * @return 转换后的字符串
 	 */
 	public String tableize(String camelCase) {
-		return pluralize(underscore(camelCase));
+		return cached(TABLEIZE, camelCase);
+	}
+
+	/**
+	 * 批量将给定词语转换为表名。
+	 * 
+	 * <pre>
+	 * inflection.tableizeAll(Arrays.asList(&quot;AddressBook&quot;, &quot;Contact&quot;)); // [address_books, contacts]
+	 * </pre>
+	 * 
+	 * @param words
+	 *            要转换的字符串
+	 * @return 与给定字符串顺序一致的转换结果
+	 */
+	public List<String> tableizeAll(Collection<String> words) {
+		return computeAll(TABLEIZE, words);
 	}
 
 	/**
@@ -186,7 +449,18 @@ public final class Inflector {
 	 * @return 转换后的字符串
 	 */
 	public String classify(String text) {
-		return camelize(underscore(singularize(text)));
+		return cached(CLASSIFY, text);
+	}
+
+	/**
+	 * 批量将给定词语转换为类名。
+	 * 
+	 * @param words
+	 *            要转换的字符串
+	 * @return 与给定字符串顺序一致的转换结果
+	 */
+	public List<String> classifyAll(Collection<String> words) {
+		return computeAll(CLASSIFY, words);
 	}
 	
 	/**
@@ -202,9 +476,28 @@ public final class Inflector {
 	 * @return 转换后的字符串
 	 */
 	public String dasherize(String word) {
+		if (word != null && isSimple(word)) {
+			final StringBuilder out = new StringBuilder(word.length() + 4);
+			tokenize(word, out, HYPHEN_FORMAT);
+			return out.toString();
+		}
 		return CaseFormat.LOWER_UNDERSCORE.to(CaseFormat.LOWER_HYPHEN, underscore(word));
 	}
 
+	/**
+	 * 将给定文本转换为中划线格式, 并将结果写入给定的{@link Appendable}。
+	 * 
+	 * @param text
+	 *            要转换的文本
+	 * @param out
+	 *            写入结果的{@link Appendable}
+	 * @throws IOException
+	 *             写入时发生IO错误
+	 */
+	public void dasherize(CharSequence text, Appendable out) throws IOException {
+		write(text, out, HYPHEN_FORMAT);
+	}
+
 	/**
 	 * 将给定字符串的首字母变为大写。
 	 * 
@@ -217,6 +510,34 @@ public final class Inflector {
 		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
 	}
 	
+	/**
+	 * 返回每个缓存的操作的命中率等统计信息, 禁用缓存时返回空的映射。规则变化后统计重新开始。
+	 * 
+	 * @return 操作名称到统计信息的映射
+	 */
+	public Map<String, CacheStats> getCacheStats() {
+		final ImmutableMap.Builder<String, CacheStats> stats = ImmutableMap.builder();
+		final Caches current = caches;
+		if (current != null) {
+			for (int i = 0; i < current.caches.size(); i++) {
+				stats.put(OPERATIONS[i], current.caches.get(i).stats());
+			}
+		}
+		return stats.build();
+	}
+
+	/**
+	 * 清除所有缓存的转换结果。
+	 */
+	public void invalidateCache() {
+		final Caches current = caches;
+		if (current != null) {
+			for (LoadingCache<String, String> cache : current.caches) {
+				cache.invalidateAll();
+			}
+		}
+	}
+
 	/**
 	 * 返回指定数字加上序数词后缀后的字符串。
 	 * 
@@ -278,9 +599,197 @@ public final class Inflector {
 		return Normalizer.normalize(text, Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}", "");
 	}
 	
-	private void initEnglishRules() {
+	/**
+	 * 检查给定的文本是否可以由分词器转换。{@link String#toLowerCase()}对非ASCII字符的转换
+	 * 与上下文有关, 土耳其语和阿塞拜疆语中<code>I</code>的小写也不是<code>i</code>,
+	 * 这些情况仍然使用正则表达式的实现。
+	 */
+	private static boolean isSimple(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		final String language = Locale.getDefault().getLanguage();
+		return !"tr".equals(language) && !"az".equals(language);
+	}
+
+	/**
+	 * 单次遍历地完成<code>trim</code>、在单词的边界插入下划线、将连续的<code>-</code>和空白
+	 * 替换为一个下划线以及转换为小写, 并按照给定的格式输出下划线和单词的首字母。<br>
+	 * <br>
+	 * 单词的边界是大写字母与之前的小写字母或者数字之间, 以及连续的大写字母中
+	 * 后面跟着小写字母的最后一个大写字母之前。
+	 */
+	private static void tokenize(CharSequence text, StringBuilder out, int format) {
+		int begin = 0;
+		int end = text.length();
+		while (begin < end && text.charAt(begin) <= ' ') begin++;
+		while (end > begin && text.charAt(end - 1) <= ' ') end--;
+		boolean separator = false;
+		boolean upper = format == UPPER_CAMEL_FORMAT;
+		for (int i = begin; i < end; i++) {
+			final char c = text.charAt(i);
+			if (c == '-' || isSpace(c)) {
+				if (!separator) {
+					upper = append(out, '_', format, upper);
+					separator = true;
+				}
+				continue;
+			}
+			separator = false;
+			if (isUpper(c) && i > begin) {
+				final char prev = text.charAt(i - 1);
+				if (isLower(prev) || (prev >= '0' && prev <= '9')
+						|| (isUpper(prev) && i + 1 < end && isLower(text.charAt(i + 1)))) {
+					upper = append(out, '_', format, upper);
+				}
+			}
+			upper = append(out, isUpper(c) ? (char) (c + ('a' - 'A')) : c, format, upper);
+		}
+	}
+
+	/**
+	 * 将给定格式的转换结果写入{@link Appendable}。ASCII文本直接由分词器写入调用者的
+	 * {@link StringBuilder}, 或者写入当前线程共用的缓冲区后一次性地输出。
+	 */
+	private void write(CharSequence text, Appendable out, int format) throws IOException {
+		Preconditions.checkNotNull(text);
+		Preconditions.checkNotNull(out);
+		if (!isSimple(text)) {
+			final String word = text.toString();
+			switch (format) {
+			case UNDERSCORE_FORMAT:
+				out.append(underscore(word));
+				break;
+			case HYPHEN_FORMAT:
+				out.append(dasherize(word));
+				break;
+			default:
+				out.append(camelize(word, format == LOWER_CAMEL_FORMAT));
+			}
+			return;
+		}
+		if (out instanceof StringBuilder) {
+			tokenize(text, (StringBuilder) out, format);
+			return;
+		}
+		final StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		tokenize(text, buffer, format);
+		out.append(buffer);
+		if (buffer.capacity() > MAX_BUFFER) {
+			BUFFER.remove();
+		}
+	}
+
+	/**
+	 * 批量执行给定的转换。每批单词共用一个缓冲区, 多于一批时其他批次提交到{@link SharedPool},
+	 * 当前线程也执行尚未开始的批次, 因此在线程池中调用时不会死锁。
+	 */
+	private List<String> computeAll(final int operation, Collection<String> words) {
+		Preconditions.checkNotNull(words);
+		final String[] input = words.toArray(new String[words.size()]);
+		final String[] output = new String[input.length];
+		final List<FutureTask<Void>> tasks = Lists.newArrayList();
+		for (int from = 0; from < input.length; from += BATCH_SIZE) {
+			final int start = from;
+			final int end = Math.min(from + BATCH_SIZE, input.length);
+			final FutureTask<Void> task = new FutureTask<>(new Runnable() {
+				@Override
+				public void run() {
+					final StringBuilder buffer = new StringBuilder();
+					for (int i = start; i < end; i++) {
+						output[i] = compute(operation, input[i], buffer);
+					}
+				}
+			}, null);
+			if (!tasks.isEmpty()) {
+				SharedPool.get().execute(task);
+			}
+			tasks.add(task);
+		}
+		for (FutureTask<Void> task : tasks) {
+			task.run();
+		}
+		for (FutureTask<Void> task : tasks) {
+			try {
+				Uninterruptibles.getUninterruptibly(task);
+			} catch (ExecutionException e) {
+				throw Throwables.propagate(e.getCause());
+			}
+		}
+		return ImmutableList.copyOf(output);
+	}
+
+	/**
+	 * 输出一个字符, 返回下一个字符是否应该大写。
+	 */
+	private static boolean append(StringBuilder out, char c, int format, boolean upper) {
+		if (c == '_') {
+			switch (format) {
+			case UNDERSCORE_FORMAT:
+				out.append('_');
+				return false;
+			case HYPHEN_FORMAT:
+				out.append('-');
+				return false;
+			default:
+				return true;
+			}
+		}
+		out.append(upper && isLower(c) ? (char) (c - ('a' - 'A')) : c);
+		return false;
+	}
+
+	/**
+	 * 在下划线格式的基础上去掉末尾的<code>_id</code>和开头的下划线, 将连续的下划线替换为空格,
+	 * 并将首字母大写。
+	 */
+	private String humanize(String word, StringBuilder out) {
+		tokenize(word, out, UNDERSCORE_FORMAT);
+		int end = out.length();
+		if (end >= 3 && out.charAt(end - 3) == '_' && out.charAt(end - 2) == 'i' && out.charAt(end - 1) == 'd') {
+			end -= 3;
+		}
+		int begin = 0;
+		while (begin < end && out.charAt(begin) == '_') begin++;
+		if (begin == end) {
+			return capitalize("");
+		}
+		// compact in place, the text only gets shorter
+		out.setCharAt(0, Character.toUpperCase(out.charAt(begin)));
+		int length = 1;
+		boolean separator = false;
+		for (int i = begin + 1; i < end; i++) {
+			final char c = out.charAt(i);
+			if (c != '_') {
+				out.setCharAt(length++, c);
+				separator = false;
+			} else if (!separator) {
+				out.setCharAt(length++, ' ');
+				separator = true;
+			}
+		}
+		out.setLength(length);
+		return out.toString();
+	}
+
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private static boolean isUpper(char c) {
+		return c >= 'A' && c <= 'Z';
+	}
+
+	private static boolean isLower(char c) {
+		return c >= 'a' && c <= 'z';
+	}
+
+	private static void initEnglishRules() {
 		
-		Inflections inflect = INFLECTIONS_EN;
+		Inflections.Builder inflect = Inflections.builder();
 		
 		inflect.plural("$", "s");
 	    inflect.plural("s$", "s");
@@ -341,5 +850,7 @@ public final class Inflector {
 	    inflect.irregular("stadium", "stadiums");
 	    
 	    inflect.ignore("equipment information rice money species series fish sheep jeans police data".split(" "));
+	    
+	    INFLECTIONS_EN.add(inflect);
 	}
 }
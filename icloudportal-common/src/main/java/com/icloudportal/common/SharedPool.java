@@ -0,0 +1,37 @@
+package com.icloudportal.common;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link SharedPool}是本模块中并行任务（类路径扫描、批量的词形转换等）共用的线程池,
+ * 线程数量与处理器的数量相同, 在第一次使用时创建。线程是守护线程, 不会阻止虚拟机退出。<br>
+ * <br>
+ * 所有的调用者共用一个线程池, 同一个虚拟机中不会因为使用了多个功能而创建多组与处理器数量相同的线程。
+ * 线程池只以{@link Executor}的形式公开, 调用者不能关闭它。提交任务后等待结果的调用者应当
+ * 在当前线程中执行尚未开始的任务, 否则在线程池的线程中调用时可能因为没有空闲的线程而死锁。
+ *
+ */
+public final class SharedPool {
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	private static final Executor EXECUTOR = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			POOL.execute(command);
+		}
+	};
+
+	private SharedPool() {
+	}
+
+	/**
+	 * 返回共享的线程池。
+	 *
+	 * @return 执行任务的{@link Executor}
+	 */
+	public static Executor get() {
+		return EXECUTOR;
+	}
+}
@@ -0,0 +1,95 @@
+package com.icloudportal.common.reflections;
+
+import java.util.Arrays;
+
+/**
+ * {@link Adjacency}以CSR（压缩稀疏行）格式保存符号之间的边, 例如父类到子类、
+ * 注解到被注解的类。<br>
+ * <br>
+ * 编号为<code>i</code>的符号的所有目标保存在<code>targets[offsets[i]]</code>到
+ * <code>targets[offsets[i + 1]]</code>之间, 顺序与添加边的顺序一致。
+ * 整个结构只有两个<code>int</code>数组。
+ *
+ */
+final class Adjacency {
+
+	private final int[] offsets;
+	private final int[] targets;
+
+	private Adjacency(int[] offsets, int[] targets) {
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	/**
+	 * 返回给定符号的第一个目标在{@link #target(int)}中的位置。
+	 *
+	 * @param id
+	 *            符号编号
+	 * @return 开始位置
+	 */
+	public int start(int id) {
+		return id < 0 || id + 1 >= offsets.length ? 0 : offsets[id];
+	}
+
+	/**
+	 * 返回给定符号的最后一个目标之后的位置。
+	 *
+	 * @param id
+	 *            符号编号
+	 * @return 结束位置
+	 */
+	public int end(int id) {
+		return id < 0 || id + 1 >= offsets.length ? 0 : offsets[id + 1];
+	}
+
+	public int target(int index) {
+		return targets[index];
+	}
+
+	/**
+	 * 收集边, 最后按源符号排序生成{@link Adjacency}。
+	 *
+	 */
+	static final class Builder {
+
+		private int[] sources = new int[256];
+		private int[] targets = new int[256];
+		private int size;
+
+		public Builder add(int source, int target) {
+			if (size == sources.length) {
+				sources = Arrays.copyOf(sources, size << 1);
+				targets = Arrays.copyOf(targets, size << 1);
+			}
+			sources[size] = source;
+			targets[size] = target;
+			size++;
+			return this;
+		}
+
+		/**
+		 * 生成{@link Adjacency}。
+		 *
+		 * @param symbols
+		 *            符号的总数
+		 * @return 邻接表
+		 */
+		public Adjacency build(int symbols) {
+			final int[] offsets = new int[symbols + 1];
+			for (int i = 0; i < size; i++) {
+				offsets[sources[i] + 1]++;
+			}
+			for (int i = 0; i < symbols; i++) {
+				offsets[i + 1] += offsets[i];
+			}
+			// stable counting sort, keeps the insertion order of each source
+			final int[] next = Arrays.copyOf(offsets, symbols);
+			final int[] sorted = new int[size];
+			for (int i = 0; i < size; i++) {
+				sorted[next[sources[i]]++] = targets[i];
+			}
+			return new Adjacency(offsets, sorted);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package com.icloudportal.common.reflections;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.axelor.internal.asm.Type;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * {@link ClassDescriptor}是{@link ClassFinder}查找到的类的轻量描述, 数据直接来自
+ * 扫描时读取的字节码, 不会加载类。<br>
+ * <br>
+ * 只需要类名或者需要进一步过滤的调用者可以避免加载大量的类, 需要时再通过
+ * {@link #load()}加载。<br>
+ * <br>
+ * 注解的属性值以索引中的形式表示: 字符串和基本类型保持不变, 类为类名,
+ * 枚举为<code>枚举类名.常量名</code>, 数组为{@link List}。
+ *
+ */
+public final class ClassDescriptor {
+
+	private final String name;
+	private final Set<String> superNames;
+	private final Set<String> annotations;
+	private final Map<String, Map<String, Object>> attributes;
+	private final Set<String> metaAnnotations;
+	private final URL source;
+	private final ClassLoader loader;
+
+	ClassDescriptor(String name, Collection<String> superNames, Collection<String> annotations,
+			Map<String, Map<String, Object>> attributes, Set<String> metaAnnotations, URL source, ClassLoader loader) {
+		this.name = name;
+		this.superNames = superNames == null ? ImmutableSet.<String> of() : ImmutableSet.copyOf(superNames);
+		this.annotations = annotations == null ? ImmutableSet.<String> of() : ImmutableSet.copyOf(annotations);
+		this.attributes = attributes;
+		this.metaAnnotations = metaAnnotations;
+		this.source = source;
+		this.loader = loader;
+	}
+
+	/**
+	 * 返回类的全名。
+	 *
+	 * @return 类名
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 返回直接父类和实现的接口的类名。
+	 *
+	 * @return 类名集合
+	 */
+	public Set<String> getSuperNames() {
+		return superNames;
+	}
+
+	/**
+	 * 返回类上直接声明的注解的类名。
+	 *
+	 * @return 注解类名集合
+	 */
+	public Set<String> getAnnotations() {
+		return annotations;
+	}
+
+	/**
+	 * 检查类上是否直接声明了给定的注解。
+	 *
+	 * @param annotation
+	 *            要检查的注解
+	 * @return 声明了注解时返回true
+	 */
+	public boolean hasAnnotation(Class<? extends Annotation> annotation) {
+		return annotations.contains(annotation.getName());
+	}
+
+	/**
+	 * 检查类上是否直接声明了给定的注解, 并且注解的属性等于给定的值。没有显式给定的属性使用
+	 * 注解的默认值; 如果属性是数组而给定的值不是, 则检查数组是否包含此值。
+	 *
+	 * @param annotation
+	 *            要检查的注解
+	 * @param attribute
+	 *            属性名
+	 * @param value
+	 *            属性值, 可以是类、枚举或者数组
+	 * @return 注解存在并且属性值一致时返回true
+	 */
+	public boolean hasAnnotation(Class<? extends Annotation> annotation, String attribute, Object value) {
+		final Object actual = getAnnotationValue(annotation, attribute);
+		if (actual == null) {
+			return false;
+		}
+		final Object expected = toValue(value);
+		if (actual instanceof List && !(expected instanceof List)) {
+			return ((List<?>) actual).contains(expected);
+		}
+		return actual.equals(expected);
+	}
+
+	/**
+	 * 返回类上直接声明的注解的属性值（包括默认值）。
+	 *
+	 * @param annotation
+	 *            注解
+	 * @param attribute
+	 *            属性名
+	 * @return 属性值, 没有此注解或者属性时返回null
+	 */
+	public Object getAnnotationValue(Class<? extends Annotation> annotation, String attribute) {
+		final Map<String, Object> values = attributes.get(annotation.getName());
+		return values == null ? null : values.get(attribute);
+	}
+
+	/**
+	 * 返回类上的注解上直接和间接声明的注解（元注解）的类名。
+	 *
+	 * @return 元注解类名集合
+	 */
+	public Set<String> getMetaAnnotations() {
+		return metaAnnotations;
+	}
+
+	/**
+	 * 检查类上是否直接声明了给定的注解, 或者声明了以给定注解作为元注解的注解。
+	 *
+	 * @param annotation
+	 *            要检查的注解
+	 * @return 直接或者通过元注解使用了给定注解时返回true
+	 */
+	public boolean hasMetaAnnotation(Class<? extends Annotation> annotation) {
+		return annotations.contains(annotation.getName()) || metaAnnotations.contains(annotation.getName());
+	}
+
+	/**
+	 * 返回类文件所在的位置。
+	 *
+	 * @return 类文件的{@link URL}
+	 */
+	public URL getSource() {
+		return source;
+	}
+
+	/**
+	 * 加载（但不初始化）此类。
+	 *
+	 * @return 加载的类
+	 * @throws ClassNotFoundException
+	 *             类无法加载时抛出, 原因包含在异常中
+	 */
+	public Class<?> load() throws ClassNotFoundException {
+		try {
+			return Class.forName(name, false, loader);
+		} catch (LinkageError e) {
+			throw new ClassNotFoundException(name, e);
+		}
+	}
+
+	private static Object toValue(Object value) {
+		if (value instanceof Class) {
+			return Type.getType((Class<?>) value).getClassName();
+		}
+		if (value instanceof Enum) {
+			return ((Enum<?>) value).getDeclaringClass().getName() + "." + ((Enum<?>) value).name();
+		}
+		if (value != null && value.getClass().isArray()) {
+			final int length = Array.getLength(value);
+			final List<Object> items = Lists.newArrayListWithCapacity(length);
+			for (int i = 0; i < length; i++) {
+				items.add(toValue(Array.get(value, i)));
+			}
+			return items;
+		}
+		return value;
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj instanceof ClassDescriptor) {
+			return name.equals(((ClassDescriptor) obj).name);
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -1,11 +1,20 @@
 
 package com.icloudportal.common.reflections;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 /**
@@ -18,11 +27,14 @@ public final class ClassFinder<T> {
 	private ClassLoader loader;
 
 	private Set<Class<? extends Annotation>> annotations = Sets.newLinkedHashSet();
+	private List<Condition> conditions = Lists.newArrayList();
 	private Set<String> packages = Sets.newLinkedHashSet();
 	private Set<String> pathPatterns = Sets.newLinkedHashSet();
 
 	private boolean matchAll = true;
 
+	private Executor executor;
+
 	ClassFinder(Class<T> type, ClassLoader loader) {
 		this.type = type;
 		this.loader = loader;
@@ -33,7 +45,8 @@ public final class ClassFinder<T> {
 	}
 
 	/**
-	 * 通过给定URL模式进行查找。
+	 * 通过给定URL模式进行查找。模式是正则表达式, 以<code>glob:</code>开头时是glob模式, 例如
+	 * <code>glob:**&#47;lib/icloudportal-*.jar!/**</code>。
 	 *
 	 * @param pattern
 	 *            URL模式
@@ -69,6 +82,18 @@ public final class ClassFinder<T> {
 		return this;
 	}
 	
+	/**
+	 * 使用给定的{@link Executor}并行扫描类路径。
+	 * 
+	 * @param executor
+	 *            扫描所用的{@link Executor}
+	 * @return 类查找实例
+	 */
+	public ClassFinder<T> using(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
 	/**
 	 * 通过给定注解查找类。
 	 * 
@@ -81,6 +106,38 @@ public final class ClassFinder<T> {
 		return this;
 	}
 	
+	/**
+	 * 通过给定注解的属性值查找类。属性值直接在扫描索引上检查, 不会为了过滤而加载类;
+	 * 没有显式给定的属性使用注解的默认值。
+	 * 
+	 * @param annotation
+	 *            要检测的注解
+	 * @param attribute
+	 *            属性名
+	 * @param value
+	 *            属性值, 可以是类、枚举或者数组, 数组属性包含此值时也匹配
+	 * @return 类查找实例
+	 * @see ClassDescriptor#hasAnnotation(Class, String, Object)
+	 */
+	public ClassFinder<T> having(Class<? extends Annotation> annotation, String attribute, Object value) {
+		Preconditions.checkNotNull(attribute, "attribute must not be null");
+		this.conditions.add(new Condition(annotation, attribute, value));
+		return this;
+	}
+
+	/**
+	 * 通过给定的元注解查找类, 即直接使用此注解, 或者使用了以此注解（直接或者间接）
+	 * 注解的注解的类。元注解在扫描时解析, 不会为了过滤而加载类。
+	 * 
+	 * @param annotation
+	 *            要检测的元注解
+	 * @return 类查找实例
+	 */
+	public ClassFinder<T> havingMeta(Class<? extends Annotation> annotation) {
+		this.conditions.add(new Condition(annotation, null, null));
+		return this;
+	}
+	
 	/**
 	 * 当多次调用{@link #having(Class)}是, 是否只检测一个注解(默认是检测所有注解).
 	 * 
@@ -91,10 +148,32 @@ public final class ClassFinder<T> {
 		return this;
 	}
 	
-	private boolean hasAnnotation(Class<?> cls) {
+	/**
+	 * 检查给定的类是否满足条件。属性和元注解条件总是在索引上检查, 注解条件在
+	 * <code>loaded</code>不为null时使用加载的类检查, 只有需要时才会加载类。
+	 * 
+	 */
+	private boolean matches(ClassDescriptor descriptor, Supplier<Class<?>> loaded) {
 		boolean matched = false;
+		for (Condition condition : conditions) {
+			if (condition.apply(descriptor)) {
+				if (!matchAll) {
+					return true;
+				}
+				matched = true;
+			} else if (matchAll) {
+				return false;
+			}
+		}
 		for (Class<? extends Annotation> annotation : annotations) {
-			if (cls.isAnnotationPresent(annotation)) {
+			final boolean present;
+			if (loaded == null) {
+				present = descriptor.hasAnnotation(annotation);
+			} else {
+				final Class<?> cls = loaded.get();
+				present = cls != null && cls.isAnnotationPresent(annotation);
+			}
+			if (present) {
 				if (!matchAll) {
 					return true;
 				}
@@ -103,7 +182,41 @@ public final class ClassFinder<T> {
 				return false;
 			}
 		}
-		return annotations.size() == 0 || matched;
+		return (annotations.size() == 0 && conditions.size() == 0) || matched;
+	}
+
+	private ClassScanner createScanner() {
+		final ClassScanner scanner = new ClassScanner(loader, packages.toArray(new String[] {}));
+		if (executor != null) {
+			scanner.using(executor);
+		}
+
+		for (String pattern : pathPatterns) {
+			scanner.byURL(pattern);
+		}
+
+		if (Object.class == type && annotations.isEmpty() && conditions.isEmpty()) {
+			throw new IllegalStateException("please provide some annnotations.");
+		}
+		return scanner;
+	}
+
+	/**
+	 * 返回需要检查条件的类的描述。类型为Object时任何类都是其子类, 所以只从注解和条件的索引中
+	 * 收集候选的类, 之后与子类一样逐个检查所有条件。
+	 */
+	private Set<ClassDescriptor> candidates(ClassScanner scanner) {
+		if (Object.class != type) {
+			return scanner.getSubTypeDescriptors(type);
+		}
+		final Set<ClassDescriptor> candidates = Sets.newLinkedHashSet();
+		for (Class<?> a : annotations) {
+			candidates.addAll(scanner.getAnnotatedDescriptors(a));
+		}
+		for (Condition condition : conditions) {
+			Iterables.addAll(candidates, condition.find(scanner));
+		}
+		return candidates;
 	}
 
 	/**
@@ -111,32 +224,96 @@ public final class ClassFinder<T> {
 	 * 
 	 * @return 匹配的类的集合
 	 */
-	@SuppressWarnings("all")
 	public ImmutableSet<Class<? extends T>> find() {
 		final ImmutableSet.Builder<Class<? extends T>> builder = ImmutableSet.builder();
-		final ClassScanner scanner = new ClassScanner(loader, packages.toArray(new String[] {}));
+		final ClassScanner scanner = createScanner();
 
-		for (String pattern : pathPatterns) {
-			scanner.byURL(pattern);
+		for (final ClassDescriptor descriptor : candidates(scanner)) {
+			final Supplier<Class<?>> loaded = Suppliers.memoize(new Supplier<Class<?>>() {
+				@Override
+				public Class<?> get() {
+					return scanner.load(descriptor.getName());
+				}
+			});
+			if (matches(descriptor, loaded) && loaded.get() != null) {
+				builder.add(cast(loaded.get()));
+			}
 		}
+		return builder.build();
+	}
 
-		if (Object.class == type && annotations.isEmpty()) {
-			throw new IllegalStateException("please provide some annnotations.");
+	/**
+	 * 类型为Object时任何类都是其子类, 否则类是从{@link ClassScanner#getSubTypeDescriptors(Class)}
+	 * 中找到的, 因此这里的转换是安全的。
+	 */
+	@SuppressWarnings("unchecked")
+	private Class<? extends T> cast(Class<?> c) {
+		return (Class<? extends T>) c;
+	}
+
+	/**
+	 * 重新扫描类路径, 只读取新增的或者发生了变化的jar文件和目录。之后的{@link #find()}
+	 * 调用（包括其它以相同条件创建的{@link ClassFinder}）使用更新后的结果。
+	 * 
+	 * @return 与上一次扫描相比的变化
+	 */
+	public ScanDelta rescan() {
+		try {
+			return createScanner().rescan();
+		} catch (IOException e) {
+			throw Throwables.propagate(e);
 		}
-		if (Object.class == type) {
-			for (Class<?> a : annotations) {
-				for (Class<?> c : scanner.getTypesAnnotatedWith(a)) {
-					builder.add((Class) c);
-				}
+	}
+
+	/**
+	 * 查找类的描述。与{@link #find()}不同, 此方法不会加载任何类, 注解只匹配
+	 * 类上直接声明的注解。
+	 * 
+	 * @return 匹配的类的描述的集合
+	 */
+	public ImmutableSet<ClassDescriptor> findDescriptors() {
+		final ImmutableSet.Builder<ClassDescriptor> builder = ImmutableSet.builder();
+		final ClassScanner scanner = createScanner();
+
+		for (ClassDescriptor descriptor : candidates(scanner)) {
+			if (matches(descriptor, null)) {
+				builder.add(descriptor);
 			}
-			return builder.build();
 		}
-		final Set<Class<? extends T>> all = scanner.getSubTypesOf(type);
-		for (Class<? extends T> cls : all) {
-			if (hasAnnotation(cls)) {
-				builder.add(cls);
+		return builder.build();
+	}
+
+	/**
+	 * 在扫描索引上检查的注解属性或者元注解条件。
+	 * 
+	 */
+	private static final class Condition implements Predicate<ClassDescriptor> {
+
+		private final Class<? extends Annotation> annotation;
+		private final String attribute;
+		private final Object value;
+
+		Condition(Class<? extends Annotation> annotation, String attribute, Object value) {
+			this.annotation = Preconditions.checkNotNull(annotation, "annotation must not be null");
+			this.attribute = attribute;
+			this.value = value;
+		}
+
+		private boolean isMeta() {
+			return attribute == null;
+		}
+
+		@Override
+		public boolean apply(ClassDescriptor descriptor) {
+			return isMeta() ? descriptor.hasMetaAnnotation(annotation)
+					: descriptor.hasAnnotation(annotation, attribute, value);
+		}
+
+		Iterable<ClassDescriptor> find(ClassScanner scanner) {
+			if (isMeta()) {
+				return scanner.getMetaAnnotatedDescriptors(annotation);
 			}
+			return Iterables.filter(scanner.getAnnotatedDescriptors(annotation), this);
 		}
-		return builder.build();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,438 @@
+package com.icloudportal.common.reflections;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.icloudportal.common.reflections.ClassPathEntry.Fingerprint;
+import com.icloudportal.common.reflections.ClassScanner.Collector;
+
+/**
+ * {@link ClassIndex}是一个类路径条目扫描结果的二进制索引, 记录每个类的父类、
+ * 接口、注解及其属性值（注解类还记录属性的默认值）, 以及使用了注解的方法
+ * 和字段。<br>
+ * <br>
+ * 索引的格式如下（所有字符串都保存在符号表中, 以索引号引用）:
+ *
+ * <pre>
+ * int    magic, version
+ * string path
+ * long   size, lastModified, hash
+ * int    scope count, scope symbols...
+ * int    symbol count, symbols...
+ * int    class count, {name, stamp, super count, supers..., annotation count, annotations...,
+ *                     attributes count, {annotation, values}..., defaults values,
+ *                     member count, {kind, name, descriptor, annotation count, annotations...}...}...
+ * values: int count, {name, value}...
+ * value:  byte tag, 's' symbol | 'I' int | 'J' long | 'Z' boolean | 'B' byte | 'C' char
+ *                 | 'S' short | 'F' float | 'D' double | '[' int count, value...
+ * </pre>
+ *
+ * 同样的格式也用于构建时写入jar文件的索引（参见{@link ClassIndexer}）。
+ *
+ */
+final class ClassIndex {
+
+	/**
+	 * 构建时生成的索引在jar文件中的位置。
+	 */
+	static final String RESOURCE = "META-INF/icloudportal/class-index";
+
+	private static final int MAGIC = 0x49435049;
+	private static final int VERSION = 4;
+
+	private final String path;
+	private final Fingerprint fingerprint;
+	private final Set<String> scope;
+	private final Map<String, Collector> classes;
+
+	ClassIndex(String path, Fingerprint fingerprint, Set<String> scope, Map<String, Collector> classes) {
+		this.path = path;
+		this.fingerprint = fingerprint;
+		this.scope = ImmutableSet.copyOf(scope);
+		this.classes = classes;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public Fingerprint getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * 返回建立索引时所用的包名（为空表示整个条目）。
+	 *
+	 * @return 包名集合
+	 */
+	public Set<String> getScope() {
+		return scope;
+	}
+
+	public Map<String, Collector> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * 从给定的缓冲区读取索引。
+	 *
+	 * @param buffer
+	 *            包含索引数据的缓冲区
+	 * @return 索引
+	 * @throws IOException
+	 *             索引数据无效时抛出
+	 */
+	public static ClassIndex read(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("invalid class index");
+			}
+			final byte[] bytes = new byte[256];
+			final String path = readString(buffer, bytes);
+			final Fingerprint fingerprint = new Fingerprint(buffer.getLong(), buffer.getLong(), buffer.getLong());
+
+			final String[] scopes = new String[readCount(buffer)];
+			for (int i = 0; i < scopes.length; i++) {
+				scopes[i] = readString(buffer, bytes);
+			}
+
+			final String[] symbols = new String[readCount(buffer)];
+			for (int i = 0; i < symbols.length; i++) {
+				symbols[i] = readString(buffer, bytes);
+			}
+
+			final int count = readCount(buffer);
+			final Map<String, Collector> classes = Maps.newLinkedHashMap();
+			for (int i = 0; i < count; i++) {
+				final String name = symbols[buffer.getInt()];
+				final long stamp = buffer.getLong();
+				final Set<String> superNames = readSymbols(buffer, symbols);
+				final Set<String> annotations = readSymbols(buffer, symbols);
+				Map<String, Map<String, Object>> attributes = null;
+				final int attributeCount = readCount(buffer);
+				if (attributeCount > 0) {
+					attributes = Maps.newHashMapWithExpectedSize(attributeCount);
+					for (int j = 0; j < attributeCount; j++) {
+						attributes.put(symbols[buffer.getInt()], readValues(buffer, symbols));
+					}
+				}
+				final Map<String, Object> defaults = readValues(buffer, symbols);
+				final MemberTable members = readMembers(buffer, symbols);
+				classes.put(name, new Collector(superNames, annotations, attributes, defaults, members, stamp));
+			}
+			return new ClassIndex(path, fingerprint, Sets.newHashSet(scopes), classes);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("invalid class index", e);
+		}
+	}
+
+	/**
+	 * 只读取索引的头部（条目路径和指纹）, 返回的索引不包含类。
+	 *
+	 * @param buffer
+	 *            包含索引数据的缓冲区
+	 * @return 只有头部的索引
+	 * @throws IOException
+	 *             索引数据无效时抛出
+	 */
+	public static ClassIndex readHeader(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("invalid class index");
+			}
+			final String path = readString(buffer, new byte[256]);
+			final Fingerprint fingerprint = new Fingerprint(buffer.getLong(), buffer.getLong(), buffer.getLong());
+			return new ClassIndex(path, fingerprint, ImmutableSet.<String> of(), Maps.<String, Collector> newHashMap());
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("invalid class index", e);
+		}
+	}
+
+	private static String readString(ByteBuffer buffer, byte[] bytes) {
+		final int length = buffer.getShort() & 0xFFFF;
+		final byte[] target = length > bytes.length ? new byte[length] : bytes;
+		buffer.get(target, 0, length);
+		return new String(target, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 读取元素数量, 每个元素至少占一个字节, 因此数量不能超过剩余的字节数。
+	 */
+	private static int readCount(ByteBuffer buffer) throws IOException {
+		final int count = buffer.getInt();
+		if (count < 0 || count > buffer.remaining()) {
+			throw new IOException("invalid class index");
+		}
+		return count;
+	}
+
+	private static Set<String> readSymbols(ByteBuffer buffer, String[] symbols) throws IOException {
+		final int count = readCount(buffer);
+		if (count == 0) {
+			return null;
+		}
+		final Set<String> names = Sets.newHashSetWithExpectedSize(count);
+		for (int i = 0; i < count; i++) {
+			names.add(symbols[buffer.getInt()]);
+		}
+		return names;
+	}
+
+	private static MemberTable readMembers(ByteBuffer buffer, String[] symbols) throws IOException {
+		final int count = readCount(buffer);
+		final MemberTable.Builder builder = new MemberTable.Builder();
+		for (int i = 0; i < count; i++) {
+			final byte kind = buffer.get();
+			final String name = symbols[buffer.getInt()];
+			final String descriptor = symbols[buffer.getInt()];
+			final String[] annotations = new String[readCount(buffer)];
+			for (int j = 0; j < annotations.length; j++) {
+				annotations[j] = symbols[buffer.getInt()];
+			}
+			builder.add(kind, name, descriptor, Arrays.asList(annotations));
+		}
+		return builder.build();
+	}
+
+	private static Map<String, Object> readValues(ByteBuffer buffer, String[] symbols) throws IOException {
+		final int count = readCount(buffer);
+		if (count == 0) {
+			return null;
+		}
+		final Map<String, Object> values = Maps.newHashMapWithExpectedSize(count);
+		for (int i = 0; i < count; i++) {
+			values.put(symbols[buffer.getInt()], readValue(buffer, symbols));
+		}
+		return values;
+	}
+
+	private static Object readValue(ByteBuffer buffer, String[] symbols) throws IOException {
+		final byte tag = buffer.get();
+		switch (tag) {
+		case 's': return symbols[buffer.getInt()];
+		case 'I': return buffer.getInt();
+		case 'J': return buffer.getLong();
+		case 'Z': return buffer.get() != 0;
+		case 'B': return buffer.get();
+		case 'C': return buffer.getChar();
+		case 'S': return buffer.getShort();
+		case 'F': return buffer.getFloat();
+		case 'D': return buffer.getDouble();
+		case '[':
+			final int length = readCount(buffer);
+			final List<Object> items = Lists.newArrayListWithCapacity(length);
+			for (int i = 0; i < length; i++) {
+				items.add(readValue(buffer, symbols));
+			}
+			return items;
+		default:
+			throw new IOException("invalid value tag: " + tag);
+		}
+	}
+
+	/**
+	 * 将索引写入给定的输出流。
+	 *
+	 * @param stream
+	 *            输出流
+	 * @throws IOException
+	 *             写入时发生IO错误
+	 */
+	public void write(OutputStream stream) throws IOException {
+		final Map<String, Integer> symbols = Maps.newLinkedHashMap();
+		for (Map.Entry<String, Collector> item : classes.entrySet()) {
+			symbol(symbols, item.getKey());
+			symbols(symbols, item.getValue().getSuperNames());
+			symbols(symbols, item.getValue().getAnnotations());
+			final Map<String, Map<String, Object>> attributes = item.getValue().getAttributes();
+			if (attributes != null) {
+				for (Map.Entry<String, Map<String, Object>> values : attributes.entrySet()) {
+					symbol(symbols, values.getKey());
+					valueSymbols(symbols, values.getValue());
+				}
+			}
+			valueSymbols(symbols, item.getValue().getDefaults());
+			final MemberTable members = item.getValue().getMembers();
+			for (int i = 0; members != null && i < members.size(); i++) {
+				symbol(symbols, members.getName(i));
+				symbol(symbols, members.getDescriptor(i));
+				symbols(symbols, members.getAnnotations(i));
+			}
+		}
+
+		final DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, path);
+		out.writeLong(fingerprint.size);
+		out.writeLong(fingerprint.lastModified);
+		out.writeLong(fingerprint.hash);
+
+		out.writeInt(scope.size());
+		for (String name : scope) {
+			writeString(out, name);
+		}
+
+		out.writeInt(symbols.size());
+		for (String name : symbols.keySet()) {
+			writeString(out, name);
+		}
+
+		out.writeInt(classes.size());
+		for (Map.Entry<String, Collector> item : classes.entrySet()) {
+			out.writeInt(symbols.get(item.getKey()));
+			out.writeLong(item.getValue().getStamp());
+			writeSymbols(out, symbols, item.getValue().getSuperNames());
+			writeSymbols(out, symbols, item.getValue().getAnnotations());
+			final Map<String, Map<String, Object>> attributes = item.getValue().getAttributes();
+			if (attributes == null) {
+				out.writeInt(0);
+			} else {
+				out.writeInt(attributes.size());
+				for (Map.Entry<String, Map<String, Object>> values : attributes.entrySet()) {
+					out.writeInt(symbols.get(values.getKey()));
+					writeValues(out, symbols, values.getValue());
+				}
+			}
+			writeValues(out, symbols, item.getValue().getDefaults());
+			writeMembers(out, symbols, item.getValue().getMembers());
+		}
+		out.flush();
+	}
+
+	private static void symbol(Map<String, Integer> symbols, String name) {
+		if (!symbols.containsKey(name)) {
+			symbols.put(name, symbols.size());
+		}
+	}
+
+	private static void symbols(Map<String, Integer> symbols, Collection<String> names) {
+		if (names != null) {
+			for (String name : names) {
+				symbol(symbols, name);
+			}
+		}
+	}
+
+	private static void valueSymbols(Map<String, Integer> symbols, Map<String, Object> values) {
+		if (values != null) {
+			for (Map.Entry<String, Object> value : values.entrySet()) {
+				symbol(symbols, value.getKey());
+				valueSymbol(symbols, value.getValue());
+			}
+		}
+	}
+
+	private static void valueSymbol(Map<String, Integer> symbols, Object value) {
+		if (value instanceof String) {
+			symbol(symbols, (String) value);
+		} else if (value instanceof List) {
+			for (Object item : (List<?>) value) {
+				valueSymbol(symbols, item);
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF) {
+			throw new IOException("name too long: " + value);
+		}
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeSymbols(DataOutputStream out, Map<String, Integer> symbols, Collection<String> names)
+			throws IOException {
+		if (names == null) {
+			out.writeInt(0);
+			return;
+		}
+		out.writeInt(names.size());
+		for (String name : names) {
+			out.writeInt(symbols.get(name));
+		}
+	}
+
+	private static void writeMembers(DataOutputStream out, Map<String, Integer> symbols, MemberTable members)
+			throws IOException {
+		if (members == null) {
+			out.writeInt(0);
+			return;
+		}
+		out.writeInt(members.size());
+		for (int i = 0; i < members.size(); i++) {
+			out.writeByte(members.getKind(i));
+			out.writeInt(symbols.get(members.getName(i)));
+			out.writeInt(symbols.get(members.getDescriptor(i)));
+			writeSymbols(out, symbols, members.getAnnotations(i));
+		}
+	}
+
+	private static void writeValues(DataOutputStream out, Map<String, Integer> symbols, Map<String, Object> values)
+			throws IOException {
+		if (values == null) {
+			out.writeInt(0);
+			return;
+		}
+		out.writeInt(values.size());
+		for (Map.Entry<String, Object> value : values.entrySet()) {
+			out.writeInt(symbols.get(value.getKey()));
+			writeValue(out, symbols, value.getValue());
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Map<String, Integer> symbols, Object value)
+			throws IOException {
+		if (value instanceof String) {
+			out.writeByte('s');
+			out.writeInt(symbols.get(value));
+		} else if (value instanceof Integer) {
+			out.writeByte('I');
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte('J');
+			out.writeLong((Long) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte('Z');
+			out.writeByte((Boolean) value ? 1 : 0);
+		} else if (value instanceof Byte) {
+			out.writeByte('B');
+			out.writeByte((Byte) value);
+		} else if (value instanceof Character) {
+			out.writeByte('C');
+			out.writeChar((Character) value);
+		} else if (value instanceof Short) {
+			out.writeByte('S');
+			out.writeShort((Short) value);
+		} else if (value instanceof Float) {
+			out.writeByte('F');
+			out.writeFloat((Float) value);
+		} else if (value instanceof Double) {
+			out.writeByte('D');
+			out.writeDouble((Double) value);
+		} else if (value instanceof List) {
+			final List<?> items = (List<?>) value;
+			out.writeByte('[');
+			out.writeInt(items.size());
+			for (Object item : items) {
+				writeValue(out, symbols, item);
+			}
+		} else {
+			throw new IOException("unsupported annotation value: " + value);
+		}
+	}
+}
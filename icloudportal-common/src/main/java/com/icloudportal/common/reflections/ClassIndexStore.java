@@ -0,0 +1,295 @@
+package com.icloudportal.common.reflections;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.icloudportal.common.FileUtils;
+
+/**
+ * {@link ClassIndexStore}将类路径条目的{@link ClassIndex}保存在磁盘上,
+ * 以便JVM重新启动后不必再次扫描未发生变化的jar文件。<br>
+ * <br>
+ * 索引文件以条目路径、扫描的包名和URL模式为键, 读取时使用内存映射, 并通过条目的
+ * 大小、修改时间和哈希来检查索引是否仍然有效。<br>
+ * <br>
+ * 磁盘索引默认不启用, 通过系统属性<code>icloudportal.class.index</code>指定索引目录,
+ * 设置为<code>true</code>时使用<code>${user.home}/.icloudportal/class-index</code>。<br>
+ * <br>
+ * 每次保存索引后清理索引目录: 删除无法读取的索引、条目已不存在的索引和同一条目
+ * 指纹已经变化的索引; 索引文件超过{@link #MAX_FILES}个时删除最久未使用的。
+ * <br>
+ * 索引决定{@link ClassFinder}返回哪些类, 因此只使用当前用户拥有的、其他用户不能写入的索引目录和
+ * 索引文件; 索引目录创建时只允许当前用户访问。
+ *
+ */
+final class ClassIndexStore {
+
+	static final String STORE_PROPERTY = "icloudportal.class.index";
+
+	/**
+	 * 索引目录中保留的索引文件的最大数量。
+	 */
+	static final int MAX_FILES = 64;
+
+	private static final String SUFFIX = ".idx";
+	// magic, version, path, fingerprint
+	private static final int HEADER_SIZE = 4 + 4 + 2 + 0xFFFF + 8 * 3;
+	private static final Set<String> NO_SCOPE = ImmutableSet.of();
+
+	private final File directory;
+
+	ClassIndexStore(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * 返回由系统属性配置的默认索引存储。
+	 *
+	 * @return 索引存储, 如果没有启用则返回null
+	 */
+	public static ClassIndexStore getDefault() {
+		final String location = System.getProperty(STORE_PROPERTY);
+		if (location == null || location.trim().isEmpty() || "false".equalsIgnoreCase(location)) {
+			return null;
+		}
+		if ("true".equalsIgnoreCase(location)) {
+			return new ClassIndexStore(FileUtils.getFile(System.getProperty("user.home"), ".icloudportal", "class-index"));
+		}
+		return new ClassIndexStore(new File(location));
+	}
+
+	/**
+	 * 读取给定条目的索引。先查找以相同包名和URL模式建立的索引, 然后查找整个条目的索引。
+	 *
+	 * @param entry
+	 *            类路径条目
+	 * @param scope
+	 *            扫描的包名
+	 * @param patterns
+	 *            URL模式
+	 * @return 有效的索引, 没有找到或者条目已发生变化时返回null
+	 */
+	public ClassIndex load(ClassPathEntry entry, Set<String> scope, Set<String> patterns) {
+		ClassIndex index = load(entry, getFile(entry, scope, patterns));
+		if (index == null && !(scope.isEmpty() && patterns.isEmpty())) {
+			index = load(entry, getFile(entry, NO_SCOPE, NO_SCOPE));
+		}
+		return index;
+	}
+
+	private ClassIndex load(ClassPathEntry entry, File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			if (!isTrusted(directory.toPath()) || !isTrusted(file.toPath())) {
+				return null;
+			}
+			final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				final ClassIndex index = ClassIndex.read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+				if (index.getPath().equals(entry.getFile().getPath())
+						&& index.getFingerprint().equals(entry.getFingerprint())) {
+					// the modification time orders the files for pruning
+					file.setLastModified(System.currentTimeMillis());
+					return index;
+				}
+			} finally {
+				channel.close();
+			}
+		} catch (IOException | RuntimeException e) {
+			// 损坏的索引被忽略, 条目将重新扫描
+		}
+		return null;
+	}
+
+	/**
+	 * 保存给定的索引并清理索引目录。保存失败时将被忽略, 下次启动时会重新扫描。
+	 *
+	 * @param entry
+	 *            类路径条目
+	 * @param index
+	 *            要保存的索引
+	 * @param patterns
+	 *            建立索引时所用的URL模式
+	 */
+	public void save(ClassPathEntry entry, ClassIndex index, Set<String> patterns) {
+		final File target = getFile(entry, index.getScope(), patterns);
+		File temp = null;
+		try {
+			createDirectory();
+			if (!isTrusted(directory.toPath())) {
+				return;
+			}
+			temp = Files.createTempFile(directory.toPath(), target.getName(), ".tmp").toFile();
+			final OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp.toPath()));
+			try {
+				index.write(out);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(temp.toPath(), target.toPath(), ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), target.toPath(), REPLACE_EXISTING);
+			}
+			prune(index, target);
+		} catch (IOException e) {
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * 删除失效的索引文件, 并只保留最近使用的{@link #MAX_FILES}个。
+	 */
+	private void prune(ClassIndex index, File saved) {
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		final List<File> kept = Lists.newArrayList();
+		for (File file : files) {
+			if (!file.getName().endsWith(SUFFIX)) {
+				continue;
+			}
+			if (file.equals(saved) || !isStale(index, file)) {
+				kept.add(file);
+			} else {
+				file.delete();
+			}
+		}
+		if (kept.size() <= MAX_FILES) {
+			return;
+		}
+		final Map<File, Long> used = Maps.newHashMap();
+		for (File file : kept) {
+			used.put(file, file.lastModified());
+		}
+		Collections.sort(kept, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				return Long.compare(used.get(o2), used.get(o1));
+			}
+		});
+		for (File file : kept.subList(MAX_FILES, kept.size())) {
+			if (!file.equals(saved)) {
+				file.delete();
+			}
+		}
+	}
+
+	private static boolean isStale(ClassIndex saved, File file) {
+		final ClassIndex header;
+		try {
+			final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				// not mapped, so that the file can be deleted right away on Windows
+				final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), HEADER_SIZE));
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) < 0) {
+						break;
+					}
+				}
+				buffer.flip();
+				header = ClassIndex.readHeader(buffer);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException | RuntimeException e) {
+			return true;
+		}
+		if (!new File(header.getPath()).exists()) {
+			return true;
+		}
+		return header.getPath().equals(saved.getPath()) && !header.getFingerprint().equals(saved.getFingerprint());
+	}
+
+	private void createDirectory() throws IOException {
+		final Path path = directory.toPath();
+		if (Files.isDirectory(path)) {
+			return;
+		}
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			Files.createDirectories(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		} else {
+			Files.createDirectories(path);
+		}
+	}
+
+	/**
+	 * 检查文件或者目录是否为当前用户所有, 并且其他用户不能写入。
+	 */
+	private static boolean isTrusted(Path path) throws IOException {
+		final UserPrincipal user = CurrentUser.get();
+		if (user == null || !user.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS))) {
+			return false;
+		}
+		final PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class,
+				LinkOption.NOFOLLOW_LINKS);
+		if (view != null) {
+			final Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+			return !permissions.contains(PosixFilePermission.GROUP_WRITE)
+					&& !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+		}
+		return true;
+	}
+
+	private File getFile(ClassPathEntry entry, Set<String> scope, Set<String> patterns) {
+		final String key = entry.getFile().getPath() + "\n" + Joiner.on(',').join(ImmutableSortedSet.copyOf(scope))
+				+ "\n" + Joiner.on('\n').join(ImmutableSortedSet.copyOf(patterns));
+		return new File(directory, Hashing.sha1().hashString(key, StandardCharsets.UTF_8) + SUFFIX);
+	}
+
+	/**
+	 * 当前用户, 无法确定时为null。
+	 */
+	private static final class CurrentUser {
+
+		private static final UserPrincipal INSTANCE = lookup();
+
+		static UserPrincipal get() {
+			return INSTANCE;
+		}
+
+		private static UserPrincipal lookup() {
+			try {
+				return FileSystems.getDefault().getUserPrincipalLookupService()
+						.lookupPrincipalByName(System.getProperty("user.name"));
+			} catch (IOException | RuntimeException e) {
+				return null;
+			}
+		}
+	}
+}
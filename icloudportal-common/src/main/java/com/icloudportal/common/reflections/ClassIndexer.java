@@ -0,0 +1,90 @@
+package com.icloudportal.common.reflections;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.icloudportal.common.reflections.ClassPathEntry.ClassHandler;
+import com.icloudportal.common.reflections.ClassPathEntry.Fingerprint;
+import com.icloudportal.common.reflections.ClassScanner.Collector;
+
+/**
+ * {@link ClassIndexer}在构建时为编译输出目录生成类索引, 索引打包到jar文件的
+ * {@value ClassIndex#RESOURCE}后, 运行时{@link ClassFinder}将直接读取索引,
+ * 而不必再使用ASM扫描jar文件中的每一个类。<br>
+ * <br>
+ * 用法:
+ *
+ * <pre>
+ * java com.icloudportal.common.reflections.ClassIndexer &lt;classes-dir&gt; &lt;index-file&gt;
+ * </pre>
+ *
+ */
+public final class ClassIndexer {
+
+	private ClassIndexer() {
+	}
+
+	/**
+	 * 扫描给定目录中的所有顶层类并生成索引文件。
+	 *
+	 * @param classes
+	 *            编译输出目录
+	 * @param target
+	 *            要生成的索引文件
+	 * @return 索引中类的数量
+	 * @throws IOException
+	 *             扫描或者写入时发生IO错误
+	 */
+	public static int index(File classes, File target) throws IOException {
+		final Map<String, Collector> collectors = Maps.newTreeMap();
+		if (classes.isDirectory()) {
+			ClassPathEntry.of(classes).scan(new ClassHandler() {
+
+				@Override
+				public boolean acceptPackage(String path) {
+					return true;
+				}
+
+				@Override
+				public boolean accept(String resourceName) {
+					return true;
+				}
+
+				@Override
+				public void handle(String type, byte[] bytes, int length) {
+					collectors.put(type, ClassScanner.collect(bytes, length));
+				}
+
+				@Override
+				public void failed(String type, IOException error) {
+					throw new IllegalStateException("unable to read class: " + type, error);
+				}
+			});
+		}
+
+		final ClassIndex index = new ClassIndex("", new Fingerprint(0, 0, 0), ImmutableSet.<String> of(), collectors);
+		Files.createDirectories(target.getAbsoluteFile().getParentFile().toPath());
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+		try {
+			index.write(out);
+		} finally {
+			out.close();
+		}
+		return collectors.size();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args == null || args.length != 2) {
+			System.err.println("usage: ClassIndexer <classes-dir> <index-file>");
+			System.exit(1);
+		}
+		index(new File(args[0]), new File(args[1]));
+	}
+}
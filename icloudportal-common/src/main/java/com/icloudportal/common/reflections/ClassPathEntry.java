@@ -0,0 +1,573 @@
+package com.icloudportal.common.reflections;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * {@link ClassPathEntry}表示类路径上的一个jar文件或者目录。<br>
+ * <br>
+ * 类路径条目的顺序与{@link ClassLoader}查找类的顺序一致（父加载器优先），
+ * 同名的类以先出现的条目为准。
+ *
+ */
+final class ClassPathEntry {
+
+	/**
+	 * 设置为<code>true</code>时, 条目的指纹还包括内容的哈希, 用于修改时间不可靠的环境。
+	 */
+	static final String HASH_PROPERTY = "icloudportal.class.hash";
+
+	private static final String CLASS_SUFFIX = ".class";
+	private static final String META_INF = "META-INF/";
+	private static final boolean CONTENT_HASH = Boolean.getBoolean(HASH_PROPERTY);
+
+	private final File file;
+	private final File location;
+	private final boolean jar;
+
+	private Fingerprint fingerprint;
+	private URL base;
+
+	/**
+	 * @param file
+	 *            规范化的文件, 用于去重以及作为缓存和索引的键
+	 * @param location
+	 *            {@link ClassLoader}使用的文件, 资源的URL基于此文件, 可能经过符号链接
+	 */
+	private ClassPathEntry(File file, File location) {
+		this.file = file;
+		this.location = location;
+		this.jar = file.isFile();
+	}
+
+	/**
+	 * 为给定的jar文件或者目录创建类路径条目。
+	 *
+	 * @param file
+	 *            jar文件或者目录
+	 * @return 类路径条目
+	 */
+	public static ClassPathEntry of(File file) {
+		final File location = file.getAbsoluteFile();
+		return new ClassPathEntry(location, location);
+	}
+
+	/**
+	 * 返回给定{@link ClassLoader}及其父加载器的所有类路径条目。
+	 *
+	 * @param loader
+	 *            要查找的{@link ClassLoader}
+	 * @return 类路径条目清单
+	 */
+	public static ImmutableList<ClassPathEntry> of(ClassLoader loader) {
+		final Map<File, ClassPathEntry> entries = Maps.newLinkedHashMap();
+		final List<ClassLoader> loaders = Lists.newArrayList();
+		for (ClassLoader cl = loader; cl != null; cl = cl.getParent()) {
+			loaders.add(0, cl);
+		}
+		for (ClassLoader cl : loaders) {
+			if (!(cl instanceof URLClassLoader)) {
+				continue;
+			}
+			for (URL url : ((URLClassLoader) cl).getURLs()) {
+				add(entries, toFile(url));
+			}
+		}
+		if (entries.isEmpty()) {
+			for (String path : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(
+					System.getProperty("java.class.path", ""))) {
+				add(entries, new File(path));
+			}
+		}
+		return ImmutableList.copyOf(entries.values());
+	}
+
+	private static void add(Map<File, ClassPathEntry> entries, File location) {
+		if (location == null || !location.exists()) {
+			return;
+		}
+		location = location.getAbsoluteFile();
+		File file;
+		try {
+			file = location.getCanonicalFile();
+		} catch (IOException e) {
+			file = location;
+		}
+		if (entries.containsKey(file)) {
+			return;
+		}
+		final ClassPathEntry entry = new ClassPathEntry(file, location);
+		entries.put(file, entry);
+		if (entry.jar) {
+			for (File next : entry.getManifestClassPath()) {
+				add(entries, next);
+			}
+		}
+	}
+
+	private static File toFile(URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return new File(url.getPath());
+		}
+	}
+
+	private Set<File> getManifestClassPath() {
+		final Set<File> files = Sets.newLinkedHashSet();
+		try {
+			final JarFile jarFile = new JarFile(file);
+			try {
+				final Manifest manifest = jarFile.getManifest();
+				final String classPath = manifest == null ? null
+						: manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+				if (classPath == null) {
+					return files;
+				}
+				final URL base = location.toURI().toURL();
+				for (String path : Splitter.on(' ').omitEmptyStrings().split(classPath)) {
+					try {
+						File next = toFile(new URL(base, path));
+						if (next != null) {
+							files.add(next);
+						}
+					} catch (MalformedURLException e) {
+					}
+				}
+			} finally {
+				jarFile.close();
+			}
+		} catch (IOException e) {
+		}
+		return files;
+	}
+
+	/**
+	 * 返回规范化的jar文件或者目录, 经过符号链接的类路径与链接目标是同一个条目。
+	 *
+	 * @return 规范化的文件
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	public boolean isJar() {
+		return jar;
+	}
+
+	/**
+	 * 返回此条目中给定资源的{@link URL}, 其格式与
+	 * {@link ClassLoader#getResource(String)}返回的一致。
+	 *
+	 * @param resourceName
+	 *            资源名称, 例如<code>com/example/Foo.class</code>
+	 * @return 资源的{@link URL}
+	 * @throws MalformedURLException
+	 *             无法创建URL时抛出
+	 */
+	public URL getResource(String resourceName) throws MalformedURLException {
+		return new URL(getBase(), resourceName);
+	}
+
+	/**
+	 * 返回此条目中给定资源的{@link URL#getFile()}, 不创建{@link URL}对象。
+	 *
+	 * @param resourceName
+	 *            资源名称
+	 * @return 资源URL的文件部分
+	 * @throws MalformedURLException
+	 *             无法创建URL时抛出
+	 */
+	public String getResourceFile(String resourceName) throws MalformedURLException {
+		return getBase().getFile() + resourceName;
+	}
+
+	private URL getBase() throws MalformedURLException {
+		if (base == null) {
+			final URL url = location.toURI().toURL();
+			base = jar ? new URL("jar:" + url + "!/") : url;
+		}
+		return base;
+	}
+
+	/**
+	 * 读取jar文件中构建时生成的索引（{@value ClassIndex#RESOURCE}）。
+	 *
+	 * @return 索引, 如果不是jar文件或者没有索引则返回null
+	 * @throws IOException
+	 *             读取索引时发生IO错误
+	 */
+	public ClassIndex getBuiltIndex() throws IOException {
+		if (!jar) {
+			return null;
+		}
+		final JarFile jarFile = new JarFile(file);
+		try {
+			final JarEntry item = jarFile.getJarEntry(ClassIndex.RESOURCE);
+			if (item == null) {
+				return null;
+			}
+			final InputStream stream = jarFile.getInputStream(item);
+			try {
+				return ClassIndex.read(ByteBuffer.wrap(ByteStreams.toByteArray(stream)));
+			} finally {
+				stream.close();
+			}
+		} finally {
+			jarFile.close();
+		}
+	}
+
+	/**
+	 * 按顺序读取此条目中所有顶层类（不包括内部类）的字节码。<br>
+	 * <br>
+	 * jar文件只打开一次, 所有类的字节码都读入同一个可重用的缓冲区, 因此
+	 * {@link ClassHandler#handle(String, byte[], int)}返回后缓冲区的内容即失效。
+	 *
+	 * @param handler
+	 *            处理类字节码的回调
+	 * @throws IOException
+	 *             打开条目时发生IO错误
+	 */
+	public void scan(ClassHandler handler) throws IOException {
+		final Buffer buffer = new Buffer();
+		if (jar) {
+			final JarFile jarFile = new JarFile(file, false);
+			try {
+				final Enumeration<JarEntry> items = jarFile.entries();
+				while (items.hasMoreElements()) {
+					final JarEntry item = items.nextElement();
+					final String name = item.getName();
+					if (item.isDirectory() || !isClass(name) || !handler.accept(name)) {
+						continue;
+					}
+					final String type = toClassName(name);
+					try {
+						final InputStream stream = jarFile.getInputStream(item);
+						try {
+							final int length = buffer.read(stream, item.getSize());
+							handler.handle(type, buffer.bytes, length);
+						} finally {
+							stream.close();
+						}
+					} catch (IOException e) {
+						handler.failed(type, e);
+					}
+				}
+			} finally {
+				jarFile.close();
+			}
+		} else {
+			scan(handler, buffer, file, "", Sets.<File> newHashSet());
+		}
+	}
+
+	private static void scan(ClassHandler handler, Buffer buffer, File dir, String prefix, Set<File> visited) {
+		if (!visit(visited, dir)) {
+			return;
+		}
+		final File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File child : files) {
+			if (child.isDirectory()) {
+				final String path = prefix + child.getName() + "/";
+				if (handler.acceptPackage(path)) {
+					scan(handler, buffer, child, path, visited);
+				}
+				continue;
+			}
+			final String name = prefix + child.getName();
+			if (!isClass(name) || !handler.accept(name)) {
+				continue;
+			}
+			final String type = toClassName(name);
+			try {
+				final InputStream stream = new FileInputStream(child);
+				try {
+					final int length = buffer.read(stream, child.length());
+					handler.handle(type, buffer.bytes, length);
+				} finally {
+					stream.close();
+				}
+			} catch (IOException e) {
+				handler.failed(type, e);
+			}
+		}
+	}
+
+	/**
+	 * 返回此条目中所有资源（包括类文件, 不包括目录和<code>META-INF/MANIFEST.MF</code>）的名称。
+	 *
+	 * @return 资源名称清单, 例如<code>META-INF/persistence.xml</code>
+	 * @throws IOException
+	 *             打开条目时发生IO错误
+	 */
+	public List<String> getResourceNames() throws IOException {
+		final List<String> names = Lists.newArrayList();
+		if (jar) {
+			final JarFile jarFile = new JarFile(file, false);
+			try {
+				final Enumeration<JarEntry> items = jarFile.entries();
+				while (items.hasMoreElements()) {
+					final JarEntry item = items.nextElement();
+					if (!item.isDirectory() && !JarFile.MANIFEST_NAME.equals(item.getName())) {
+						names.add(item.getName());
+					}
+				}
+			} finally {
+				jarFile.close();
+			}
+		} else {
+			listResources(names, file, "", Sets.<File> newHashSet());
+		}
+		return names;
+	}
+
+	private static void listResources(List<String> names, File dir, String prefix, Set<File> visited)
+			throws IOException {
+		// guard against symbolic link cycles
+		if (!visited.add(dir.getCanonicalFile())) {
+			return;
+		}
+		final File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File child : files) {
+			final String name = prefix + child.getName();
+			if (child.isDirectory()) {
+				listResources(names, child, name + "/", visited);
+			} else if (!JarFile.MANIFEST_NAME.equals(name)) {
+				names.add(name);
+			}
+		}
+	}
+
+	/**
+	 * 记录已经遍历的目录, 目录已经遍历过（符号链接形成了循环）或者无法访问时返回false。
+	 */
+	private static boolean visit(Set<File> visited, File dir) {
+		try {
+			return visited.add(dir.getCanonicalFile());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static boolean isClass(String resourceName) {
+		return resourceName.endsWith(CLASS_SUFFIX) && !resourceName.startsWith(META_INF)
+				&& resourceName.indexOf('$') == -1;
+	}
+
+	private static String toClassName(String resourceName) {
+		return resourceName.substring(0, resourceName.length() - CLASS_SUFFIX.length()).replace('/', '.');
+	}
+
+	/**
+	 * 返回此条目的指纹, 用来判断条目自上次扫描以来是否发生了变化。<br>
+	 * <br>
+	 * 对于jar文件使用文件大小和修改时间；对于目录则汇总其中所有类文件的
+	 * 相对路径、大小和修改时间。如果设置了系统属性{@value #HASH_PROPERTY},
+	 * 还会计算jar文件或者类文件内容的哈希。
+	 *
+	 * @return 条目的指纹
+	 */
+	public Fingerprint getFingerprint() {
+		if (fingerprint == null) {
+			fingerprint = jar
+					? new Fingerprint(file.length(), file.lastModified(), CONTENT_HASH ? contentHash(file) : 0L)
+					: directoryFingerprint();
+		}
+		return fingerprint;
+	}
+
+	private static long contentHash(File file) {
+		try {
+			return Files.hash(file, Hashing.murmur3_128()).asLong();
+		} catch (IOException e) {
+			// unreadable, never equal to a previous fingerprint
+			return System.nanoTime();
+		}
+	}
+
+	private Fingerprint directoryFingerprint() {
+		final long[] state = new long[3];
+		fingerprint(state, file, "", Sets.<File> newHashSet());
+		return new Fingerprint(state[0], state[1], state[2]);
+	}
+
+	private static void fingerprint(long[] state, File dir, String prefix, Set<File> visited) {
+		if (!visit(visited, dir)) {
+			return;
+		}
+		final File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File child : files) {
+			final String name = prefix + child.getName();
+			if (child.isDirectory()) {
+				fingerprint(state, child, name + "/", visited);
+			} else if (name.endsWith(CLASS_SUFFIX)) {
+				final long size = child.length();
+				final long time = child.lastModified();
+				state[0] += size;
+				state[1] = Math.max(state[1], time);
+				// order independent, so that listing order doesn't matter
+				state[2] += ((name.hashCode() * 31L + size) * 31L + time) * 31L + (CONTENT_HASH ? contentHash(child) : 0L);
+			}
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return file.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj instanceof ClassPathEntry) {
+			return file.equals(((ClassPathEntry) obj).file);
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return file.getPath();
+	}
+
+	/**
+	 * 处理{@link ClassPathEntry#scan(ClassHandler)}读取的类的回调。
+	 *
+	 */
+	interface ClassHandler {
+
+		/**
+		 * 是否需要扫描给定的目录（只用于目录条目）。
+		 *
+		 * @param path
+		 *            以<code>/</code>结尾的目录路径
+		 * @return 需要扫描时返回true
+		 */
+		boolean acceptPackage(String path);
+
+		/**
+		 * 是否需要读取给定类的字节码。
+		 *
+		 * @param resourceName
+		 *            类文件的资源名称, 例如<code>com/example/Foo.class</code>
+		 * @return 需要读取时返回true
+		 */
+		boolean accept(String resourceName);
+
+		/**
+		 * 处理给定类的字节码。
+		 *
+		 * @param type
+		 *            类名
+		 * @param bytes
+		 *            包含字节码的缓冲区（从0开始）
+		 * @param length
+		 *            字节码的长度
+		 */
+		void handle(String type, byte[] bytes, int length);
+
+		/**
+		 * 读取给定类的字节码失败。
+		 *
+		 * @param type
+		 *            类名
+		 * @param error
+		 *            IO错误
+		 */
+		void failed(String type, IOException error);
+	}
+
+	/**
+	 * 可重用的读取缓冲区, 只在需要时扩大。
+	 *
+	 */
+	private static final class Buffer {
+
+		byte[] bytes = new byte[8192];
+
+		int read(InputStream stream, long size) throws IOException {
+			if (size > bytes.length) {
+				bytes = new byte[Integer.highestOneBit((int) size) << 1];
+			}
+			int length = 0;
+			int count;
+			while ((count = stream.read(bytes, length, bytes.length - length)) != -1) {
+				length += count;
+				if (length == bytes.length) {
+					bytes = Arrays.copyOf(bytes, bytes.length << 1);
+				}
+			}
+			return length;
+		}
+	}
+
+	/**
+	 * 类路径条目的指纹（大小、修改时间和哈希）。
+	 *
+	 */
+	static final class Fingerprint {
+
+		final long size;
+		final long lastModified;
+		final long hash;
+
+		Fingerprint(long size, long lastModified, long hash) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (size ^ lastModified ^ hash);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) return true;
+			if (obj instanceof Fingerprint) {
+				final Fingerprint other = (Fingerprint) obj;
+				return size == other.size && lastModified == other.lastModified && hash == other.hash;
+			}
+			return false;
+		}
+	}
+}
@@ -2,45 +2,85 @@
 package com.icloudportal.common.reflections;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Array;
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.axelor.internal.asm.AnnotationVisitor;
 import com.axelor.internal.asm.ClassReader;
 import com.axelor.internal.asm.ClassVisitor;
+import com.axelor.internal.asm.FieldVisitor;
+import com.axelor.internal.asm.MethodVisitor;
 import com.axelor.internal.asm.Opcodes;
+import com.axelor.internal.asm.Type;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.reflect.ClassPath;
-import com.google.common.reflect.ClassPath.ClassInfo;
+import com.icloudportal.common.SharedPool;
+import com.icloudportal.common.reflections.ClassPathEntry.ClassHandler;
+import com.icloudportal.common.reflections.ClassPathEntry.Fingerprint;
+import com.icloudportal.common.reflections.ScanSnapshot.EntryScan;
 
 /**
- * {@link ClassScanner}使用ASM和guava的ClassPath API查询基于父类或者注解的类
+ * {@link ClassScanner}使用ASM扫描类路径条目, 查询基于父类或者注解的类。<br>
+ * <br>
+ * 包含构建时索引（{@value ClassIndex#RESOURCE}）的jar文件直接读取索引而不再扫描。
+ * 其它条目的扫描结果可以通过{@link ClassIndexStore}保存在磁盘上（需要通过系统属性启用）,
+ * JVM重新启动后只有发生变化的条目才会被重新扫描。<br>
+ * <br>
+ * 扫描结果（{@link ScanSnapshot}）由{@link ScanCache}在进程范围内共享,
+ * 相同的类加载器、包名和URL模式只会扫描一次。每个类路径条目作为一个任务
+ * 在共享的{@link SharedPool}（或者调用者给定的{@link Executor}）中并行扫描,
+ * 调用者的线程也执行尚未开始的任务。<br>
+ * <br>
+ * 快照保留每个条目的指纹和扫描结果, {@link #rescan()}只重新读取发生了变化的条目。
  * 
  */
 final class ClassScanner {
 
 	private static final int ASM_FLAGS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
 	private static final String IGNORE_OBJECT = "java/lang/Object";
+	private static final String OBJECT_RESOURCE = "java/lang/Object.class";
+	private static final String META_ANNOTATIONS = "java.lang.annotation.";
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClassScanner.class);
 	
 	private ClassLoader loader;
 	
-	private Map<String, Collector> collectors = Maps.newConcurrentMap();
 	private Set<String> packages = Sets.newLinkedHashSet();
-	private Set<Pattern> pathPatterns = Sets.newLinkedHashSet();
+	private Set<String> pathPatterns = Sets.newLinkedHashSet();
+	private PatternSet urlPatterns = PatternSet.compile(pathPatterns, false);
+	private PackageFilter filter;
+
+	private ClassIndexStore store = ClassIndexStore.getDefault();
+
+	private Executor executor;
+
+	private ScanSnapshot snapshot;
 
 	/**
 	 * 用户给定的{@link ClassLoader}创建一个 {@link ClassScanner} 实例<br>
@@ -59,10 +99,11 @@ final class ClassScanner {
 				this.packages.add(name);
 			}
 		}
+		this.filter = new PackageFilter(this.packages);
 	}
 	
 	/**
-	 * 通过给定URL模式进行查找
+	 * 通过给定URL模式进行查找, 以<code>glob:</code>开头的模式是glob模式。
 	 *
 	 * @param pattern
 	 *           URL模式
@@ -70,7 +111,21 @@ final class ClassScanner {
 	 */
 	public ClassScanner byURL(String pattern) {
 		Preconditions.checkNotNull(pattern, "pattern must not be null");
-		pathPatterns.add(Pattern.compile(pattern));
+		pathPatterns.add(pattern);
+		urlPatterns = PatternSet.compile(pathPatterns, false);
+		return this;
+	}
+
+	/**
+	 * 使用给定的{@link Executor}并行扫描类路径条目（默认使用共享的
+	 * {@link SharedPool}）。
+	 *
+	 * @param executor
+	 *            扫描所用的{@link Executor}
+	 * @return 类扫描实例
+	 */
+	public ClassScanner using(Executor executor) {
+		this.executor = executor;
 		return this;
 	}
 
@@ -86,10 +141,9 @@ final class ClassScanner {
 		}
 		
 		for (String sub : types) {
-			try {
-				Class<?> found = loader.loadClass(sub);
+			Class<?> found = load(sub);
+			if (found != null) {
 				builder.add((Class) found);
-			} catch (Throwable e) {
 			}
 		}
 		return builder.build();
@@ -98,165 +152,764 @@ final class ClassScanner {
 	public ImmutableSet<Class<?>> getTypesAnnotatedWith(Class<?> annotation) {
 		ImmutableSet.Builder<Class<?>> builder = ImmutableSet.builder();
 		
-		if (collectors.isEmpty()) {
-			try {
-				scan();
-			} catch (IOException e) {
-				throw Throwables.propagate(e);
+		for (String klass : getSnapshotUnchecked().getTypesAnnotatedWith(annotation.getName())) {
+			Class<?> found = load(klass);
+			if (found != null) {
+				builder.add(found);
 			}
 		}
+		return builder.build();
+	}
+
+	/**
+	 * 返回给定类的所有子类的描述, 不会加载任何类。
+	 *
+	 * @param type
+	 *            父类
+	 * @return 子类描述的集合
+	 */
+	public ImmutableSet<ClassDescriptor> getSubTypeDescriptors(Class<?> type) {
+		final ScanSnapshot snapshot = getSnapshotUnchecked();
+		return describe(snapshot, snapshot.getSubTypesOf(type.getName()));
+	}
+
+	/**
+	 * 返回使用给定注解的类的描述, 不会加载任何类。
+	 *
+	 * @param annotation
+	 *            注解
+	 * @return 类描述的集合
+	 */
+	public ImmutableSet<ClassDescriptor> getAnnotatedDescriptors(Class<?> annotation) {
+		final ScanSnapshot snapshot = getSnapshotUnchecked();
+		return describe(snapshot, snapshot.getTypesAnnotatedWith(annotation.getName()));
+	}
 
-		for (String klass : collectors.keySet()) {
-			Set<String> my = collectors.get(klass).annotations;
-			if (my == null) {
+	/**
+	 * 返回直接或者通过元注解使用给定注解的类的描述, 不会加载任何类。
+	 *
+	 * @param annotation
+	 *            注解
+	 * @return 类描述的集合
+	 */
+	public ImmutableSet<ClassDescriptor> getMetaAnnotatedDescriptors(Class<?> annotation) {
+		final ScanSnapshot snapshot = getSnapshotUnchecked();
+		return describe(snapshot, snapshot.getTypesMetaAnnotatedWith(annotation.getName()));
+	}
+
+	/**
+	 * 返回扫描的包中使用了给定注解的方法或者字段的描述, 不会加载任何类。
+	 *
+	 * @param annotation
+	 *            注解
+	 * @param kind
+	 *            {@link MemberTable#METHOD}或者{@link MemberTable#FIELD}
+	 * @return 成员描述的集合
+	 */
+	public ImmutableSet<MemberDescriptor> getMemberDescriptors(Class<?> annotation, byte kind) {
+		final ScanSnapshot snapshot = getSnapshotUnchecked();
+		final ImmutableSet.Builder<MemberDescriptor> builder = ImmutableSet.builder();
+		for (String type : snapshot.getTypesWithMembersAnnotatedWith(annotation.getName())) {
+			// super types resolved outside the scanned packages don't count
+			if (!isAccepted(type)) {
 				continue;
 			}
-			if (my.contains(annotation.getName())) {
-				try {
-					builder.add(loader.loadClass(klass));
-				} catch (Throwable e) {
+			final MemberTable members = snapshot.getCollector(type).members;
+			for (int i = 0; i < members.size(); i++) {
+				if (members.getKind(i) == kind && members.hasAnnotation(i, annotation.getName())) {
+					builder.add(new MemberDescriptor(type, members, i, snapshot.getSource(type), loader));
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	private ImmutableSet<ClassDescriptor> describe(ScanSnapshot snapshot, Set<String> types) {
+		final ImmutableSet.Builder<ClassDescriptor> builder = ImmutableSet.builder();
+		for (String type : types) {
+			final Collector collector = snapshot.getCollector(type);
+			final Map<String, Map<String, Object>> attributes = Maps.newHashMap();
+			final Set<String> metas = Sets.newLinkedHashSet();
+			if (collector.annotations != null) {
+				for (String annotation : collector.annotations) {
+					final Map<String, Object> values = Maps.newHashMap(snapshot.getDefaults(annotation));
+					if (collector.attributes != null && collector.attributes.containsKey(annotation)) {
+						values.putAll(collector.attributes.get(annotation));
+					}
+					attributes.put(annotation, values);
+					metas.addAll(snapshot.getMetaAnnotations(annotation));
 				}
 			}
+			builder.add(new ClassDescriptor(type, collector.getSuperNames(), collector.getAnnotations(), attributes,
+					ImmutableSet.copyOf(metas), snapshot.getSource(type), loader));
 		}
 		return builder.build();
 	}
+
+	Class<?> load(String type) {
+		try {
+			return loader.loadClass(type);
+		} catch (Throwable e) {
+			LOG.warn("Unable to load class {}: {}", type, e.toString());
+		}
+		return null;
+	}
 	
 	private Set<String> getSubTypesOf(String type) throws IOException {
+		return getSnapshot().getSubTypesOf(type);
+	}
 
-		Set<String> types = Sets.newHashSet();
+	private ScanSnapshot getSnapshotUnchecked() {
+		try {
+			return getSnapshot();
+		} catch (IOException e) {
+			throw Throwables.propagate(e);
+		}
+	}
 
-		if (collectors.isEmpty()) {
-			scan();
+	private synchronized ScanSnapshot getSnapshot() throws IOException {
+		if (snapshot != null) {
+			return snapshot;
 		}
-		
-		for (String klass : collectors.keySet()) {
-			Set<String> my = collectors.get(klass).superNames;
-			if (my == null) {
-				continue;
-			}
-			if (my.contains(type)) {
-				types.add(klass);
-				types.addAll(getSubTypesOf(klass));
+		final Callable<ScanSnapshot> scanner = new Callable<ScanSnapshot>() {
+			@Override
+			public ScanSnapshot call() throws Exception {
+				return scan();
 			}
+		};
+		if (loader == null) {
+			return snapshot = scan();
 		}
-		
-		return types;
+		return snapshot = ScanCache.get(loader, packages, getPatterns(), scanner);
 	}
 	
-	private void scan() throws IOException {
-		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-		List<Future<?>> futures = Lists.newArrayList();
-		Set<ClassInfo> infos = Sets.newHashSet();
-		
-		if (packages.isEmpty()) {
-			infos = ClassPath.from(loader).getTopLevelClasses();
-		} else {
-			for (String pkg : packages) {
-				infos.addAll(ClassPath.from(loader).getTopLevelClassesRecursive(pkg));
+	/**
+	 * 重新扫描类路径。与上一次快照相比, 只有新增的或者指纹发生了变化的条目才会被重新读取,
+	 * 已经删除的条目从结果中去掉。新的快照会替换缓存中的快照。
+	 *
+	 * @return 与上一次快照相比的变化
+	 * @throws IOException
+	 *             扫描时发生IO错误
+	 */
+	public synchronized ScanDelta rescan() throws IOException {
+		ScanSnapshot previous = loader == null ? null : ScanCache.getIfPresent(loader, packages, getPatterns());
+		if (previous == null) {
+			previous = snapshot;
+		}
+		final ScanSnapshot next = scan(previous);
+		if (loader != null) {
+			ScanCache.put(loader, packages, getPatterns(), next);
+		}
+		snapshot = next;
+		return ScanDelta.between(previous, next);
+	}
+
+	private ScanSnapshot scan() throws IOException {
+		return scan(null);
+	}
+
+	private ScanSnapshot scan(final ScanSnapshot previous) throws IOException {
+		final ConcurrentMap<String, Collector> collectors = Maps.newConcurrentMap();
+		final Map<String, ClassPathEntry> origins = Maps.newHashMap();
+		final Map<String, URL> resolved = Maps.newHashMap();
+		final Map<File, EntryScan> scanned = Maps.newHashMap();
+		final Errors errors = new Errors();
+		final Executor executor = this.executor == null ? SharedPool.get() : this.executor;
+
+		// one task per class path entry, each class is parsed exactly once,
+		// unchanged entries of the previous snapshot are reused as they are
+		final List<ClassPathEntry> entries = ClassPathEntry.of(loader);
+		final List<FutureTask<EntryScan>> tasks = Lists.newArrayList();
+		for (final ClassPathEntry entry : entries) {
+			if (!mayMatch(entry)) {
+				tasks.add(null);
+				continue;
+			}
+			final FutureTask<EntryScan> task = new FutureTask<>(new Callable<EntryScan>() {
+				@Override
+				public EntryScan call() throws Exception {
+					final EntryScan last = previous == null ? null : previous.getEntry(entry.getFile());
+					if (last != null && last.isComplete() && last.getFingerprint().equals(entry.getFingerprint())) {
+						return last;
+					}
+					return scan(entry, errors);
+				}
+			});
+			tasks.add(task);
+			executor.execute(task);
+		}
+		// tasks not started yet run on this thread, so that a scan started from a
+		// thread of the same pool cannot wait for a task that no thread will run
+		for (FutureTask<EntryScan> task : tasks) {
+			if (task != null) {
+				task.run();
 			}
 		}
-		
+
 		try {
-			for (final ClassInfo info : infos) {
-				futures.add(executor.submit(new Callable<Object>() {
-					@Override
-					public Object call() throws Exception {
-						scan(info.getName());
-						return info.getName();
+			for (int i = 0; i < entries.size(); i++) {
+				final ClassPathEntry entry = entries.get(i);
+				final EntryScan result;
+				if (tasks.get(i) == null) {
+					continue;
+				}
+				try {
+					result = tasks.get(i).get();
+				} catch (ExecutionException e) {
+					errors.add(entry.toString(), e.getCause());
+					continue;
+				}
+				final Map<String, Collector> accepted = Maps.newLinkedHashMap();
+				for (int j = 0; j < result.size(); j++) {
+					final String type = result.getType(j);
+					final Collector collector = result.getCollector(j);
+					if (!isAccepted(type)) {
+						continue;
 					}
-				}));
+					final String resourceName = toResourceName(type);
+					if (!matches(entry.getResourceFile(resourceName))) {
+						continue;
+					}
+					accepted.put(type, collector);
+					if (collectors.putIfAbsent(type, collector) == null) {
+						origins.put(type, entry);
+					}
+				}
+				scanned.put(entry.getFile(), new EntryScan(result.getFingerprint(), accepted, result.isComplete()));
+			}
+		} catch (InterruptedException e) {
+			for (FutureTask<?> task : tasks) {
+				if (task != null) {
+					task.cancel(true);
+				}
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("class path scan interrupted");
+		}
+
+		// resolve super types outside the scanned packages
+		for (Collector collector : Lists.newArrayList(collectors.values())) {
+			if (collector.superNames == null) {
+				continue;
 			}
-			
-			for (Future<?> future : futures) {
+			for (String base : collector.superNames) {
 				try {
-					future.get();
-				} catch (Exception e) {
+					scan(base, collectors, resolved);
+				} catch (ClassNotFoundException e) {
 				}
 			}
-		} finally {
-			executor.shutdown();
 		}
+
+		if (errors.count.get() > 0) {
+			LOG.warn("{} errors while scanning class path, first: {}", errors.count.get(), errors.first);
+		}
+		return new ScanSnapshot(collectors, origins, resolved, scanAnnotations(collectors), scanned,
+				errors.count.get());
 	}
 
-	private void scan(final String type) throws ClassNotFoundException {
+	/**
+	 * 读取所有用到的注解类（包括注解上的注解）, 用于解析元注解和属性的默认值。
+	 * 扫描范围之外的注解类通过类加载器读取, 找不到的注解将被忽略。
+	 * 
+	 */
+	private Map<String, Collector> scanAnnotations(Map<String, Collector> collectors) {
+		final Map<String, Collector> types = Maps.newHashMap();
+		final Set<String> visited = Sets.newHashSet();
+		final Deque<String> pending = new ArrayDeque<>();
+		for (Collector collector : collectors.values()) {
+			if (collector.annotations != null) {
+				pending.addAll(collector.getAnnotations());
+			}
+		}
+		while (!pending.isEmpty()) {
+			final String type = pending.poll();
+			if (!visited.add(type) || type.startsWith(META_ANNOTATIONS)) {
+				continue;
+			}
+			Collector collector = collectors.get(type);
+			if (collector == null) {
+				final URL resource = loader == null ? null : loader.getResource(toResourceName(type));
+				if (resource == null) {
+					continue;
+				}
+				try {
+					collector = collect(resource);
+				} catch (IOException | RuntimeException e) {
+					continue;
+				}
+			}
+			types.put(type, collector);
+			if (collector.annotations != null) {
+				pending.addAll(collector.getAnnotations());
+			}
+		}
+		return types;
+	}
+
+	private EntryScan scan(ClassPathEntry entry, final Errors errors) throws IOException {
+		final Set<String> patterns = getPatterns();
+		// taken before reading, so that changes during the scan are seen next time
+		final Fingerprint fingerprint = entry.getFingerprint();
+		try {
+			final ClassIndex built = entry.getBuiltIndex();
+			if (built != null) {
+				return new EntryScan(fingerprint, built.getClasses(), true);
+			}
+		} catch (IOException e) {
+		}
+		if (store != null) {
+			final ClassIndex index = store.load(entry, packages, patterns);
+			if (index != null) {
+				return new EntryScan(fingerprint, index.getClasses(), true);
+			}
+		}
+
+		final Map<String, Collector> classes = Maps.newLinkedHashMap();
+		final AtomicInteger failures = new AtomicInteger();
+		final String prefix = entry.getResourceFile("");
+		entry.scan(new ClassHandler() {
+
+			@Override
+			public boolean acceptPackage(String path) {
+				return filter.acceptsDirectory(path);
+			}
+
+			@Override
+			public boolean accept(String resourceName) {
+				return filter.acceptsResource(resourceName) && !OBJECT_RESOURCE.equals(resourceName)
+						&& matches(prefix + resourceName);
+			}
+
+			@Override
+			public void handle(String type, byte[] bytes, int length) {
+				try {
+					classes.put(type, collect(bytes, length));
+				} catch (RuntimeException e) {
+					failed(type, e);
+				}
+			}
+
+			@Override
+			public void failed(String type, IOException error) {
+				failed(type, (Exception) error);
+			}
+
+			private void failed(String type, Exception error) {
+				errors.add(type, error);
+				failures.incrementAndGet();
+			}
+		});
+
+		// don't persist partial results, they should be retried next time
+		if (store != null && failures.get() == 0) {
+			final ClassIndex index = new ClassIndex(entry.getFile().getPath(), fingerprint, packages,
+					ImmutableSortedMap.copyOf(classes));
+			store.save(entry, index, patterns);
+		}
+		return new EntryScan(fingerprint, classes, failures.get() == 0);
+	}
+
+	private boolean isAccepted(String type) {
+		return !Object.class.getName().equals(type) && filter.acceptsClass(type);
+	}
+
+	private boolean matches(String file) {
+		return urlPatterns.isEmpty() || urlPatterns.matches(file);
+	}
+
+	/**
+	 * 检查给定条目中是否可能有URL与模式一致的类。如果模式与条目的URL前缀不匹配,
+	 * 并且匹配时没有读到前缀的末尾, 那么任何以此前缀开始的URL都不会匹配,
+	 * 整个条目可以跳过。
+	 * 
+	 */
+	private boolean mayMatch(ClassPathEntry entry) throws IOException {
+		return urlPatterns.isEmpty() || urlPatterns.mayMatchPrefix(entry.getResourceFile(""));
+	}
+
+	private Set<String> getPatterns() {
+		return Sets.newHashSet(pathPatterns);
+	}
+
+	private static String toResourceName(String type) {
+		return type.replace('.', '/') + ".class";
+	}
+
+	private void scan(String type, Map<String, Collector> collectors, Map<String, URL> sources)
+			throws ClassNotFoundException {
 
 		if (collectors.containsKey(type) ||  Object.class.getName().equals(type)) {
 			return;
 		}
 
-		URL resource = loader.getResource(type.replace('.', '/') + ".class");
-		boolean matched = pathPatterns.isEmpty();
-		for (Pattern pathPattern : pathPatterns) {
-			matched = pathPattern.matcher(resource.getFile()).matches();
-			if (matched) break;
+		URL resource = loader.getResource(toResourceName(type));
+		if (resource == null) {
+			throw new ClassNotFoundException(type);
 		}
-
-		if (!matched) {
+		if (!matches(resource.getFile())) {
 			return;
 		}
 
 		try {
-			InputStream stream = resource.openStream();
-			try {
-				BufferedInputStream in = new BufferedInputStream(stream);
-				ClassReader reader = new ClassReader(in);
-				Collector collector = new Collector();
-				reader.accept(collector, ASM_FLAGS);
-				collectors.put(type, collector);
-				if (collector.superNames != null) {
-					for (String base : collector.superNames) { scan(base); }
-				}
-			} finally {
-				stream.close();
+			Collector collector = collect(resource);
+			collectors.put(type, collector);
+			sources.put(type, resource);
+			if (collector.superNames != null) {
+				for (String base : collector.superNames) { scan(base, collectors, sources); }
 			}
-		} catch (NullPointerException | IOException e) {
-			throw new ClassNotFoundException(type);
+		} catch (IOException | RuntimeException e) {
+			throw new ClassNotFoundException(type, e);
+		}
+	}
+
+	static Collector collect(byte[] bytes, int length) {
+		final ClassReader reader = new ClassReader(bytes, 0, length);
+		final Collector collector = new Collector();
+		reader.accept(collector, ASM_FLAGS);
+		collector.stamp = checksum(bytes, length);
+		return collector;
+	}
+
+	static Collector collect(URL resource) throws IOException {
+		final InputStream stream = resource.openStream();
+		try {
+			final ClassReader reader = new ClassReader(new BufferedInputStream(stream));
+			final Collector collector = new Collector();
+			reader.accept(collector, ASM_FLAGS);
+			collector.stamp = checksum(reader.b, reader.b.length);
+			return collector;
+		} finally {
+			stream.close();
 		}
 	}
+
+	private static long checksum(byte[] bytes, int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(bytes, 0, length);
+		return crc.getValue();
+	}
 	
+	/**
+	 * 扫描时发生的错误的计数, 并记录第一个错误用于报告。
+	 *
+	 */
+	static final class Errors {
+
+		final AtomicInteger count = new AtomicInteger();
+		volatile String first;
+
+		void add(String source, Throwable error) {
+			if (count.getAndIncrement() == 0) {
+				first = source + ": " + error;
+			}
+		}
+	}
+
 	static class Collector extends ClassVisitor {
 		
-		private Set<String> superNames;
-		private Set<String> annotations;
+		private String[] superNames;
+		private String[] annotations;
+		private Map<String, Map<String, Object>> attributes;
+		private Map<String, Object> defaults;
+		private MemberTable members;
+		private MemberTable.Builder memberBuilder;
+		private boolean annotation;
+		private long stamp;
 		
 		public Collector() {
 			super(Opcodes.ASM4);
 		}
-		
-		private void acceptSuper(String name) {
-			if (name == null) {
-				return;
+
+		Collector(Collection<String> superNames, Collection<String> annotations) {
+			this();
+			this.superNames = toArray(superNames);
+			this.annotations = toArray(annotations);
+		}
+
+		Collector(Collection<String> superNames, Collection<String> annotations,
+				Map<String, Map<String, Object>> attributes,
+				Map<String, Object> defaults, MemberTable members, long stamp) {
+			this(superNames, annotations);
+			this.attributes = attributes;
+			this.defaults = defaults;
+			this.members = members;
+			this.stamp = stamp;
+		}
+
+		/**
+		 * 返回直接父类和实现的接口的类名, 没有时返回null。
+		 * 
+		 */
+		List<String> getSuperNames() {
+			return superNames == null ? null : Arrays.asList(superNames);
+		}
+
+		/**
+		 * 返回类上直接声明的注解的类名, 没有时返回null。
+		 * 
+		 */
+		List<String> getAnnotations() {
+			return annotations == null ? null : Arrays.asList(annotations);
+		}
+
+		private static String[] toArray(Collection<String> names) {
+			if (names == null || names.isEmpty()) {
+				return null;
 			}
-			if (superNames == null) {
-				superNames = Sets.newHashSet();
+			final String[] array = new String[names.size()];
+			int i = 0;
+			for (String name : names) {
+				array[i++] = SymbolTable.intern(name);
 			}
-			superNames.add(name.replace("/", "."));
+			return array;
+		}
+
+		/**
+		 * 返回类上的注解中显式给定的属性值, 以注解类名为键。
+		 * 
+		 */
+		Map<String, Map<String, Object>> getAttributes() {
+			return attributes;
+		}
+
+		/**
+		 * 如果此类是注解, 返回其属性的默认值。
+		 * 
+		 */
+		Map<String, Object> getDefaults() {
+			return defaults;
+		}
+
+		/**
+		 * 返回类文件内容的CRC32校验和, 用于判断重新扫描时类是否发生了变化。
+		 * 
+		 */
+		long getStamp() {
+			return stamp;
+		}
+
+		/**
+		 * 返回使用了注解的方法和字段, 没有时返回null。
+		 * 
+		 */
+		MemberTable getMembers() {
+			return members;
 		}
 		
-		private void acceptAnnotation(String name) {
+		private String acceptAnnotation(String name) {
 			if (name == null || IGNORE_OBJECT.equals(name)) {
-				return;
+				return null;
 			}
+			final String type = toAnnotationName(name);
+			if (annotations == null) {
+				annotations = new String[] { type };
+			} else {
+				annotations = Arrays.copyOf(annotations, annotations.length + 1);
+				annotations[annotations.length - 1] = type;
+			}
+			return type;
+		}
+
+		private static String toAnnotationName(String desc) {
+			return toName(desc, 1, desc.length() - 1);
+		}
+
+		/**
+		 * 将内部名称（<code>com/example/Foo</code>）的给定部分转换为驻留的类名,
+		 * 只创建一个字符串。
+		 * 
+		 */
+		private static String toName(String internal, int begin, int end) {
+			final char[] chars = new char[end - begin];
+			for (int i = begin; i < end; i++) {
+				final char c = internal.charAt(i);
+				chars[i - begin] = c == '/' ? '.' : c;
+			}
+			return SymbolTable.intern(new String(chars));
+		}
+
+		private void acceptMember(byte kind, String name, String desc, List<String> annotations) {
 			if (annotations == null) {
-				annotations = Sets.newHashSet();
+				return;
 			}
-			annotations.add(name.replace("/", ".").substring(1, name.length() - 1));
+			if (memberBuilder == null) {
+				memberBuilder = new MemberTable.Builder();
+			}
+			memberBuilder.add(kind, name, desc, annotations);
 		}
 
 		@Override
 		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-			acceptSuper(superName);
+			annotation = (access & Opcodes.ACC_ANNOTATION) != 0;
+			final int count = (superName == null ? 0 : 1) + (interfaces == null ? 0 : interfaces.length);
+			if (count == 0) {
+				return;
+			}
+			superNames = new String[count];
+			int i = 0;
+			if (superName != null) {
+				superNames[i++] = toName(superName, 0, superName.length());
+			}
 			if (interfaces != null) {
 				for (String iface : interfaces) {
-					acceptSuper(iface);
+					superNames[i++] = toName(iface, 0, iface.length());
 				}
 			}
 		}
 
 		@Override
 		public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-			acceptAnnotation(desc);
-			return null;
+			final String type = acceptAnnotation(desc);
+			if (type == null) {
+				return null;
+			}
+			return new Values(null) {
+				@Override
+				void put(String name, Object value) {
+					if (attributes == null) {
+						attributes = Maps.newHashMap();
+					}
+					Map<String, Object> values = attributes.get(type);
+					if (values == null) {
+						attributes.put(type, values = Maps.newHashMap());
+					}
+					values.put(name, value);
+				}
+			};
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, final String name, final String desc, String signature,
+				Object value) {
+			return new FieldVisitor(Opcodes.ASM4) {
+
+				private List<String> found;
+
+				@Override
+				public AnnotationVisitor visitAnnotation(String annotationDesc, boolean visible) {
+					if (found == null) {
+						found = Lists.newArrayListWithCapacity(2);
+					}
+					found.add(toAnnotationName(annotationDesc));
+					return null;
+				}
+
+				@Override
+				public void visitEnd() {
+					acceptMember(MemberTable.FIELD, name, desc, found);
+				}
+			};
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, final String name, final String desc, String signature,
+				String[] exceptions) {
+			// constructors and static initializers are not indexed
+			if (name.charAt(0) == '<') {
+				return null;
+			}
+			return new MethodVisitor(Opcodes.ASM4) {
+
+				private List<String> found;
+
+				@Override
+				public AnnotationVisitor visitAnnotation(String annotationDesc, boolean visible) {
+					if (found == null) {
+						found = Lists.newArrayListWithCapacity(2);
+					}
+					found.add(toAnnotationName(annotationDesc));
+					return null;
+				}
+
+				@Override
+				public void visitEnd() {
+					acceptMember(MemberTable.METHOD, name, desc, found);
+				}
+
+				@Override
+				public AnnotationVisitor visitAnnotationDefault() {
+					if (!annotation) {
+						return null;
+					}
+					return new Values(name) {
+						@Override
+						void put(String key, Object value) {
+							if (defaults == null) {
+								defaults = Maps.newHashMap();
+							}
+							defaults.put(key, value);
+						}
+					};
+				}
+			};
+		}
+
+		@Override
+		public void visitEnd() {
+			if (memberBuilder != null) {
+				members = memberBuilder.build();
+				memberBuilder = null;
+			}
+		}
+	}
+
+	/**
+	 * 收集注解的属性值。类和枚举的值分别以类名和<code>类名.常量名</code>的字符串保存,
+	 * 数组以{@link List}保存, 嵌套的注解将被忽略。
+	 * 
+	 */
+	private abstract static class Values extends AnnotationVisitor {
+
+		private final String key;
+
+		Values(String key) {
+			super(Opcodes.ASM4);
+			this.key = key;
+		}
+
+		abstract void put(String name, Object value);
+
+		@Override
+		public void visit(String name, Object value) {
+			put(key == null ? name : key, toValue(value));
+		}
+
+		@Override
+		public void visitEnum(String name, String desc, String value) {
+			put(key == null ? name : key, Type.getType(desc).getClassName() + "." + value);
+		}
+
+		@Override
+		public AnnotationVisitor visitArray(String name) {
+			final Values parent = this;
+			final String target = key == null ? name : key;
+			final List<Object> items = Lists.newArrayList();
+			return new Values(null) {
+				@Override
+				void put(String ignored, Object value) {
+					items.add(value);
+				}
+
+				@Override
+				public void visitEnd() {
+					parent.put(target, items);
+				}
+			};
+		}
+
+		private static Object toValue(Object value) {
+			if (value instanceof Type) {
+				return ((Type) value).getClassName();
+			}
+			if (value != null && value.getClass().isArray()) {
+				final int length = Array.getLength(value);
+				final List<Object> items = Lists.newArrayListWithCapacity(length);
+				for (int i = 0; i < length; i++) {
+					items.add(Array.get(value, i));
+				}
+				return items;
+			}
+			return value;
 		}
 	}
 }
@@ -0,0 +1,84 @@
+package com.icloudportal.common.reflections;
+
+import java.util.Arrays;
+
+/**
+ * {@link IntSet}是非负整数（符号编号）的集合, 按加入的顺序保存元素。<br>
+ * <br>
+ * 与{@link SymbolTable}相同, 查找使用开放寻址的哈希表, 占用的内存与元素的数量成正比,
+ * 而不是与编号的范围成正比, 适合在查询时记录少量已经访问的节点。
+ *
+ */
+final class IntSet {
+
+	private int[] elements = new int[8];
+	private int[] table = new int[16];
+	private int size;
+
+	/**
+	 * 加入给定的元素。
+	 *
+	 * @param value
+	 *            非负整数
+	 * @return 元素原来不存在时返回true
+	 */
+	public boolean add(int value) {
+		final int slot = slot(value);
+		if (table[slot] != 0) {
+			return false;
+		}
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size << 1);
+		}
+		elements[size] = value;
+		table[slot] = ++size;
+		if (size << 1 > table.length) {
+			rehash();
+		}
+		return true;
+	}
+
+	public boolean contains(int value) {
+		return table[slot(value)] != 0;
+	}
+
+	/**
+	 * 返回第给定个加入的元素。
+	 *
+	 * @param index
+	 *            加入的顺序
+	 * @return 元素
+	 */
+	public int get(int index) {
+		return elements[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private int slot(int value) {
+		final int mask = table.length - 1;
+		int slot = spread(value) & mask;
+		while (table[slot] != 0 && elements[table[slot] - 1] != value) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		table = new int[table.length << 1];
+		final int mask = table.length - 1;
+		for (int index = 0; index < size; index++) {
+			int slot = spread(elements[index]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = index + 1;
+		}
+	}
+
+	private static int spread(int hash) {
+		return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+	}
+}
@@ -0,0 +1,186 @@
+package com.icloudportal.common.reflections;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * {@link MappedJar}是以内存映射方式打开的jar文件, 用于直接读取未压缩（STORED）的条目。<br>
+ * <br>
+ * 打开时只解析中央目录, 记录未压缩的条目的位置; 条目的内容是映射的缓冲区的只读切片,
+ * 不需要复制。映射以软引用缓存, jar文件的大小或者修改时间发生变化时重新映射,
+ * {@link Reflections#invalidate(ClassLoader)}和{@link Reflections#rescan(ClassLoader)}
+ * 释放所有映射。大于2GB的、ZIP64格式的或者无法解析的jar文件不做映射。<br>
+ * <br>
+ * 映射在缓冲区被垃圾回收之前不会解除, 在Windows上jar文件在此之前不能被删除或者替换。
+ *
+ */
+final class MappedJar {
+
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int CENTRAL_SIGNATURE = 0x02014b50;
+	private static final int LOCAL_SIGNATURE = 0x04034b50;
+	private static final int END_SIZE = 22;
+	private static final int CENTRAL_SIZE = 46;
+	private static final int LOCAL_SIZE = 30;
+	private static final int STORED = 0;
+	private static final int ENCRYPTED = 1;
+
+	private static final Cache<File, MappedJar> CACHE = CacheBuilder.newBuilder().softValues().build();
+
+	private final MappedByteBuffer buffer;
+	private final long length;
+	private final long lastModified;
+	private final Map<String, Integer> entries = Maps.newHashMap();
+
+	private MappedJar(MappedByteBuffer buffer, long length, long lastModified) {
+		this.buffer = buffer;
+		this.length = length;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * 返回给定jar文件的映射。
+	 *
+	 * @param file
+	 *            jar文件
+	 * @return 映射, 无法映射时返回null
+	 * @throws IOException
+	 *             打开文件时发生IO错误
+	 */
+	public static MappedJar of(final File file) throws IOException {
+		MappedJar jar = CACHE.getIfPresent(file);
+		if (jar != null && (jar.length != file.length() || jar.lastModified != file.lastModified())) {
+			CACHE.invalidate(file);
+			jar = null;
+		}
+		if (jar != null) {
+			return jar;
+		}
+		try {
+			jar = CACHE.get(file, new Callable<MappedJar>() {
+				@Override
+				public MappedJar call() throws Exception {
+					return open(file);
+				}
+			});
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+			throw Throwables.propagate(e.getCause());
+		}
+		return jar.buffer == null ? null : jar;
+	}
+
+	/**
+	 * 释放所有缓存的映射。已经返回的切片仍然引用其映射, 直到被垃圾回收。
+	 */
+	public static void invalidateAll() {
+		CACHE.invalidateAll();
+	}
+
+	/**
+	 * 打开并映射jar文件, 无法映射的文件也返回一个没有缓冲区的实例, 以免每次都重新尝试。
+	 */
+	private static MappedJar open(File file) throws IOException {
+		final long lastModified = file.lastModified();
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			final long length = channel.size();
+			if (length > Integer.MAX_VALUE || length < END_SIZE) {
+				return new MappedJar(null, length, lastModified);
+			}
+			final MappedJar jar = new MappedJar(channel.map(MapMode.READ_ONLY, 0, length), length, lastModified);
+			return jar.readCentralDirectory() ? jar : new MappedJar(null, length, lastModified);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * 返回给定条目的内容。
+	 *
+	 * @param name
+	 *            条目名称
+	 * @return 只读的缓冲区, 条目不存在或者是压缩的条目时返回null
+	 */
+	public ByteBuffer getContent(String name) {
+		final Integer offset = entries.get(name);
+		if (offset == null) {
+			return null;
+		}
+		final ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		final int central = offset;
+		final int size = view.getInt(central + 24);
+		final int local = view.getInt(central + 42);
+		if (local < 0 || local + LOCAL_SIZE > view.limit() || view.getInt(local) != LOCAL_SIGNATURE) {
+			return null;
+		}
+		final int data = local + LOCAL_SIZE + (view.getShort(local + 26) & 0xffff)
+				+ (view.getShort(local + 28) & 0xffff);
+		if (size < 0 || data + (long) size > view.limit()) {
+			return null;
+		}
+		view.limit(data + size).position(data);
+		return view.slice().asReadOnlyBuffer();
+	}
+
+	private boolean readCentralDirectory() {
+		final ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		final int limit = view.limit();
+		// the end record is followed by a comment of at most 64K
+		int end = -1;
+		for (int i = limit - END_SIZE; i >= Math.max(0, limit - END_SIZE - 0xffff); i--) {
+			// the comment itself may contain the signature
+			if (view.getInt(i) == END_SIGNATURE && i + END_SIZE + (view.getShort(i + 20) & 0xffff) == limit) {
+				end = i;
+				break;
+			}
+		}
+		if (end < 0) {
+			return false;
+		}
+		final int count = view.getShort(end + 10) & 0xffff;
+		final long start = view.getInt(end + 16) & 0xffffffffL;
+		if (count == 0xffff || start >= limit) {
+			// ZIP64
+			return false;
+		}
+		final byte[] name = new byte[0xffff];
+		int position = (int) start;
+		for (int i = 0; i < count; i++) {
+			if (position + CENTRAL_SIZE > limit || view.getInt(position) != CENTRAL_SIGNATURE) {
+				return false;
+			}
+			final int flags = view.getShort(position + 8) & 0xffff;
+			final int method = view.getShort(position + 10) & 0xffff;
+			final int nameLength = view.getShort(position + 28) & 0xffff;
+			final int extraLength = view.getShort(position + 30) & 0xffff;
+			final int commentLength = view.getShort(position + 32) & 0xffff;
+			if (position + CENTRAL_SIZE + nameLength > limit) {
+				return false;
+			}
+			if (method == STORED && (flags & ENCRYPTED) == 0 && view.getInt(position + 24) != -1) {
+				view.position(position + CENTRAL_SIZE);
+				view.get(name, 0, nameLength);
+				entries.put(new String(name, 0, nameLength, StandardCharsets.UTF_8), position);
+			}
+			position += CENTRAL_SIZE + nameLength + extraLength + commentLength;
+		}
+		return true;
+	}
+}
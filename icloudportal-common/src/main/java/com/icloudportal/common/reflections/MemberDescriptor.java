@@ -0,0 +1,151 @@
+package com.icloudportal.common.reflections;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.List;
+
+import com.axelor.internal.asm.Type;
+
+/**
+ * {@link MemberDescriptor}是使用了注解的方法或者字段的轻量描述, 数据直接来自
+ * 扫描时读取的字节码, 不会加载类。需要时可以通过{@link #load()}得到
+ * {@link Method}或者{@link Field}。
+ *
+ */
+public final class MemberDescriptor {
+
+	private final String declaringClass;
+	private final byte kind;
+	private final String name;
+	private final String descriptor;
+	private final List<String> annotations;
+	private final URL source;
+	private final ClassLoader loader;
+
+	MemberDescriptor(String declaringClass, MemberTable table, int index, URL source, ClassLoader loader) {
+		this.declaringClass = declaringClass;
+		this.kind = table.getKind(index);
+		this.name = table.getName(index);
+		this.descriptor = table.getDescriptor(index);
+		this.annotations = table.getAnnotations(index);
+		this.source = source;
+		this.loader = loader;
+	}
+
+	/**
+	 * 返回声明此成员的类的全名。
+	 *
+	 * @return 类名
+	 */
+	public String getDeclaringClassName() {
+		return declaringClass;
+	}
+
+	/**
+	 * 返回方法名或者字段名。
+	 *
+	 * @return 成员名
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 返回成员的JVM描述符, 例如方法<code>(I)V</code>或者字段<code>Ljava/lang/String;</code>。
+	 *
+	 * @return 描述符
+	 */
+	public String getDescriptor() {
+		return descriptor;
+	}
+
+	/**
+	 * 返回成员上直接声明的注解的类名。
+	 *
+	 * @return 注解类名列表
+	 */
+	public List<String> getAnnotations() {
+		return annotations;
+	}
+
+	/**
+	 * 检查成员上是否直接声明了给定的注解。
+	 *
+	 * @param annotation
+	 *            要检查的注解
+	 * @return 声明了注解时返回true
+	 */
+	public boolean hasAnnotation(Class<? extends Annotation> annotation) {
+		return annotations.contains(annotation.getName());
+	}
+
+	public boolean isMethod() {
+		return kind == MemberTable.METHOD;
+	}
+
+	public boolean isField() {
+		return kind == MemberTable.FIELD;
+	}
+
+	/**
+	 * 返回声明此成员的类文件所在的位置。
+	 *
+	 * @return 类文件的{@link URL}
+	 */
+	public URL getSource() {
+		return source;
+	}
+
+	/**
+	 * 加载（但不初始化）声明此成员的类, 并返回对应的{@link Method}或者{@link Field}。
+	 *
+	 * @return 方法或者字段
+	 * @throws ClassNotFoundException
+	 *             类无法加载时抛出
+	 * @throws NoSuchMethodException
+	 *             加载的类中没有此方法时抛出
+	 * @throws NoSuchFieldException
+	 *             加载的类中没有此字段时抛出
+	 */
+	public Member load() throws ClassNotFoundException, NoSuchMethodException, NoSuchFieldException {
+		final Class<?> cls;
+		try {
+			cls = Class.forName(declaringClass, false, loader);
+		} catch (LinkageError e) {
+			throw new ClassNotFoundException(declaringClass, e);
+		}
+		if (isField()) {
+			return cls.getDeclaredField(name);
+		}
+		for (Method method : cls.getDeclaredMethods()) {
+			if (method.getName().equals(name) && Type.getMethodDescriptor(method).equals(descriptor)) {
+				return method;
+			}
+		}
+		throw new NoSuchMethodException(toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return (declaringClass.hashCode() * 31 + name.hashCode()) * 31 + descriptor.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj instanceof MemberDescriptor) {
+			final MemberDescriptor other = (MemberDescriptor) obj;
+			return kind == other.kind && declaringClass.equals(other.declaringClass) && name.equals(other.name)
+					&& descriptor.equals(other.descriptor);
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return isMethod() ? declaringClass + "." + name + descriptor : declaringClass + "." + name;
+	}
+}
@@ -0,0 +1,136 @@
+package com.icloudportal.common.reflections;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * 查找使用了给定注解的方法或者字段的辅助类。<br>
+ * <br>
+ * 成员直接从类路径扫描的索引中查找, 只有调用{@link #find()}时才会加载
+ * 声明这些成员的类。索引来自字节码, 所以保留策略为
+ * {@link java.lang.annotation.RetentionPolicy#CLASS}的注解也能找到, 虽然反射时不可见。
+ * 
+ */
+public final class MemberFinder<T extends Member> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MemberFinder.class);
+
+	private Class<T> kind;
+	private Class<? extends Annotation> annotation;
+	private ClassLoader loader;
+
+	private Set<String> packages = Sets.newLinkedHashSet();
+	private Set<String> pathPatterns = Sets.newLinkedHashSet();
+
+	private Executor executor;
+
+	MemberFinder(Class<T> kind, Class<? extends Annotation> annotation, ClassLoader loader) {
+		Preconditions.checkArgument(kind == Method.class || kind == Field.class, "unsupported member type: %s", kind);
+		this.kind = kind;
+		this.annotation = Preconditions.checkNotNull(annotation, "annotation must not be null");
+		this.loader = loader;
+	}
+
+	MemberFinder(Class<T> kind, Class<? extends Annotation> annotation) {
+		this(kind, annotation, Thread.currentThread().getContextClassLoader());
+	}
+
+	/**
+	 * 通过给定URL模式进行查找。模式是正则表达式, 以<code>glob:</code>开头时是glob模式, 例如
+	 * <code>glob:**&#47;lib/icloudportal-*.jar!/**</code>。
+	 *
+	 * @param pattern
+	 *            URL模式
+	 * @return 成员查找实例
+	 */
+	public MemberFinder<T> byURL(String pattern) {
+		Preconditions.checkNotNull(pattern, "pattern must not be null");
+		pathPatterns.add(pattern);
+		return this;
+	}
+
+	/**
+	 * 仅查找给定包名内的类的成员。
+	 * 
+	 * @param packageName
+	 *            包名
+	 * @return 成员查找实例
+	 */
+	public MemberFinder<T> within(String packageName) {
+		packages.add(packageName);
+		return this;
+	}
+
+	/**
+	 * 通过给定的类加载器查找。
+	 * 
+	 * @param loader
+	 *            类加载器
+	 * @return 成员查找实例
+	 */
+	public MemberFinder<T> using(ClassLoader loader) {
+		this.loader = loader;
+		return this;
+	}
+
+	/**
+	 * 使用给定的{@link Executor}并行扫描类路径。
+	 * 
+	 * @param executor
+	 *            扫描所用的{@link Executor}
+	 * @return 成员查找实例
+	 */
+	public MemberFinder<T> using(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	private ClassScanner createScanner() {
+		final ClassScanner scanner = new ClassScanner(loader, packages.toArray(new String[] {}));
+		if (executor != null) {
+			scanner.using(executor);
+		}
+		for (String pattern : pathPatterns) {
+			scanner.byURL(pattern);
+		}
+		return scanner;
+	}
+
+	/**
+	 * 查找成员的描述, 不会加载任何类。
+	 * 
+	 * @return 匹配的成员的描述的集合
+	 */
+	public ImmutableSet<MemberDescriptor> findDescriptors() {
+		return createScanner().getMemberDescriptors(annotation, kind == Method.class ? MemberTable.METHOD
+				: MemberTable.FIELD);
+	}
+
+	/**
+	 * 查找成员。声明成员的类会被加载（但不初始化）, 无法加载的成员将被忽略。
+	 * 
+	 * @return 匹配的方法或者字段的集合
+	 */
+	public ImmutableSet<T> find() {
+		final ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+		for (MemberDescriptor descriptor : findDescriptors()) {
+			try {
+				builder.add(kind.cast(descriptor.load()));
+			} catch (Exception | LinkageError e) {
+				LOG.warn("Unable to load member {}: {}", descriptor, e.toString());
+			}
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,122 @@
+package com.icloudportal.common.reflections;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
+
+/**
+ * {@link MemberTable}以数组形式保存一个类中使用了注解的方法和字段, 没有注解的成员不会被记录。<br>
+ * <br>
+ * 成员的名称、描述符和注解类名都经过驻留（intern）, 不同的类之间共享相同的字符串,
+ * 扫描大量的类时内存占用仍然有限。
+ *
+ */
+final class MemberTable {
+
+	static final byte FIELD = 0;
+	static final byte METHOD = 1;
+
+	private final byte[] kinds;
+	private final String[] names;
+	private final String[] descriptors;
+	private final String[][] annotations;
+
+	private MemberTable(byte[] kinds, String[] names, String[] descriptors, String[][] annotations) {
+		this.kinds = kinds;
+		this.names = names;
+		this.descriptors = descriptors;
+		this.annotations = annotations;
+	}
+
+	public int size() {
+		return kinds.length;
+	}
+
+	public byte getKind(int index) {
+		return kinds[index];
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * 返回成员的JVM描述符, 例如方法<code>(I)V</code>或者字段<code>Ljava/lang/String;</code>。
+	 *
+	 * @param index
+	 *            成员的序号
+	 * @return 描述符
+	 */
+	public String getDescriptor(int index) {
+		return descriptors[index];
+	}
+
+	public List<String> getAnnotations(int index) {
+		return Arrays.asList(annotations[index]);
+	}
+
+	public boolean hasAnnotation(int index, String annotation) {
+		for (String name : annotations[index]) {
+			if (name.equals(annotation)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 逐个添加成员, 最后创建{@link MemberTable}。
+	 *
+	 */
+	static final class Builder {
+
+		private final List<Byte> kinds = Lists.newArrayList();
+		private final List<String> names = Lists.newArrayList();
+		private final List<String> descriptors = Lists.newArrayList();
+		private final List<String[]> annotations = Lists.newArrayList();
+
+		/**
+		 * 添加一个成员, 没有注解时将被忽略。
+		 *
+		 * @param kind
+		 *            {@link MemberTable#FIELD}或者{@link MemberTable#METHOD}
+		 * @param name
+		 *            成员名
+		 * @param descriptor
+		 *            JVM描述符
+		 * @param annotations
+		 *            注解类名
+		 * @return 此构建器
+		 */
+		public Builder add(byte kind, String name, String descriptor, List<String> annotations) {
+			if (annotations == null || annotations.isEmpty()) {
+				return this;
+			}
+			final String[] names = new String[annotations.size()];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = SymbolTable.intern(annotations.get(i));
+			}
+			this.kinds.add(kind);
+			this.names.add(SymbolTable.intern(name));
+			this.descriptors.add(SymbolTable.intern(descriptor));
+			this.annotations.add(names);
+			return this;
+		}
+
+		/**
+		 * 创建{@link MemberTable}。
+		 *
+		 * @return 成员表, 没有添加任何成员时返回null
+		 */
+		public MemberTable build() {
+			if (kinds.isEmpty()) {
+				return null;
+			}
+			return new MemberTable(Bytes.toArray(kinds), names.toArray(new String[names.size()]),
+					descriptors.toArray(new String[descriptors.size()]),
+					annotations.toArray(new String[annotations.size()][]));
+		}
+	}
+}
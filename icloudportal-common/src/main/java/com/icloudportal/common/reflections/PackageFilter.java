@@ -0,0 +1,97 @@
+package com.icloudportal.common.reflections;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * {@link PackageFilter}使用按包名分段的前缀树判断类或者目录是否在给定的包中,
+ * 以便在读取任何字节码之前就跳过范围之外的类和目录。<br>
+ * <br>
+ * 包名<code>com.example</code>匹配<code>com.example</code>及其所有子包中的类,
+ * 没有给定包名时匹配所有的类。
+ *
+ */
+final class PackageFilter {
+
+	private final Node root = new Node();
+	private final boolean all;
+
+	PackageFilter(Collection<String> packages) {
+		this.all = packages.isEmpty();
+		for (String name : packages) {
+			Node node = root;
+			int start = 0;
+			int end;
+			do {
+				end = name.indexOf('.', start);
+				final String segment = name.substring(start, end == -1 ? name.length() : end);
+				Node next = node.children.get(segment);
+				if (next == null) {
+					next = new Node();
+					node.children.put(segment, next);
+				}
+				node = next;
+				start = end + 1;
+			} while (end != -1);
+			node.terminal = true;
+		}
+	}
+
+	/**
+	 * 检查给定的类是否在包中。
+	 *
+	 * @param type
+	 *            类的全名, 例如<code>com.example.Foo</code>
+	 * @return 在包中时返回true
+	 */
+	public boolean acceptsClass(String type) {
+		return all || accepts(type, '.', false);
+	}
+
+	/**
+	 * 检查给定的类文件是否在包中。
+	 *
+	 * @param resourceName
+	 *            类文件的资源名称, 例如<code>com/example/Foo.class</code>
+	 * @return 在包中时返回true
+	 */
+	public boolean acceptsResource(String resourceName) {
+		return all || accepts(resourceName, '/', false);
+	}
+
+	/**
+	 * 检查给定的目录中是否可能包含在包中的类。
+	 *
+	 * @param path
+	 *            以<code>/</code>结尾的目录路径, 例如<code>com/example/</code>
+	 * @return 可能包含时返回true
+	 */
+	public boolean acceptsDirectory(String path) {
+		return all || accepts(path, '/', true);
+	}
+
+	private boolean accepts(String name, char separator, boolean directory) {
+		Node node = root;
+		int start = 0;
+		int end;
+		while ((end = name.indexOf(separator, start)) != -1) {
+			if (node.terminal) {
+				return true;
+			}
+			node = node.children.get(name.substring(start, end));
+			if (node == null) {
+				return false;
+			}
+			start = end + 1;
+		}
+		return directory || node.terminal;
+	}
+
+	private static final class Node {
+
+		final Map<String, Node> children = Maps.newHashMap();
+		boolean terminal;
+	}
+}
@@ -0,0 +1,501 @@
+package com.icloudportal.common.reflections;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * {@link PatternSet}是一组编译后的名字或者URL模式, 用于判断一个字符串是否与其中任一模式匹配。<br>
+ * <br>
+ * 模式是正则表达式, 以<code>glob:</code>开头时是glob模式（与
+ * {@link java.nio.file.FileSystem#getPathMatcher(String)}相同, <code>*</code>不跨越
+ * <code>/</code>, <code>**</code>匹配任意字符, glob模式总是完全匹配）。<br>
+ * <br>
+ * 只由字面字符和<code>.*</code>组成的模式（例如<code>^META-INF/.*\.xml$</code>）
+ * 被简化为<code>startsWith</code>、<code>endsWith</code>和<code>indexOf</code>检查,
+ * 完全相同的字面模式合并为一个哈希集合, 其余的正则表达式合并为一个分支表达式。
+ *
+ */
+final class PatternSet {
+
+	static final String GLOB = "glob:";
+
+	private static final String META = "\\^$.|?*+()[]{}";
+
+	private final Set<String> exact;
+	private final Literal[] literals;
+	private final Pattern regex;
+	private final Pattern[] fallbacks;
+	private final Pattern[] patterns;
+	private final boolean partial;
+	private final String prefix;
+
+	private PatternSet(Collection<String> sources, boolean partial) {
+		final ImmutableSet.Builder<String> exact = ImmutableSet.builder();
+		final List<Literal> literals = Lists.newArrayList();
+		final List<Pattern> fallbacks = Lists.newArrayList();
+		final List<Pattern> patterns = Lists.newArrayList();
+		String prefix = null;
+		boolean mergeable = true;
+		for (String source : sources) {
+			final boolean glob = source.startsWith(GLOB);
+			final String regex = toRegex(source);
+			// glob模式总是完全匹配, $也匹配末尾的换行符之前, 所以使用\z
+			final Pattern pattern = Pattern.compile(glob && partial ? "^(?:" + regex + ")\\z" : regex);
+			final Literal literal = glob ? Literal.ofGlob(source.substring(GLOB.length()))
+					: Literal.ofRegex(regex, partial);
+			patterns.add(pattern);
+			String first;
+			if (literal == null) {
+				fallbacks.add(pattern);
+				mergeable &= !hasBackReference(regex) && !hasNamedGroup(regex);
+				first = getLiteralPrefix(regex, partial && !glob);
+			} else if (literal.isExact()) {
+				exact.add(literal.parts[0]);
+				first = literal.parts[0];
+			} else {
+				literals.add(literal);
+				first = literal.parts[0];
+			}
+			prefix = prefix == null ? first : Strings.commonPrefix(prefix, first);
+		}
+		this.exact = exact.build();
+		this.literals = literals.toArray(new Literal[] {});
+		this.fallbacks = fallbacks.toArray(new Pattern[] {});
+		this.patterns = patterns.toArray(new Pattern[] {});
+		this.partial = partial;
+		this.prefix = prefix == null ? "" : prefix;
+		this.regex = fallbacks.size() > 1 && mergeable ? merge(fallbacks) : null;
+	}
+
+	/**
+	 * 编译给定的模式。
+	 *
+	 * @param patterns
+	 *            正则表达式或者glob模式
+	 * @param partial
+	 *            正则表达式使用{@link Matcher#find()}部分匹配时为true, 使用
+	 *            {@link Matcher#matches()}完全匹配时为false
+	 * @return 编译后的模式
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             模式的语法错误
+	 */
+	public static PatternSet compile(Collection<String> patterns, boolean partial) {
+		return new PatternSet(patterns, partial);
+	}
+
+	/**
+	 * 将给定的模式转换为等价的正则表达式。
+	 *
+	 * @param pattern
+	 *            正则表达式或者glob模式
+	 * @return 正则表达式
+	 */
+	public static String toRegex(String pattern) {
+		if (!pattern.startsWith(GLOB)) {
+			return pattern;
+		}
+		final String glob = pattern.substring(GLOB.length());
+		final StringBuilder regex = new StringBuilder();
+		boolean group = false;
+		for (int i = 0; i < glob.length(); i++) {
+			final char c = glob.charAt(i);
+			switch (c) {
+			case '*':
+				if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+					regex.append(".*");
+					i++;
+				} else {
+					regex.append("[^/]*");
+				}
+				break;
+			case '?':
+				regex.append("[^/]");
+				break;
+			case '[':
+				final int end = glob.indexOf(']', i + 1);
+				if (end < 0) {
+					regex.append("\\[");
+					break;
+				}
+				String chars = glob.substring(i + 1, end);
+				if (chars.startsWith("!")) {
+					chars = "^" + chars.substring(1);
+				}
+				regex.append('[').append(chars.replace("[", "\\[")).append(']');
+				i = end;
+				break;
+			case '{':
+				regex.append("(?:");
+				group = true;
+				break;
+			case '}':
+				regex.append(group ? ")" : "\\}");
+				group = false;
+				break;
+			case ',':
+				regex.append(group ? "|" : ",");
+				break;
+			case '\\':
+				if (i + 1 < glob.length()) {
+					appendQuoted(regex, glob.charAt(++i));
+				}
+				break;
+			default:
+				appendQuoted(regex, c);
+			}
+		}
+		return regex.toString();
+	}
+
+	private static void appendQuoted(StringBuilder regex, char c) {
+		if (META.indexOf(c) >= 0) {
+			regex.append('\\');
+		}
+		regex.append(c);
+	}
+
+	/**
+	 * 是否没有任何模式。
+	 *
+	 * @return 没有模式时返回true
+	 */
+	public boolean isEmpty() {
+		return patterns.length == 0;
+	}
+
+	/**
+	 * 返回所有匹配的字符串都必须具有的前缀。
+	 *
+	 * @return 前缀, 可能为空字符串
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * 检查给定的字符串是否与任一模式匹配。
+	 *
+	 * @param value
+	 *            名称或者URL
+	 * @return 匹配时返回true
+	 */
+	public boolean matches(String value) {
+		if (hasLineTerminator(value)) {
+			// '.'不匹配行终止符, 由正则表达式判断
+			for (Pattern pattern : patterns) {
+				final Matcher matcher = pattern.matcher(value);
+				if (partial ? matcher.find() : matcher.matches()) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (exact.contains(value)) {
+			return true;
+		}
+		for (Literal literal : literals) {
+			if (literal.matches(value)) {
+				return true;
+			}
+		}
+		if (regex != null) {
+			final Matcher matcher = regex.matcher(value);
+			return partial ? matcher.find() : matcher.matches();
+		}
+		for (Pattern pattern : fallbacks) {
+			final Matcher matcher = pattern.matcher(value);
+			if (partial ? matcher.find() : matcher.matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 检查以给定前缀开始的字符串是否可能与任一模式完全匹配。如果模式与前缀不匹配,
+	 * 并且匹配时没有读到前缀的末尾, 那么任何以此前缀开始的字符串都不会匹配。
+	 *
+	 * @param start
+	 *            前缀
+	 * @return 可能匹配时返回true
+	 */
+	public boolean mayMatchPrefix(String start) {
+		for (String value : exact) {
+			if (value.startsWith(start)) {
+				return true;
+			}
+		}
+		for (Literal literal : literals) {
+			if (start.startsWith(literal.parts[0]) || literal.parts[0].startsWith(start)) {
+				return true;
+			}
+		}
+		for (Pattern pattern : fallbacks) {
+			final Matcher matcher = pattern.matcher(start);
+			if (matcher.matches() || matcher.hitEnd()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasLineTerminator(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 合并给定的表达式, 无法合并时返回null, 逐个匹配。反向引用按分组编号,
+	 * 命名分组在合并后的表达式中不能重名, 所以只合并没有这两者的表达式。
+	 */
+	private static Pattern merge(List<Pattern> fallbacks) {
+		final StringBuilder merged = new StringBuilder();
+		for (Pattern item : fallbacks) {
+			merged.append(merged.length() == 0 ? "" : "|").append("(?:").append(item.pattern()).append(')');
+		}
+		try {
+			return Pattern.compile(merged.toString());
+		} catch (PatternSyntaxException e) {
+			return null;
+		}
+	}
+
+	private static boolean hasNamedGroup(String regex) {
+		for (int i = 0; i + 3 < regex.length(); i++) {
+			if (regex.charAt(i) == '\\') {
+				i++;
+			} else if (regex.startsWith("(?<", i) && Character.isLetter(regex.charAt(i + 3))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasBackReference(String regex) {
+		for (int i = 0; i + 1 < regex.length(); i++) {
+			if (regex.charAt(i) == '\\') {
+				final char next = regex.charAt(i + 1);
+				if ((next >= '1' && next <= '9') || next == 'k') {
+					return true;
+				}
+				i++;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 返回正则表达式开头的字面前缀。只识别普通字符和转义的标点, 遇到其他元字符即停止;
+	 * 包含分支<code>|</code>的表达式没有前缀。
+	 */
+	private static String getLiteralPrefix(String regex, boolean partial) {
+		if (regex.indexOf('|') >= 0) {
+			return "";
+		}
+		int i = 0;
+		if (regex.startsWith("^")) {
+			i++;
+		} else if (partial) {
+			return "";
+		}
+		final StringBuilder prefix = new StringBuilder();
+		while (i < regex.length()) {
+			final char c = regex.charAt(i);
+			final int length;
+			final char literal;
+			if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+				literal = regex.charAt(i + 1);
+				length = 2;
+			} else if (META.indexOf(c) < 0) {
+				literal = c;
+				length = 1;
+			} else {
+				break;
+			}
+			// 带量词的字符可选或者重复, 前缀到此为止
+			final char next = i + length < regex.length() ? regex.charAt(i + length) : 0;
+			if (next == '*' || next == '?' || next == '{' || next == '+') {
+				break;
+			}
+			prefix.append(literal);
+			i += length;
+		}
+		return prefix.toString();
+	}
+
+	/**
+	 * 由字面部分和间隔组成的模式, 例如<code>a.*b.*c</code>, 间隔可以是任意字符
+	 * （部分匹配的模式在没有锚点的一端有一个空的字面部分）;
+	 * 来自glob的最后一个间隔可以是不包含<code>/</code>的任意字符。
+	 *
+	 */
+	private static final class Literal {
+
+		private final String[] parts;
+		private final boolean lastNoSlash;
+		private final int length;
+
+		Literal(List<String> parts, boolean lastNoSlash) {
+			this.parts = parts.toArray(new String[] {});
+			this.lastNoSlash = lastNoSlash;
+			int length = 0;
+			for (String part : parts) {
+				length += part.length();
+			}
+			this.length = length;
+		}
+
+		boolean isExact() {
+			return parts.length == 1;
+		}
+
+		/**
+		 * 解析只包含字面字符和<code>.*</code>的正则表达式, 其他表达式返回null。
+		 */
+		static Literal ofRegex(String regex, boolean partial) {
+			final List<String> parts = Lists.newArrayList();
+			final StringBuilder part = new StringBuilder();
+			int i = 0;
+			int end = regex.length();
+			boolean start = false;
+			if (regex.startsWith("^")) {
+				start = true;
+				i++;
+			}
+			if (end > i && regex.charAt(end - 1) == '$' && !isEscaped(regex, end - 1)) {
+				end--;
+			}
+			// 没有锚点时部分匹配可以在任何位置开始或者结束
+			final boolean finish = end < regex.length();
+			if (partial && !start) {
+				parts.add("");
+			}
+			while (i < end) {
+				final char c = regex.charAt(i);
+				if (c == '.' && i + 1 < end && regex.charAt(i + 1) == '*') {
+					if (i + 2 < end && (regex.charAt(i + 2) == '?' || regex.charAt(i + 2) == '+')) {
+						return null;
+					}
+					parts.add(part.toString());
+					part.setLength(0);
+					i += 2;
+					continue;
+				}
+				char literal;
+				if (c == '\\') {
+					if (i + 1 >= end || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+						return null;
+					}
+					literal = regex.charAt(i + 1);
+					i += 2;
+				} else if (META.indexOf(c) >= 0) {
+					return null;
+				} else {
+					literal = c;
+					i++;
+				}
+				if (i < end && "?*+{".indexOf(regex.charAt(i)) >= 0) {
+					return null;
+				}
+				part.append(literal);
+			}
+			parts.add(part.toString());
+			if (partial && !finish) {
+				parts.add("");
+			}
+			return of(collapse(parts), false);
+		}
+
+		/**
+		 * 解析只包含字面字符、<code>**</code>和最后一个<code>*</code>的glob模式,
+		 * 其他模式返回null。
+		 */
+		static Literal ofGlob(String glob) {
+			final List<String> parts = Lists.newArrayList();
+			final StringBuilder part = new StringBuilder();
+			boolean noSlash = false;
+			for (int i = 0; i < glob.length(); i++) {
+				final char c = glob.charAt(i);
+				if (c == '*') {
+					if (noSlash) {
+						return null;
+					}
+					if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+						i++;
+					} else {
+						noSlash = true;
+					}
+					parts.add(part.toString());
+					part.setLength(0);
+				} else if ("?[]{},".indexOf(c) >= 0) {
+					return null;
+				} else if (c == '\\') {
+					if (i + 1 < glob.length()) {
+						part.append(glob.charAt(++i));
+					}
+				} else {
+					part.append(c);
+				}
+			}
+			parts.add(part.toString());
+			return of(noSlash ? parts : collapse(parts), noSlash);
+		}
+
+		private static Literal of(List<String> parts, boolean lastNoSlash) {
+			return parts.isEmpty() ? null : new Literal(parts, lastNoSlash);
+		}
+
+		/**
+		 * 合并相邻的间隔（<code>.*.*</code>与<code>.*</code>等价）。
+		 */
+		private static List<String> collapse(List<String> parts) {
+			final List<String> result = Lists.newArrayList();
+			for (int i = 0; i < parts.size(); i++) {
+				if (i > 0 && i < parts.size() - 1 && parts.get(i).isEmpty()) {
+					continue;
+				}
+				result.add(parts.get(i));
+			}
+			return result;
+		}
+
+		private static boolean isEscaped(String regex, int index) {
+			int count = 0;
+			for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+				count++;
+			}
+			return count % 2 == 1;
+		}
+
+		boolean matches(String value) {
+			final int last = parts.length - 1;
+			if (value.length() < length || !value.startsWith(parts[0]) || !value.endsWith(parts[last])) {
+				return false;
+			}
+			final int limit = value.length() - parts[last].length();
+			int pos = parts[0].length();
+			for (int i = 1; i < last; i++) {
+				final int found = lastNoSlash && i == last - 1 ? value.lastIndexOf(parts[i], limit - parts[i].length())
+						: value.indexOf(parts[i], pos);
+				if (found < pos || found + parts[i].length() > limit) {
+					return false;
+				}
+				pos = found + parts[i].length();
+			}
+			return !lastNoSlash || value.lastIndexOf('/', limit - 1) < pos;
+		}
+	}
+}
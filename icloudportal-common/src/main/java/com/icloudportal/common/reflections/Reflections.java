@@ -1,6 +1,14 @@
 
 package com.icloudportal.common.reflections;
 
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+import com.google.common.base.Throwables;
+
 /**
  * {@link Reflections}提供简捷的方法查找资源和类。
  * 
@@ -81,4 +89,110 @@ public final class Reflections {
 	public static ResourceFinder findResources() {
 		return new ResourceFinder();
 	}
+
+	/**
+	 * 返回{@link MemberFinder}去查找使用了给定注解的方法。
+	 * 
+	 * @param annotation
+	 *            方法上的注解
+	 * @param loader
+	 *            查找所用的{@link ClassLoader}
+	 * 
+	 * @return {@link MemberFinder}实例
+	 */
+	public static MemberFinder<Method> findMethodsAnnotatedWith(Class<? extends Annotation> annotation,
+			ClassLoader loader) {
+		return new MemberFinder<>(Method.class, annotation, loader);
+	}
+
+	/**
+	 * 返回{@link MemberFinder}去查找使用了给定注解的方法。
+	 * 
+	 * @param annotation
+	 *            方法上的注解
+	 * 
+	 * @return {@link MemberFinder}实例
+	 */
+	public static MemberFinder<Method> findMethodsAnnotatedWith(Class<? extends Annotation> annotation) {
+		return new MemberFinder<>(Method.class, annotation);
+	}
+
+	/**
+	 * 返回{@link MemberFinder}去查找使用了给定注解的字段。
+	 * 
+	 * @param annotation
+	 *            字段上的注解
+	 * @param loader
+	 *            查找所用的{@link ClassLoader}
+	 * 
+	 * @return {@link MemberFinder}实例
+	 */
+	public static MemberFinder<Field> findFieldsAnnotatedWith(Class<? extends Annotation> annotation,
+			ClassLoader loader) {
+		return new MemberFinder<>(Field.class, annotation, loader);
+	}
+
+	/**
+	 * 返回{@link MemberFinder}去查找使用了给定注解的字段。
+	 * 
+	 * @param annotation
+	 *            字段上的注解
+	 * 
+	 * @return {@link MemberFinder}实例
+	 */
+	public static MemberFinder<Field> findFieldsAnnotatedWith(Class<? extends Annotation> annotation) {
+		return new MemberFinder<>(Field.class, annotation);
+	}
+
+	/**
+	 * 重新扫描给定{@link ClassLoader}所有缓存的类路径扫描结果, 只读取新增的或者发生了变化的
+	 * jar文件和目录, 已经删除的条目从结果中去掉。资源索引将在下次查找资源时重新建立,
+	 * {@link Resource}使用的jar文件映射被释放。
+	 * 
+	 * @param loader
+	 *            类加载器
+	 * @return 所有结果合并后的变化
+	 */
+	public static ScanDelta rescan(final ClassLoader loader) {
+		ResourceIndex.invalidate(loader);
+		MappedJar.invalidateAll();
+		final ScanDelta[] delta = { ScanDelta.empty() };
+		try {
+			ScanCache.forEach(loader, new ScanCache.KeyVisitor() {
+				@Override
+				public void visit(Set<String> packages, Set<String> patterns) throws IOException {
+					final ClassScanner scanner = new ClassScanner(loader, packages.toArray(new String[] {}));
+					for (String pattern : patterns) {
+						scanner.byURL(pattern);
+					}
+					delta[0] = delta[0].merge(scanner.rescan());
+				}
+			});
+		} catch (IOException e) {
+			throw Throwables.propagate(e);
+		}
+		return delta[0];
+	}
+
+	/**
+	 * 清除给定{@link ClassLoader}缓存的类路径扫描结果和资源索引, 并释放{@link Resource}
+	 * 使用的jar文件映射, 用于热部署后重新扫描。
+	 * 
+	 * @param loader
+	 *            类加载器
+	 */
+	public static void invalidate(ClassLoader loader) {
+		ScanCache.invalidate(loader);
+		ResourceIndex.invalidate(loader);
+		MappedJar.invalidateAll();
+	}
+
+	/**
+	 * 清除所有缓存的类路径扫描结果和资源索引, 并释放所有jar文件映射。
+	 */
+	public static void invalidateAll() {
+		ScanCache.invalidateAll();
+		ResourceIndex.invalidateAll();
+		MappedJar.invalidateAll();
+	}
 }
@@ -0,0 +1,195 @@
+package com.icloudportal.common.reflections;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.google.common.base.Objects;
+import com.google.common.io.ByteStreams;
+
+/**
+ * {@link Resource}是{@link ResourceFinder}找到的一个资源, 可以不经复制地读取其内容。<br>
+ * <br>
+ * 目录中的大文件以内存映射的方式读取, jar文件中未压缩的大条目是映射的jar文件的一个切片,
+ * 小于{@link #MAP_THRESHOLD}的内容复制到堆中, 使调用者不持有映射;
+ * 其他资源（压缩的条目、嵌套的jar文件等）通过{@link URL#openStream()}读取。
+ *
+ */
+public final class Resource {
+
+	private static final String JAR_SEPARATOR = "!/";
+
+	/**
+	 * 以映射方式返回内容的最小字节数, 更小的内容复制到堆中。
+	 */
+	static final int MAP_THRESHOLD = 32 * 1024;
+
+	private final String name;
+	private final URL url;
+
+	Resource(String name, URL url) {
+		this.name = name;
+		this.url = url;
+	}
+
+	/**
+	 * 返回资源名称, 例如<code>META-INF/persistence.xml</code>。
+	 *
+	 * @return 资源名称
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 返回资源的{@link URL}。
+	 *
+	 * @return 资源的{@link URL}
+	 */
+	public URL getURL() {
+		return url;
+	}
+
+	/**
+	 * 返回资源的内容。较大的文件和jar文件中较大的未压缩的条目返回映射的缓冲区, 不复制内容;
+	 * 其他资源的内容被读入堆中的缓冲区。<br>
+	 * <br>
+	 * 映射的缓冲区在被垃圾回收之前一直持有映射, 在Windows上文件在此之前不能被删除或者替换,
+	 * 所以不要长期保存返回的缓冲区。文件被原地改写以后, 读取之前返回的缓冲区可能抛出
+	 * {@link InternalError}或者使进程崩溃; 热部署之后应调用
+	 * {@link Reflections#invalidate(ClassLoader)}并重新读取。
+	 *
+	 * @return 只读的缓冲区
+	 * @throws IOException
+	 *             读取时发生IO错误
+	 * @see #isMapped()
+	 */
+	public ByteBuffer getContent() throws IOException {
+		final ByteBuffer mapped = map();
+		if (mapped != null) {
+			return mapped;
+		}
+		final InputStream in = url.openStream();
+		try {
+			return ByteBuffer.wrap(ByteStreams.toByteArray(in)).asReadOnlyBuffer();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * 打开读取资源内容的流, 用于以流的方式处理大的或者压缩的资源。
+	 *
+	 * @return 输入流
+	 * @throws IOException
+	 *             打开时发生IO错误
+	 */
+	public InputStream openStream() throws IOException {
+		return url.openStream();
+	}
+
+	/**
+	 * 检查{@link #getContent()}是否返回映射的缓冲区。
+	 *
+	 * @return 不小于{@link #MAP_THRESHOLD}的文件或者jar文件中未压缩的条目返回true
+	 * @throws IOException
+	 *             打开jar文件时发生IO错误
+	 */
+	public boolean isMapped() throws IOException {
+		if ("file".equals(url.getProtocol())) {
+			return toFile(url).length() >= MAP_THRESHOLD;
+		}
+		final MappedJar jar = getJar();
+		if (jar == null) {
+			return false;
+		}
+		final ByteBuffer content = jar.getContent(name);
+		return content != null && content.remaining() >= MAP_THRESHOLD;
+	}
+
+	private ByteBuffer map() throws IOException {
+		if ("file".equals(url.getProtocol())) {
+			final Path path = toFile(url).toPath();
+			if (Files.size(path) < MAP_THRESHOLD) {
+				return ByteBuffer.wrap(Files.readAllBytes(path)).asReadOnlyBuffer();
+			}
+			final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+			try {
+				return channel.map(MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+			} finally {
+				channel.close();
+			}
+		}
+		final MappedJar jar = getJar();
+		if (jar == null) {
+			return null;
+		}
+		try {
+			final ByteBuffer content = jar.getContent(name);
+			if (content == null || content.remaining() >= MAP_THRESHOLD) {
+				return content;
+			}
+			final ByteBuffer copy = ByteBuffer.allocate(content.remaining());
+			copy.put(content).flip();
+			return copy.asReadOnlyBuffer();
+		} catch (InternalError e) {
+			// the jar file was truncated or rewritten in place after it was mapped
+			MappedJar.invalidateAll();
+			throw new IOException("Unable to read " + url, e);
+		}
+	}
+
+	private MappedJar getJar() throws IOException {
+		if (!"jar".equals(url.getProtocol())) {
+			return null;
+		}
+		final String path = url.getFile();
+		final int separator = path.indexOf(JAR_SEPARATOR);
+		if (separator < 0 || path.indexOf(JAR_SEPARATOR, separator + 1) >= 0) {
+			// nested jar files are read as streams
+			return null;
+		}
+		final URL jar = new URL(path.substring(0, separator));
+		if (!"file".equals(jar.getProtocol())) {
+			return null;
+		}
+		final File file = toFile(jar);
+		return file.isFile() ? MappedJar.of(file) : null;
+	}
+
+	private static File toFile(URL url) {
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return new File(url.getPath());
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(name, url.toString());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj instanceof Resource) {
+			final Resource other = (Resource) obj;
+			return name.equals(other.name) && url.toString().equals(other.url.toString());
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return url.toString();
+	}
+}
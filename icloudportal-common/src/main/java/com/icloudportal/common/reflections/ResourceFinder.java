@@ -3,7 +3,9 @@ package com.icloudportal.common.reflections;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.Enumeration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -11,19 +13,21 @@ import java.util.regex.Pattern;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.reflect.ClassPath;
-import com.google.common.reflect.ClassPath.ResourceInfo;
 
 /**
- * {@link ResourceFinder} 类提供便捷的API查找资源。
+ * {@link ResourceFinder} 类提供便捷的API查找资源。<br>
+ * <br>
+ * 资源名称从每个{@link ClassLoader}缓存的{@link ResourceIndex}中查找,
+ * 以字面前缀开头的名字模式只需遍历索引中的一个子树。
  * 
  */
 public final class ResourceFinder {
 	
 	private ClassLoader loader;
-	private Set<Pattern> namePatterns = Sets.newLinkedHashSet();
-	private Set<Pattern> pathPatterns = Sets.newLinkedHashSet();
+	private Set<String> namePatterns = Sets.newLinkedHashSet();
+	private Set<String> pathPatterns = Sets.newLinkedHashSet();
 	
 	ResourceFinder() {
 
@@ -34,7 +38,8 @@ public final class ResourceFinder {
 	}
 
 	/**
-	 * 通过给定名字模式查找。
+	 * 通过给定名字模式查找。模式是正则表达式, 以<code>glob:</code>开头时是glob模式, 例如
+	 * <code>glob:META-INF/**.xml</code>。
 	 * 
 	 * @param pattern
 	 *            名字模式
@@ -42,12 +47,13 @@ public final class ResourceFinder {
 	 */
 	public ResourceFinder byName(String pattern) {
 		Preconditions.checkNotNull(pattern, "pattern must not be null");
-		namePatterns.add(Pattern.compile(pattern));
+		Pattern.compile(PatternSet.toRegex(pattern));
+		namePatterns.add(pattern);
 		return this;
 	}
 	
 	/**
-	 * 通过给定URL模式查找。
+	 * 通过给定URL模式查找。模式是正则表达式, 以<code>glob:</code>开头时是glob模式。
 	 * 
 	 * @param pattern
 	 *            URL模式
@@ -55,7 +61,8 @@ public final class ResourceFinder {
 	 */
 	public ResourceFinder byURL(String pattern) {
 		Preconditions.checkNotNull(pattern, "pattern must not be null");
-		pathPatterns.add(Pattern.compile(pattern));
+		Pattern.compile(PatternSet.toRegex(pattern));
+		pathPatterns.add(pattern);
 		return this;
 	}
 
@@ -76,45 +83,66 @@ public final class ResourceFinder {
 	public ImmutableList<URL> find() {
 		return find(true);
 	}
+
+	/**
+	 * 通过{@link Matcher#matches()} 的调用进行完全模式匹配查找资源, 返回可以不经复制地
+	 * 读取内容的{@link Resource}。
+	 * 
+	 * @return 资源清单
+	 */
+	public ImmutableList<Resource> matchResources() {
+		return findResources(false);
+	}
+
+	/**
+	 * 通过{@link Matcher#find()}的调用进行部分匹配查找资源, 返回可以不经复制地
+	 * 读取内容的{@link Resource}。
+	 * 
+	 * @return 资源清单
+	 */
+	public ImmutableList<Resource> findResources() {
+		return findResources(true);
+	}
 	
 	private ImmutableList<URL> find(boolean partial) {
-		ImmutableList.Builder<URL> all = ImmutableList.builder();
-		for (Pattern namePattern : namePatterns) {
-			for (URL file : getResources(namePattern, loader, partial)) {
-				if (pathPatterns.isEmpty()) {
-					all.add(file);
-					continue;
-				}
-				for (Pattern pathPattern : pathPatterns) {
-					Matcher matcher = pathPattern.matcher(file.getFile());
-					boolean matched = partial ? matcher.find() : matcher.matches();
-					if (matched) {
-						all.add(file);
-					}
-				}
-			}
+		final ImmutableList.Builder<URL> all = ImmutableList.builder();
+		for (Resource resource : findResources(partial)) {
+			all.add(resource.getURL());
 		}
 		return all.build();
 	}
 
-	private static ImmutableList<URL> getResources(Pattern pattern, ClassLoader loader, boolean partial) {
-		final ImmutableList.Builder<URL> builder = ImmutableList.builder();
+	private ImmutableList<Resource> findResources(boolean partial) {
+		ImmutableList.Builder<Resource> all = ImmutableList.builder();
 		final ClassLoader classLoader = loader == null ? Thread.currentThread().getContextClassLoader() : loader;
+		final Map<String, List<URL>> located = Maps.newHashMap();
+		final PatternSet paths = PatternSet.compile(pathPatterns, partial);
 		try {
-			for (ResourceInfo info : ClassPath.from(classLoader).getResources()) {
-				String name = info.getResourceName();
-				Matcher matcher = pattern.matcher(name);
-				boolean matched = partial ? matcher.find() : matcher.matches();
-				if (matched) {
-					Enumeration<URL> urls = classLoader.getResources(name);
-					while (urls.hasMoreElements()) {
-						builder.add(urls.nextElement());
+			// all name patterns are evaluated in a single pass over the index
+			final List<List<String>> found = ResourceIndex.of(classLoader).find(ImmutableList.copyOf(namePatterns),
+					partial);
+			for (List<String> names : found) {
+				for (String name : names) {
+					for (URL file : getResources(name, classLoader, located)) {
+						if (paths.isEmpty() || paths.matches(file.getFile())) {
+							all.add(new Resource(name, file));
+						}
 					}
 				}
 			}
 		} catch (IOException e) {
 			throw Throwables.propagate(e);
 		}
-		return builder.build();
+		return all.build();
+	}
+
+	private static List<URL> getResources(String name, ClassLoader classLoader, Map<String, List<URL>> located)
+			throws IOException {
+		List<URL> urls = located.get(name);
+		if (urls == null) {
+			urls = Collections.list(classLoader.getResources(name));
+			located.put(name, urls);
+		}
+		return urls;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,265 @@
+package com.icloudportal.common.reflections;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.icloudportal.common.SharedPool;
+
+/**
+ * {@link ResourceIndex}是一个{@link ClassLoader}能找到的所有资源名称的索引,
+ * 按路径分段组织成前缀树。<br>
+ * <br>
+ * 每个{@link ClassLoader}只建立一次索引（各个类路径条目并行读取）,
+ * 以弱引用缓存。查询时所有的模式在一次遍历中求值, 以字面前缀开头的模式
+ * （例如<code>^META-INF/.*\.xml$</code>）只遍历前缀所在的子树, 前缀由
+ * {@link PatternSet}确定。
+ *
+ */
+final class ResourceIndex {
+
+	private static final LoadingCache<ClassLoader, ResourceIndex> CACHE = CacheBuilder.newBuilder()
+			.weakKeys()
+			.build(new CacheLoader<ClassLoader, ResourceIndex>() {
+				@Override
+				public ResourceIndex load(ClassLoader loader) throws Exception {
+					return new ResourceIndex(ClassPathEntry.of(loader));
+				}
+			});
+
+	/**
+	 * 与{@link com.google.common.reflect.ClassPath}相同的顺序：类文件按类名,
+	 * 其他资源按资源名称排序。
+	 */
+	static final Comparator<String> ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String o1, String o2) {
+			return toKey(o1).compareTo(toKey(o2));
+		}
+
+		private String toKey(String name) {
+			if (name.endsWith(".class")) {
+				return name.substring(0, name.length() - ".class".length()).replace('/', '.');
+			}
+			return name;
+		}
+	};
+
+	private final Node root = new Node();
+	private final int size;
+
+	private ResourceIndex(List<ClassPathEntry> entries) throws IOException {
+		final List<FutureTask<List<String>>> tasks = Lists.newArrayList();
+		for (final ClassPathEntry entry : entries) {
+			final FutureTask<List<String>> task = new FutureTask<>(new Callable<List<String>>() {
+				@Override
+				public List<String> call() throws Exception {
+					return entry.getResourceNames();
+				}
+			});
+			tasks.add(task);
+			SharedPool.get().execute(task);
+		}
+		// tasks not started yet run on this thread, so that building the index
+		// from a pool thread cannot wait for a task that no thread will run
+		for (FutureTask<List<String>> task : tasks) {
+			task.run();
+		}
+		int count = 0;
+		try {
+			for (FutureTask<List<String>> task : tasks) {
+				for (String name : task.get()) {
+					if (add(name)) {
+						count++;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+			throw Throwables.propagate(e.getCause());
+		} finally {
+			for (FutureTask<?> task : tasks) {
+				task.cancel(true);
+			}
+		}
+		this.size = count;
+	}
+
+	/**
+	 * 返回给定{@link ClassLoader}的资源索引, 第一次调用时建立。
+	 *
+	 * @param loader
+	 *            类加载器
+	 * @return 资源索引
+	 * @throws IOException
+	 *             读取类路径条目时发生IO错误
+	 */
+	public static ResourceIndex of(ClassLoader loader) throws IOException {
+		try {
+			return CACHE.get(loader);
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	/**
+	 * 清除给定{@link ClassLoader}的资源索引。
+	 *
+	 * @param loader
+	 *            类加载器
+	 */
+	public static void invalidate(ClassLoader loader) {
+		CACHE.invalidate(loader);
+	}
+
+	/**
+	 * 清除所有资源索引。
+	 */
+	public static void invalidateAll() {
+		CACHE.invalidateAll();
+	}
+
+	/**
+	 * 返回索引中资源的数量。
+	 *
+	 * @return 资源数量
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 在一次遍历中查找与给定模式匹配的资源名称。
+	 *
+	 * @param patterns
+	 *            名字模式, 正则表达式或者glob模式
+	 * @param partial
+	 *            使用{@link java.util.regex.Matcher#find()}部分匹配时为true, 使用
+	 *            {@link java.util.regex.Matcher#matches()}完全匹配时为false
+	 * @return 与每个模式匹配的资源名称, 按{@link #ORDER}排序, 与模式的顺序一致
+	 */
+	public List<List<String>> find(List<String> patterns, boolean partial) {
+		final int count = patterns.size();
+		final PatternSet[] matchers = new PatternSet[count];
+		final List<List<String>> found = Lists.newArrayListWithCapacity(count);
+		final Set<Node> roots = Sets.newLinkedHashSet();
+		for (int i = 0; i < count; i++) {
+			matchers[i] = PatternSet.compile(ImmutableList.of(patterns.get(i)), partial);
+			found.add(Lists.<String> newArrayList());
+			final Node node = root.find(matchers[i].getPrefix());
+			if (node != null) {
+				roots.add(node);
+			}
+		}
+		for (Node node : roots) {
+			if (!isCovered(node, roots)) {
+				node.visit(matchers, found);
+			}
+		}
+		for (List<String> names : found) {
+			Collections.sort(names, ORDER);
+		}
+		return found;
+	}
+
+	private static boolean isCovered(Node node, Set<Node> roots) {
+		for (Node parent = node.parent; parent != null; parent = parent.parent) {
+			if (roots.contains(parent)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean add(String name) {
+		Node node = root;
+		int start = 0;
+		for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', start)) {
+			node = node.child(name.substring(start, slash + 1));
+			start = slash + 1;
+		}
+		if (node.names == null) {
+			node.names = Sets.newLinkedHashSet();
+		}
+		return node.names.add(name);
+	}
+
+	private static final class Node {
+
+		private final Node parent;
+		private Map<String, Node> children;
+		private Set<String> names;
+
+		Node() {
+			this.parent = null;
+		}
+
+		Node(Node parent) {
+			this.parent = parent;
+		}
+
+		Node child(String segment) {
+			if (children == null) {
+				children = Maps.newHashMap();
+			}
+			Node node = children.get(segment);
+			if (node == null) {
+				node = new Node(this);
+				children.put(segment, node);
+			}
+			return node;
+		}
+
+		/**
+		 * 返回包含给定前缀的所有名称的最深的节点, 这样的名称不存在时返回null。
+		 */
+		Node find(String prefix) {
+			Node node = this;
+			int start = 0;
+			for (int slash = prefix.indexOf('/'); slash >= 0; slash = prefix.indexOf('/', start)) {
+				node = node.children == null ? null : node.children.get(prefix.substring(start, slash + 1));
+				if (node == null) {
+					return null;
+				}
+				start = slash + 1;
+			}
+			return node;
+		}
+
+		void visit(PatternSet[] matchers, List<List<String>> found) {
+			if (names != null) {
+				for (String name : names) {
+					for (int i = 0; i < matchers.length; i++) {
+						if (name.startsWith(matchers[i].getPrefix()) && matchers[i].matches(name)) {
+							found.get(i).add(name);
+						}
+					}
+				}
+			}
+			if (children != null) {
+				for (Node child : children.values()) {
+					child.visit(matchers, found);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.icloudportal.common.reflections;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * {@link ScanCache}在进程范围内缓存{@link ScanSnapshot}, 以
+ * （{@link ClassLoader}, 包名, URL模式）为键, 使多次
+ * {@link ClassFinder#find()}调用共享同一次扫描的结果。<br>
+ * <br>
+ * {@link ClassLoader}以弱引用保存, 快照本身不引用{@link ClassLoader},
+ * 所以缓存不会阻止重新部署的web应用的类加载器被回收。每个{@link ClassLoader}
+ * 最多保存{@link #MAX_SNAPSHOTS}个快照, 快照以软引用保存, 内存不足时可以被回收。
+ *
+ */
+final class ScanCache {
+
+	/**
+	 * 每个{@link ClassLoader}缓存的快照的最大数量。
+	 */
+	static final int MAX_SNAPSHOTS = 16;
+
+	private static final LoadingCache<ClassLoader, Cache<Key, ScanSnapshot>> CACHE = CacheBuilder.newBuilder()
+			.weakKeys()
+			.build(new CacheLoader<ClassLoader, Cache<Key, ScanSnapshot>>() {
+				@Override
+				public Cache<Key, ScanSnapshot> load(ClassLoader loader) throws Exception {
+					return CacheBuilder.newBuilder().maximumSize(MAX_SNAPSHOTS).softValues().build();
+				}
+			});
+
+	private ScanCache() {
+	}
+
+	/**
+	 * 返回缓存的快照, 如果没有则调用给定的扫描器创建。并发调用时,
+	 * 相同的键只会扫描一次。
+	 *
+	 * @param loader
+	 *            扫描所用的{@link ClassLoader}
+	 * @param packages
+	 *            扫描的包名
+	 * @param patterns
+	 *            URL模式
+	 * @param scanner
+	 *            创建快照的扫描器
+	 * @return 快照
+	 * @throws IOException
+	 *             扫描时发生IO错误
+	 */
+	public static ScanSnapshot get(ClassLoader loader, Set<String> packages, Set<String> patterns,
+			Callable<ScanSnapshot> scanner) throws IOException {
+		try {
+			return CACHE.getUnchecked(loader).get(new Key(packages, patterns), scanner);
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	/**
+	 * 返回缓存的快照, 没有时返回null。
+	 *
+	 * @param loader
+	 *            扫描所用的{@link ClassLoader}
+	 * @param packages
+	 *            扫描的包名
+	 * @param patterns
+	 *            URL模式
+	 * @return 快照或者null
+	 */
+	public static ScanSnapshot getIfPresent(ClassLoader loader, Set<String> packages, Set<String> patterns) {
+		final Cache<Key, ScanSnapshot> snapshots = CACHE.getIfPresent(loader);
+		return snapshots == null ? null : snapshots.getIfPresent(new Key(packages, patterns));
+	}
+
+	/**
+	 * 用重新扫描得到的快照替换缓存的快照。
+	 *
+	 * @param loader
+	 *            扫描所用的{@link ClassLoader}
+	 * @param packages
+	 *            扫描的包名
+	 * @param patterns
+	 *            URL模式
+	 * @param snapshot
+	 *            新的快照
+	 */
+	public static void put(ClassLoader loader, Set<String> packages, Set<String> patterns, ScanSnapshot snapshot) {
+		CACHE.getUnchecked(loader).put(new Key(packages, patterns), snapshot);
+	}
+
+	/**
+	 * 对给定{@link ClassLoader}的每一个缓存的快照调用给定的回调, 回调的参数是
+	 * 快照的包名和URL模式。
+	 *
+	 * @param loader
+	 *            类加载器
+	 * @param visitor
+	 *            回调
+	 * @throws IOException
+	 *             回调抛出的IO错误
+	 */
+	public static void forEach(ClassLoader loader, KeyVisitor visitor) throws IOException {
+		final Cache<Key, ScanSnapshot> snapshots = CACHE.getIfPresent(loader);
+		if (snapshots == null) {
+			return;
+		}
+		for (Key key : ImmutableList.copyOf(snapshots.asMap().keySet())) {
+			visitor.visit(key.packages, key.patterns);
+		}
+	}
+
+	/**
+	 * 清除给定{@link ClassLoader}的所有快照。
+	 *
+	 * @param loader
+	 *            类加载器
+	 */
+	public static void invalidate(ClassLoader loader) {
+		CACHE.invalidate(loader);
+	}
+
+	/**
+	 * 清除所有快照。
+	 */
+	public static void invalidateAll() {
+		CACHE.invalidateAll();
+	}
+
+	/**
+	 * {@link ScanCache#forEach(ClassLoader, KeyVisitor)}的回调。
+	 *
+	 */
+	interface KeyVisitor {
+
+		void visit(Set<String> packages, Set<String> patterns) throws IOException;
+	}
+
+	private static final class Key {
+
+		private final Set<String> packages;
+		private final Set<String> patterns;
+
+		Key(Set<String> packages, Set<String> patterns) {
+			this.packages = ImmutableSortedSet.copyOf(packages);
+			this.patterns = ImmutableSortedSet.copyOf(patterns);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(packages, patterns);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) return true;
+			if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				return packages.equals(other.packages) && patterns.equals(other.patterns);
+			}
+			return false;
+		}
+	}
+}
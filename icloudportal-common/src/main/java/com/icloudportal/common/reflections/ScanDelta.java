@@ -0,0 +1,119 @@
+package com.icloudportal.common.reflections;
+
+import java.util.Set;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSortedSet;
+import com.icloudportal.common.reflections.ClassScanner.Collector;
+
+/**
+ * {@link ScanDelta}描述重新扫描类路径后与上一次扫描相比的变化: 新增的、删除的和
+ * 发生了变化（类文件内容或者位置不同）的类。
+ *
+ */
+public final class ScanDelta {
+
+	private final Set<String> added;
+	private final Set<String> removed;
+	private final Set<String> changed;
+
+	private ScanDelta(Set<String> added, Set<String> removed, Set<String> changed) {
+		this.added = added;
+		this.removed = removed;
+		this.changed = changed;
+	}
+
+	/**
+	 * 比较两次扫描的快照。
+	 *
+	 * @param previous
+	 *            上一次的快照, 为null时所有的类都是新增的
+	 * @param next
+	 *            新的快照
+	 * @return 变化
+	 */
+	static ScanDelta between(ScanSnapshot previous, ScanSnapshot next) {
+		final ImmutableSortedSet.Builder<String> added = ImmutableSortedSet.naturalOrder();
+		final ImmutableSortedSet.Builder<String> removed = ImmutableSortedSet.naturalOrder();
+		final ImmutableSortedSet.Builder<String> changed = ImmutableSortedSet.naturalOrder();
+		for (String type : next.getTypes()) {
+			final Collector collector = next.getCollector(type);
+			final Collector last = previous == null ? null : previous.getCollector(type);
+			if (last == null) {
+				added.add(type);
+			} else if (last != collector && (last.getStamp() != collector.getStamp()
+					|| !Objects.equal(previous.getSource(type), next.getSource(type)))) {
+				changed.add(type);
+			}
+		}
+		if (previous != null) {
+			for (String type : previous.getTypes()) {
+				if (next.getCollector(type) == null) {
+					removed.add(type);
+				}
+			}
+		}
+		return new ScanDelta(added.build(), removed.build(), changed.build());
+	}
+
+	/**
+	 * 合并两个变化, 用于同时重新扫描多个快照。
+	 *
+	 * @param other
+	 *            另一个变化
+	 * @return 合并的变化
+	 */
+	ScanDelta merge(ScanDelta other) {
+		return new ScanDelta(union(added, other.added), union(removed, other.removed), union(changed, other.changed));
+	}
+
+	private static Set<String> union(Set<String> first, Set<String> second) {
+		return ImmutableSortedSet.<String> naturalOrder().addAll(first).addAll(second).build();
+	}
+
+	static ScanDelta empty() {
+		return new ScanDelta(ImmutableSortedSet.<String> of(), ImmutableSortedSet.<String> of(),
+				ImmutableSortedSet.<String> of());
+	}
+
+	/**
+	 * 返回新增的类的类名。
+	 *
+	 * @return 类名集合
+	 */
+	public Set<String> getAdded() {
+		return added;
+	}
+
+	/**
+	 * 返回已经删除的类的类名。
+	 *
+	 * @return 类名集合
+	 */
+	public Set<String> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * 返回类文件内容或者位置发生了变化的类的类名。
+	 *
+	 * @return 类名集合
+	 */
+	public Set<String> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * 检查是否没有任何变化。
+	 *
+	 * @return 没有变化时返回true
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "added=" + added + ", removed=" + removed + ", changed=" + changed;
+	}
+}
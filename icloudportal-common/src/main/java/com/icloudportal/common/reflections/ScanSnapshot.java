@@ -0,0 +1,364 @@
+package com.icloudportal.common.reflections;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.icloudportal.common.reflections.ClassPathEntry.Fingerprint;
+import com.icloudportal.common.reflections.ClassScanner.Collector;
+
+/**
+ * {@link ScanSnapshot}是一次类路径扫描的不可变结果。<br>
+ * <br>
+ * 除了每个类的扫描数据外, 还包含反向索引（父类到直接子类、注解到被注解的类或者成员所在的类）,
+ * 查询时只需遍历相关的节点。元注解在创建快照时传递地解析。<br>
+ * <br>
+ * 所有的类名和注解名都保存在{@link SymbolTable}中, 反向索引是以符号编号表示的
+ * {@link Adjacency}, 类文件的位置在查询时才由所在的类路径条目生成,
+ * 因此大型类路径的快照也只占用很少的内存。
+ * <br>
+ * 快照只保存类名, 不引用任何{@link ClassLoader},
+ * 因此可以安全地被{@link ScanCache}缓存和共享。
+ *
+ */
+final class ScanSnapshot {
+
+	private final SymbolTable symbols = new SymbolTable();
+	private final Collector[] collectors;
+	private final ClassPathEntry[] origins;
+	private final Map<String, URL> resolved;
+	private final Adjacency subTypes;
+	private final Adjacency annotated;
+	private final Adjacency metaAnnotated;
+	private final Adjacency memberAnnotated;
+	private final int[] types;
+	private final Map<String, Collector> annotationTypes;
+	private final Map<String, Set<String>> metaAnnotations = Maps.newHashMap();
+	private final Map<File, EntryScan> entries;
+	private final int errorCount;
+
+	/**
+	 * 创建快照。
+	 *
+	 * @param collectors
+	 *            所有类的扫描数据
+	 * @param origins
+	 *            类所在的类路径条目
+	 * @param resolved
+	 *            通过类加载器找到的类（不在任何扫描的条目中）的位置
+	 * @param annotationTypes
+	 *            用到的注解类的扫描数据
+	 * @param entries
+	 *            每个类路径条目的扫描结果
+	 * @param errorCount
+	 *            错误数量
+	 */
+	ScanSnapshot(Map<String, Collector> collectors, Map<String, ClassPathEntry> origins, Map<String, URL> resolved,
+			Map<String, Collector> annotationTypes, Map<File, EntryScan> entries, int errorCount) {
+		this.annotationTypes = ImmutableMap.copyOf(annotationTypes);
+		this.entries = ImmutableMap.copyOf(entries);
+		this.resolved = ImmutableMap.copyOf(resolved);
+		this.errorCount = errorCount;
+
+		final int[] types = new int[collectors.size()];
+		int count = 0;
+		for (String type : collectors.keySet()) {
+			types[count++] = symbols.add(type);
+		}
+		this.types = types;
+
+		final Adjacency.Builder subs = new Adjacency.Builder();
+		final Adjacency.Builder annots = new Adjacency.Builder();
+		final Adjacency.Builder metas = new Adjacency.Builder();
+		final Adjacency.Builder members = new Adjacency.Builder();
+		final Set<String> found = Sets.newHashSet();
+		for (int id : types) {
+			final Collector collector = collectors.get(symbols.get(id));
+			if (collector.getSuperNames() != null) {
+				for (String base : collector.getSuperNames()) {
+					subs.add(symbols.add(base), id);
+				}
+			}
+			if (collector.getAnnotations() != null) {
+				found.clear();
+				for (String annotation : collector.getAnnotations()) {
+					annots.add(symbols.add(annotation), id);
+					found.add(annotation);
+					found.addAll(resolveMetaAnnotations(annotation));
+				}
+				for (String meta : found) {
+					metas.add(symbols.add(meta), id);
+				}
+			}
+			final MemberTable table = collector.getMembers();
+			if (table != null) {
+				found.clear();
+				for (int i = 0; i < table.size(); i++) {
+					found.addAll(table.getAnnotations(i));
+				}
+				for (String annotation : found) {
+					members.add(symbols.add(annotation), id);
+				}
+			}
+		}
+
+		this.collectors = new Collector[symbols.size()];
+		this.origins = new ClassPathEntry[symbols.size()];
+		for (int id : types) {
+			final String type = symbols.get(id);
+			this.collectors[id] = collectors.get(type);
+			this.origins[id] = origins.get(type);
+		}
+		this.subTypes = subs.build(symbols.size());
+		this.annotated = annots.build(symbols.size());
+		this.metaAnnotated = metas.build(symbols.size());
+		this.memberAnnotated = members.build(symbols.size());
+	}
+
+	/**
+	 * 返回给定类的类文件所在的位置。
+	 *
+	 * @param type
+	 *            类名
+	 * @return 类文件的{@link URL}
+	 */
+	public URL getSource(String type) {
+		final int id = symbols.get(type);
+		if (id != -1 && origins[id] != null) {
+			try {
+				return origins[id].getResource(type.replace('.', '/') + ".class");
+			} catch (MalformedURLException e) {
+				return null;
+			}
+		}
+		return resolved.get(type);
+	}
+
+	/**
+	 * 返回给定类路径条目的扫描结果, 用于重新扫描时判断条目是否发生了变化。
+	 *
+	 * @param file
+	 *            条目的jar文件或者目录
+	 * @return 扫描结果, 条目未被扫描时返回null
+	 */
+	public EntryScan getEntry(File file) {
+		return entries.get(file);
+	}
+
+	/**
+	 * 返回扫描时无法读取的类或者类路径条目的数量。
+	 *
+	 * @return 错误数量
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * 返回快照中所有类的类名。
+	 *
+	 * @return 类名列表
+	 */
+	public List<String> getTypes() {
+		final List<String> names = Lists.newArrayListWithCapacity(types.length);
+		for (int id : types) {
+			names.add(symbols.get(id));
+		}
+		return names;
+	}
+
+	/**
+	 * 返回给定类的扫描数据。
+	 *
+	 * @param type
+	 *            类名
+	 * @return 扫描数据, 快照中没有此类时返回null
+	 */
+	public Collector getCollector(String type) {
+		final int id = symbols.get(type);
+		return id == -1 ? null : collectors[id];
+	}
+
+	/**
+	 * 返回给定类的所有直接和间接子类的类名。
+	 *
+	 * @param type
+	 *            父类的类名
+	 * @return 子类的类名集合
+	 */
+	public Set<String> getSubTypesOf(String type) {
+		final Set<String> found = Sets.newLinkedHashSet();
+		final int root = symbols.get(type);
+		if (root == -1) {
+			return found;
+		}
+		// 已访问的子类按加入的顺序同时作为待遍历的队列, 内存只与结果的大小有关
+		final IntSet visited = new IntSet();
+		int id = root;
+		int head = 0;
+		while (true) {
+			for (int i = subTypes.start(id), end = subTypes.end(id); i < end; i++) {
+				final int sub = subTypes.target(i);
+				if (visited.add(sub)) {
+					found.add(symbols.get(sub));
+				}
+			}
+			if (head == visited.size()) {
+				return found;
+			}
+			id = visited.get(head++);
+		}
+	}
+
+	/**
+	 * 返回使用给定注解的类的类名。
+	 *
+	 * @param annotation
+	 *            注解的类名
+	 * @return 类名集合
+	 */
+	public Set<String> getTypesAnnotatedWith(String annotation) {
+		return targets(annotated, annotation);
+	}
+
+	/**
+	 * 返回直接使用给定注解, 或者使用了以给定注解（直接或者间接）注解的注解的类的类名。
+	 *
+	 * @param annotation
+	 *            注解的类名
+	 * @return 类名集合
+	 */
+	public Set<String> getTypesMetaAnnotatedWith(String annotation) {
+		return targets(metaAnnotated, annotation);
+	}
+
+	/**
+	 * 返回有方法或者字段使用给定注解的类的类名。
+	 *
+	 * @param annotation
+	 *            注解的类名
+	 * @return 类名集合
+	 */
+	public Set<String> getTypesWithMembersAnnotatedWith(String annotation) {
+		return targets(memberAnnotated, annotation);
+	}
+
+	private Set<String> targets(Adjacency adjacency, String name) {
+		final int id = symbols.get(name);
+		final ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+		for (int i = adjacency.start(id), end = adjacency.end(id); i < end; i++) {
+			builder.add(symbols.get(adjacency.target(i)));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * 返回给定注解上直接和间接声明的所有注解的类名。
+	 *
+	 * @param annotation
+	 *            注解的类名
+	 * @return 元注解的类名集合
+	 */
+	public Set<String> getMetaAnnotations(String annotation) {
+		final Set<String> metas = metaAnnotations.get(annotation);
+		return metas == null ? ImmutableSet.<String> of() : metas;
+	}
+
+	/**
+	 * 返回给定注解的属性的默认值。
+	 *
+	 * @param annotation
+	 *            注解的类名
+	 * @return 属性名到默认值的映射, 注解类无法读取时为空
+	 */
+	public Map<String, Object> getDefaults(String annotation) {
+		final Collector collector = annotationTypes.get(annotation);
+		if (collector == null || collector.getDefaults() == null) {
+			return ImmutableMap.of();
+		}
+		return collector.getDefaults();
+	}
+
+	private Set<String> resolveMetaAnnotations(String annotation) {
+		Set<String> metas = metaAnnotations.get(annotation);
+		if (metas != null) {
+			return metas;
+		}
+		final Set<String> found = Sets.newLinkedHashSet();
+		final Deque<String> pending = new ArrayDeque<>();
+		pending.add(annotation);
+		while (!pending.isEmpty()) {
+			final Collector collector = annotationTypes.get(pending.poll());
+			if (collector == null || collector.getAnnotations() == null) {
+				continue;
+			}
+			for (String meta : collector.getAnnotations()) {
+				if (found.add(meta)) {
+					pending.add(meta);
+				}
+			}
+		}
+		metas = ImmutableSet.copyOf(found);
+		metaAnnotations.put(annotation, metas);
+		return metas;
+	}
+
+	/**
+	 * 一个类路径条目的扫描结果和扫描时的指纹。
+	 *
+	 */
+	static final class EntryScan {
+
+		private final Fingerprint fingerprint;
+		private final String[] types;
+		private final Collector[] classes;
+		private final boolean complete;
+
+		EntryScan(Fingerprint fingerprint, Map<String, Collector> classes, boolean complete) {
+			this.fingerprint = fingerprint;
+			this.types = new String[classes.size()];
+			this.classes = new Collector[classes.size()];
+			this.complete = complete;
+			int i = 0;
+			for (Map.Entry<String, Collector> item : classes.entrySet()) {
+				this.types[i] = SymbolTable.intern(item.getKey());
+				this.classes[i++] = item.getValue();
+			}
+		}
+
+		public Fingerprint getFingerprint() {
+			return fingerprint;
+		}
+
+		public int size() {
+			return types.length;
+		}
+
+		public String getType(int index) {
+			return types[index];
+		}
+
+		public Collector getCollector(int index) {
+			return classes[index];
+		}
+
+		/**
+		 * 扫描时是否读取了所有的类。有读取失败的类时, 即使指纹相同也需要重新扫描。
+		 *
+		 * @return 所有的类都已读取时返回true
+		 */
+		public boolean isComplete() {
+			return complete;
+		}
+	}
+}
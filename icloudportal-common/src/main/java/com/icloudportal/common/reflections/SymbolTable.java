@@ -0,0 +1,108 @@
+package com.icloudportal.common.reflections;
+
+import java.util.Arrays;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * {@link SymbolTable}为类名和注解名分配连续的整数编号, 使扫描结果可以用
+ * 基本类型的数组（参见{@link Adjacency}）保存, 而不是大量的字符串集合。<br>
+ * <br>
+ * 名称保存在数组中, 按名称查找编号使用开放寻址的哈希表, 每个名称只需要两个数组元素。
+ * 符号表在创建快照时填充, 之后只读, 可以被多个线程共享。
+ *
+ */
+final class SymbolTable {
+
+	private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+	private String[] symbols = new String[64];
+	private int[] table = new int[128];
+	private int size;
+
+	/**
+	 * 返回给定字符串的驻留（intern）副本, 使相同的名称在所有类之间共享一个实例。
+	 *
+	 * @param value
+	 *            字符串
+	 * @return 驻留的字符串
+	 */
+	static String intern(String value) {
+		return STRINGS.intern(value);
+	}
+
+	/**
+	 * 添加给定的名称。
+	 *
+	 * @param name
+	 *            名称
+	 * @return 名称的编号, 已经存在时返回原来的编号
+	 */
+	public int add(String name) {
+		int slot = slot(name);
+		if (table[slot] != 0) {
+			return table[slot] - 1;
+		}
+		if (size == symbols.length) {
+			symbols = Arrays.copyOf(symbols, size << 1);
+		}
+		symbols[size] = intern(name);
+		table[slot] = ++size;
+		if (size << 1 > table.length) {
+			rehash();
+		}
+		return size - 1;
+	}
+
+	/**
+	 * 返回给定名称的编号。
+	 *
+	 * @param name
+	 *            名称
+	 * @return 编号, 不存在时返回-1
+	 */
+	public int get(String name) {
+		return table[slot(name)] - 1;
+	}
+
+	/**
+	 * 返回给定编号的名称。
+	 *
+	 * @param id
+	 *            编号
+	 * @return 名称
+	 */
+	public String get(int id) {
+		return symbols[id];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private int slot(String name) {
+		final int mask = table.length - 1;
+		int slot = spread(name.hashCode()) & mask;
+		while (table[slot] != 0 && !symbols[table[slot] - 1].equals(name)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		table = new int[table.length << 1];
+		final int mask = table.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = spread(symbols[id].hashCode()) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id + 1;
+		}
+	}
+
+	private static int spread(int hash) {
+		return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+	}
+}
@@ -0,0 +1,57 @@
+package com.icloudportal.common;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * 基准测试的简单计时器：先预热, 然后多次执行并打印每次执行的中位数耗时。<br>
+ * <br>
+ * 基准测试类（<code>*Benchmark</code>）带有<code>main</code>方法, 不由测试任务执行,
+ * 在IDE中运行或者在<code>gradle testClasses</code>之后使用测试类路径运行, 例如：
+ *
+ * <pre>
+ * java -cp build/classes/test:build/classes/main:&lt;依赖&gt; com.icloudportal.common.InflectionsBenchmark
+ * </pre>
+ *
+ */
+public final class BenchmarkRunner {
+
+	private static volatile Object sink;
+
+	private final int warmups;
+	private final int rounds;
+
+	public BenchmarkRunner(int warmups, int rounds) {
+		this.warmups = warmups;
+		this.rounds = rounds;
+	}
+
+	/**
+	 * 执行给定的任务并打印中位数耗时。
+	 *
+	 * @param name
+	 *            名称
+	 * @param operations
+	 *            每次执行包含的操作数量, 用于计算每个操作的耗时
+	 * @param task
+	 *            任务, 返回值被保存以防止被优化掉
+	 * @return 每次执行的中位数耗时（纳秒）
+	 * @throws Exception
+	 *             任务抛出的异常
+	 */
+	public long run(String name, long operations, Callable<?> task) throws Exception {
+		for (int i = 0; i < warmups; i++) {
+			sink = task.call();
+		}
+		final long[] times = new long[rounds];
+		for (int i = 0; i < rounds; i++) {
+			final long start = System.nanoTime();
+			sink = task.call();
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		final long median = times[rounds / 2];
+		System.out.printf("%-40s %10.3f ms %10.1f ns/op%n", name, median / 1e6, (double) median / operations);
+		return median;
+	}
+}
@@ -0,0 +1,139 @@
+package com.icloudportal.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * 测试{@link DirectoryComparator}报告的新增、删除和修改。
+ */
+public class DirectoryComparatorTest {
+
+	private Path root;
+	private Path original;
+	private Path revised;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("directory-comparator");
+		original = DirectoryHasherTest.tree(root.resolve("original"));
+		revised = DirectoryHasherTest.tree(root.resolve("revised"));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	private static final class Recorder implements DirectoryComparator.Listener {
+
+		final List<String> added = Lists.newArrayList();
+		final List<String> removed = Lists.newArrayList();
+		final List<String> modified = Lists.newArrayList();
+
+		@Override
+		public void added(Path path) {
+			added.add(path.toString());
+		}
+
+		@Override
+		public void removed(Path path) {
+			removed.add(path.toString());
+		}
+
+		@Override
+		public void modified(Path path) {
+			modified.add(path.toString());
+		}
+	}
+
+	@Test
+	public void testSame() throws IOException {
+		final Recorder recorder = new Recorder();
+		assertEquals(0, FileUtils.compareDirectories(original, revised, recorder));
+		assertEquals(0, recorder.added.size() + recorder.removed.size() + recorder.modified.size());
+		assertFalse(FileUtils.comparator(original, revised).differs());
+	}
+
+	@Test
+	public void testDifferences() throws IOException {
+		Files.write(revised.resolve("added"), new byte[] { 1 });
+		FileUtils.deleter(revised.resolve("d4")).delete();
+		// 大小不同
+		Files.write(revised.resolve("d0/e0/f0"), "changed".getBytes("UTF-8"));
+		// 大小相同, 修改时间不同, 内容不同
+		Files.write(revised.resolve("d1/e0/f1"), "fi1e 1".getBytes("UTF-8"));
+		Files.setLastModifiedTime(revised.resolve("d1/e0/f1"), FileTime.fromMillis(0));
+		// 大小和内容相同, 修改时间不同
+		Files.setLastModifiedTime(revised.resolve("d1/e1/f6"), FileTime.fromMillis(0));
+		// 类型不同
+		Files.delete(revised.resolve("d2/e0/f2"));
+		Files.createDirectories(revised.resolve("d2/e0/f2"));
+
+		for (int threads : new int[] { 1, 4 }) {
+			final Recorder recorder = new Recorder();
+			assertEquals(5, FileUtils.comparator(original, revised).parallel(threads).compare(recorder));
+			assertEquals(Lists.newArrayList("added"), recorder.added);
+			assertEquals(Lists.newArrayList("d4"), recorder.removed);
+			assertEquals(Sets.newHashSet(Paths.get("d0/e0/f0").toString(), Paths.get("d1/e0/f1").toString(),
+					Paths.get("d2/e0/f2").toString()), Sets.newHashSet(recorder.modified));
+		}
+		assertTrue(FileUtils.comparator(original, revised).differs());
+	}
+
+	@Test
+	public void testSymbolicLinks() throws IOException {
+		try {
+			Files.createSymbolicLink(original.resolve("link"), Paths.get("d1"));
+			Files.createSymbolicLink(revised.resolve("link"), Paths.get("d1"));
+		} catch (UnsupportedOperationException | IOException e) {
+			return;
+		}
+		assertFalse(FileUtils.comparator(original, revised).differs());
+		Files.delete(revised.resolve("link"));
+		Files.createSymbolicLink(revised.resolve("link"), Paths.get("d2"));
+		final Recorder recorder = new Recorder();
+		assertEquals(1, FileUtils.compareDirectories(original, revised, recorder));
+		assertEquals(Lists.newArrayList("link"), recorder.modified);
+	}
+
+	@Test
+	public void testNamedPipe() throws Exception {
+		if (!DirectoryHasherTest.mkfifo(original.resolve("pipe"))
+				|| !DirectoryHasherTest.mkfifo(revised.resolve("pipe"))) {
+			return;
+		}
+		Files.write(revised.resolve("d0/e0/f0"), "file 0".getBytes("UTF-8"));
+		Files.setLastModifiedTime(revised.resolve("d0/e0/f0"), FileTime.fromMillis(0));
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final boolean differs = executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws IOException {
+					return FileUtils.comparator(original, revised).differs();
+				}
+			}).get(30, TimeUnit.SECONDS);
+			assertFalse(differs);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
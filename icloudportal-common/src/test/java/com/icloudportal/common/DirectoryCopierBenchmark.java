@@ -0,0 +1,86 @@
+package com.icloudportal.common;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * 比较{@link DirectoryCopier}使用<code>Files.copy</code>、<code>transferTo</code>和硬链接复制
+ * 几个大文件和大量小文件的耗时, 以及使用不同数量的线程复制小文件的耗时, 运行方法见{@link BenchmarkRunner}。<br>
+ * <br>
+ * 可以用第一个参数指定临时目录, 大文件的结果取决于文件系统和JDK是否使用内核复制。
+ */
+public class DirectoryCopierBenchmark {
+
+	private static final int LARGE_FILES = 4;
+	private static final int LARGE_SIZE = 64 << 20;
+	private static final int SMALL_FILES = 10000;
+	private static final int SMALL_SIZE = 2048;
+
+	public static void main(String[] args) throws Exception {
+		final Path root = args.length > 0 ? Files.createTempDirectory(Paths.get(args[0]), "copier")
+				: Files.createTempDirectory("copier");
+		try {
+			final Path large = root.resolve("large");
+			final Path small = root.resolve("small");
+			final Random random = new Random(23);
+			Files.createDirectories(large);
+			for (int i = 0; i < LARGE_FILES; i++) {
+				Files.write(large.resolve("f" + i), bytes(random, LARGE_SIZE));
+			}
+			for (int i = 0; i < SMALL_FILES; i++) {
+				final Path dir = Files.createDirectories(small.resolve("d" + i % 40));
+				Files.write(dir.resolve("f" + i), bytes(random, SMALL_SIZE));
+			}
+			final BenchmarkRunner runner = new BenchmarkRunner(1, 5);
+			for (String name : new String[] { "large", "small" }) {
+				final Path source = root.resolve(name);
+				final int files = name.equals("large") ? LARGE_FILES : SMALL_FILES;
+				run(runner, name + " (Files.copy)", files, root, source, 1, Long.MAX_VALUE, false);
+				run(runner, name + " (transferTo)", files, root, source, 1, 0, false);
+				run(runner, name + " (hard links)", files, root, source, 1, Long.MAX_VALUE, true);
+			}
+			// 串行与并行复制小文件, 相邻执行以减少磁盘回写的影响
+			for (int threads : new int[] { 1, 2, 4, 8 }) {
+				run(runner, "small (" + threads + " threads)", SMALL_FILES, root, small, threads, Long.MAX_VALUE,
+						false);
+			}
+		} finally {
+			FileUtils.deleteDirectory(root);
+		}
+	}
+
+	/**
+	 * 每次执行复制到新的目标目录, 全部执行完成后再删除, 删除不计入耗时。
+	 */
+	private static void run(BenchmarkRunner runner, String name, int files, final Path root, final Path source,
+			final int threads, final long threshold, final boolean hardLinks) throws Exception {
+		final Path targets = Files.createDirectory(root.resolve("targets"));
+		try {
+			runner.run(name, files, new Callable<Object>() {
+				private int count;
+
+				@Override
+				public Object call() throws IOException {
+					final DirectoryCopier copier = FileUtils.copier(source, targets.resolve("t" + count++))
+							.parallel(threads).transferThreshold(threshold);
+					if (hardLinks) {
+						copier.hardLinks();
+					}
+					return copier.copy();
+				}
+			});
+		} finally {
+			FileUtils.deleteDirectory(targets);
+		}
+	}
+
+	private static byte[] bytes(Random random, int size) {
+		final byte[] bytes = new byte[size];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+}
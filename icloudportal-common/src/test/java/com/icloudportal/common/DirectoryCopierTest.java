@@ -0,0 +1,208 @@
+package com.icloudportal.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * 比较{@link DirectoryCopier}复制的目录树与源目录树的内容、修改时间和权限。
+ */
+public class DirectoryCopierTest {
+
+	private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+	private Path root;
+	private Path source;
+	private Path target;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("directory-copier");
+		source = root.resolve("source");
+		target = root.resolve("target");
+		final Random random = new Random(21);
+		for (int i = 0; i < 60; i++) {
+			final Path dir = source.resolve("d" + i % 4).resolve("e" + i % 3);
+			Files.createDirectories(dir);
+			final byte[] bytes = new byte[random.nextInt(20000)];
+			random.nextBytes(bytes);
+			final Path file = Files.write(dir.resolve("f" + i + ".bin"), bytes);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(1400000000000L + i * 1000L));
+			if (POSIX && i % 5 == 0) {
+				Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+			}
+		}
+		Files.createDirectories(source.resolve("empty"));
+		Files.setLastModifiedTime(source.resolve("d1"), FileTime.fromMillis(1300000000000L));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	/**
+	 * 返回目录树中每个子项的类型、内容、修改时间和权限。
+	 */
+	private static Map<Path, String> describe(final Path dir) throws IOException {
+		final Map<Path, String> entries = Maps.newTreeMap();
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
+				if (!path.equals(dir)) {
+					entries.put(dir.relativize(path), "d " + describe(path, attrs));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+				final byte[] bytes = Files.readAllBytes(path);
+				entries.put(dir.relativize(path), "f " + describe(path, attrs) + " " + Arrays.hashCode(bytes));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return entries;
+	}
+
+	private static String describe(Path path, BasicFileAttributes attrs) throws IOException {
+		final String permissions = POSIX ? PosixFilePermissions.toString(Files.getPosixFilePermissions(path)) : "";
+		return attrs.lastModifiedTime().toMillis() + " " + permissions;
+	}
+
+	@Test
+	public void testCopy() throws IOException {
+		final CopySummary summary = FileUtils.copier(source, target).copy();
+		assertEquals(60, summary.getFiles());
+		assertEquals(describe(source), describe(target));
+	}
+
+	@Test
+	public void testParallelCopy() throws IOException {
+		final CopySummary summary = FileUtils.copyDirectory(source, target, 4);
+		assertEquals(60, summary.getFiles());
+		assertEquals(describe(source), describe(target));
+	}
+
+	@Test
+	public void testTransfer() throws IOException {
+		final CopySummary summary = FileUtils.copier(source, target).parallel(2).transferThreshold(0).copy();
+		assertEquals(60, summary.getFiles());
+		assertEquals(describe(source), describe(target));
+	}
+
+	@Test
+	public void testTransferReplacesExisting() throws IOException {
+		FileUtils.copier(source, target).copy();
+		final Path file = target.resolve("d0/e0/f0.bin");
+		Files.write(file, "changed".getBytes(StandardCharsets.UTF_8));
+		FileUtils.copier(source, target).transferThreshold(0).copy();
+		assertEquals(describe(source), describe(target));
+	}
+
+	@Test
+	public void testSync() throws IOException {
+		FileUtils.copier(source, target).copy();
+		final Path changed = source.resolve("d0/e0/f0.bin");
+		Files.write(changed, new byte[] { 1, 2, 3 });
+		Files.write(source.resolve("d0/added.txt"), new byte[] { 4 });
+		Files.write(target.resolve("d0/extra.txt"), new byte[] { 5 });
+		Files.createDirectories(target.resolve("gone/deep"));
+
+		final CopySummary summary = FileUtils.syncDirectory(source, target, true);
+		assertEquals(2, summary.getFiles());
+		assertEquals(59, summary.getSkipped());
+		assertEquals(3, summary.getDeleted());
+		assertEquals(describe(source), describe(target));
+
+		final CopySummary again = FileUtils.syncDirectory(source, target, true);
+		assertEquals(0, again.getFiles());
+		assertEquals(61, again.getSkipped());
+	}
+
+	@Test
+	public void testCompareContent() throws IOException {
+		FileUtils.copier(source, target).copy();
+		// 大小和修改时间相同但内容不同
+		final Path file = target.resolve("d1/e1/f1.bin");
+		final byte[] bytes = Files.readAllBytes(file);
+		bytes[0] ^= 1;
+		final FileTime modified = Files.getLastModifiedTime(file);
+		Files.write(file, bytes);
+		Files.setLastModifiedTime(file, modified);
+
+		assertEquals(0, FileUtils.copier(source, target).sync().copy().getFiles());
+		assertFalse(Arrays.equals(Files.readAllBytes(source.resolve("d1/e1/f1.bin")), Files.readAllBytes(file)));
+
+		final CopySummary summary = FileUtils.copier(source, target).compareContent().copy();
+		assertEquals(1, summary.getFiles());
+		assertArrayEquals(Files.readAllBytes(source.resolve("d1/e1/f1.bin")), Files.readAllBytes(file));
+	}
+
+	@Test
+	public void testCompareContentInZip() throws IOException {
+		final URI uri = URI.create("jar:" + root.resolve("tree.zip").toUri());
+		final FileSystem zip = FileSystems.newFileSystem(uri, ImmutableMap.of("create", "true"));
+		try {
+			final Path from = Files.createDirectories(zip.getPath("/source/sub"));
+			for (int i = 0; i < 20; i++) {
+				Files.write(from.resolve("f" + i), ("file " + i).getBytes(StandardCharsets.UTF_8));
+			}
+			final Path to = zip.getPath("/target");
+			FileUtils.copier(from, to).copy();
+			for (int threads : new int[] { 1, 2 }) {
+				// 大小和修改时间相同但内容不同
+				final Path file = to.resolve("f7");
+				final FileTime modified = Files.getLastModifiedTime(file);
+				Files.write(file, "file X".getBytes(StandardCharsets.UTF_8));
+				Files.setLastModifiedTime(file, modified);
+
+				final CopySummary summary = FileUtils.copier(from, to).parallel(threads).compareContent().copy();
+				assertEquals(1, summary.getFiles());
+				assertEquals(19, summary.getSkipped());
+				assertEquals("file 7", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+			}
+		} finally {
+			zip.close();
+		}
+	}
+
+	@Test
+	public void testHardLinks() throws IOException {
+		final CopySummary summary = FileUtils.copier(source, target).hardLinks().copy();
+		assertEquals(60, summary.getLinked() + summary.getFiles());
+		assertEquals(describe(source), describe(target));
+		if (summary.getLinked() > 0) {
+			assertTrue(Files.isSameFile(source.resolve("d2/e2/f2.bin"), target.resolve("d2/e2/f2.bin")));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidSource() throws IOException {
+		FileUtils.copier(root.resolve("missing"), target).copy();
+	}
+}
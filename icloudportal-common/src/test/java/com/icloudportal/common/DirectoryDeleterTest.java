@@ -0,0 +1,183 @@
+package com.icloudportal.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * 测试{@link DirectoryDeleter}的删除、墓碑目录和符号链接的处理。
+ */
+public class DirectoryDeleterTest {
+
+	private Path root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("directory-deleter");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	/**
+	 * 创建包含40个文件、12个子目录和一个空目录的目录树, 共53个子项。
+	 */
+	private Path tree(String name) throws IOException {
+		final Path dir = root.resolve(name);
+		for (int i = 0; i < 40; i++) {
+			final Path sub = Files.createDirectories(dir.resolve("d" + i % 4).resolve("e" + i / 4 % 2));
+			Files.write(sub.resolve("f" + i), new byte[i]);
+		}
+		Files.createDirectories(dir.resolve("empty"));
+		return dir;
+	}
+
+	private List<String> names() throws IOException {
+		final List<String> names = Lists.newArrayList();
+		final DirectoryStream<Path> entries = Files.newDirectoryStream(root);
+		try {
+			for (Path entry : entries) {
+				names.add(entry.getFileName().toString());
+			}
+		} finally {
+			entries.close();
+		}
+		return names;
+	}
+
+	@Test
+	public void testDelete() throws IOException {
+		assertEquals(54, FileUtils.deleter(tree("tree")).delete());
+		assertEquals(54, FileUtils.deleteDirectoryParallel(tree("tree"), 4));
+		assertEquals(Lists.newArrayList(), names());
+	}
+
+	@Test
+	public void testDeleteInBackground() throws Exception {
+		final Path dir = tree("tree");
+		final ListenableFuture<Long> deleted = FileUtils.deleteDirectoryInBackground(dir);
+		// 返回时原来的路径已经不存在, 可以重新创建
+		assertFalse(Files.exists(dir));
+		tree("tree");
+		assertEquals(54, deleted.get().longValue());
+		assertEquals(54, FileUtils.deleter(dir).parallel(2).deleteInBackground().get().longValue());
+		assertEquals(Lists.newArrayList(), names());
+	}
+
+	@Test
+	public void testSymbolicLinks() throws IOException {
+		final Path outside = Files.createDirectories(root.resolve("outside"));
+		Files.write(outside.resolve("kept"), new byte[] { 1 });
+		final Path dir = tree("tree");
+		try {
+			Files.createSymbolicLink(dir.resolve("link"), outside);
+		} catch (UnsupportedOperationException | IOException e) {
+			return;
+		}
+		assertEquals(55, FileUtils.deleter(dir).parallel(3).delete());
+		assertFalse(Files.exists(dir));
+		assertTrue(Files.exists(outside.resolve("kept")));
+	}
+
+	@Test
+	public void testDeleteTombstones() throws IOException {
+		final String uuid = UUID.randomUUID().toString();
+		final Path tombstone = Files.createDirectories(root.resolve(".tree.deleting-" + uuid).resolve("sub"));
+		Files.write(tombstone.resolve("file"), new byte[] { 1 });
+		Files.createDirectories(root.resolve(".tree.deleting-backup"));
+		Files.createDirectories(root.resolve("tree.deleting-" + uuid));
+		Files.createDirectories(root.resolve("." + DirectoryDeleter.TOMBSTONE + uuid));
+		Files.write(root.resolve(".file.deleting-" + uuid), new byte[] { 1 });
+
+		assertEquals(3, FileUtils.deleteTombstones(root));
+		assertEquals(Sets.newHashSet(".tree.deleting-backup", "tree.deleting-" + uuid,
+				"." + DirectoryDeleter.TOMBSTONE + uuid, ".file.deleting-" + uuid), Sets.newHashSet(names()));
+	}
+
+	@Test
+	public void testFailure() throws IOException {
+		final Path dir = tree("tree");
+		// 第一个删除任务执行前在已经列出子项的墓碑目录中创建文件, 删除墓碑目录失败
+		final Executor executor = new Executor() {
+			private boolean first = true;
+
+			@Override
+			public void execute(Runnable command) {
+				if (first) {
+					first = false;
+					try {
+						for (String name : names()) {
+							if (name.startsWith(".tree" + DirectoryDeleter.TOMBSTONE)) {
+								Files.write(root.resolve(name).resolve("late"), new byte[] { 1 });
+							}
+						}
+					} catch (IOException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				command.run();
+			}
+		};
+		try {
+			FileUtils.deleter(dir).using(executor).delete();
+			fail();
+		} catch (DirectoryNotEmptyException e) {
+		}
+		// 原来的路径已经不存在, 遗留的墓碑目录可以清除
+		assertFalse(Files.exists(dir));
+		assertEquals(1, names().size());
+		assertTrue(FileUtils.deleteTombstones(root) > 0);
+		assertEquals(Lists.newArrayList(), names());
+	}
+
+	@Test
+	public void testRejected() throws IOException {
+		final Path dir = tree("tree");
+		// 第三个删除任务被拒绝, 已经提交的任务完成后抛出异常而不是等待被拒绝的任务
+		final Executor executor = new Executor() {
+			private int count;
+
+			@Override
+			public void execute(Runnable command) {
+				if (++count == 3) {
+					throw new RejectedExecutionException("rejected");
+				}
+				command.run();
+			}
+		};
+		try {
+			FileUtils.deleter(dir).using(executor).delete();
+			fail();
+		} catch (RejectedExecutionException e) {
+		}
+		assertEquals(1, names().size());
+		assertEquals(52, FileUtils.deleteTombstones(root));
+		assertEquals(Lists.newArrayList(), names());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidDirectory() throws IOException {
+		FileUtils.deleter(root.resolve("missing")).delete();
+	}
+}
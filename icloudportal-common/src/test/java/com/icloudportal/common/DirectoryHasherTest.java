@@ -0,0 +1,136 @@
+package com.icloudportal.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.hash.HashCode;
+
+/**
+ * 测试{@link DirectoryHasher}的哈希只与目录树的内容有关。
+ */
+public class DirectoryHasherTest {
+
+	private Path root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("directory-hasher");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	static Path tree(Path dir) throws IOException {
+		for (int i = 0; i < 50; i++) {
+			final Path sub = Files.createDirectories(dir.resolve("d" + i % 5).resolve("e" + i / 5 % 2));
+			Files.write(sub.resolve("f" + i), ("file " + i).getBytes("UTF-8"));
+		}
+		Files.createDirectories(dir.resolve("empty"));
+		return dir;
+	}
+
+	/**
+	 * 创建命名管道, 不支持时返回<code>false</code>。
+	 */
+	static boolean mkfifo(Path path) throws InterruptedException {
+		try {
+			return new ProcessBuilder("mkfifo", path.toString()).start().waitFor() == 0;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testHash() throws IOException {
+		final HashCode hash = FileUtils.hashDirectory(tree(root.resolve("a")));
+		assertEquals(hash, FileUtils.hasher(root.resolve("a")).parallel(4).hash());
+
+		// 修改时间和创建的顺序不影响哈希
+		final Path b = root.resolve("b");
+		Files.createDirectories(b.resolve("empty"));
+		tree(b);
+		Files.setLastModifiedTime(b.resolve("d1/e0/f1"), FileTime.fromMillis(0));
+		assertEquals(hash, FileUtils.hashDirectory(b));
+	}
+
+	@Test
+	public void testModified() throws IOException {
+		final Path dir = tree(root.resolve("a"));
+		final HashCode hash = FileUtils.hashDirectory(dir);
+
+		Files.write(dir.resolve("d2/e1/f7"), "changed".getBytes("UTF-8"));
+		final HashCode changed = FileUtils.hashDirectory(dir);
+		assertFalse(hash.equals(changed));
+
+		Files.move(dir.resolve("d2/e1/f7"), dir.resolve("d2/e1/g7"));
+		final HashCode renamed = FileUtils.hashDirectory(dir);
+		assertFalse(changed.equals(renamed));
+
+		Files.createDirectories(dir.resolve("d2/e1/f7"));
+		assertFalse(renamed.equals(FileUtils.hashDirectory(dir)));
+	}
+
+	@Test
+	public void testSymbolicLinks() throws IOException {
+		final Path dir = tree(root.resolve("a"));
+		final HashCode hash = FileUtils.hashDirectory(dir);
+		try {
+			Files.createSymbolicLink(dir.resolve("link"), Paths.get("d1"));
+		} catch (UnsupportedOperationException | IOException e) {
+			return;
+		}
+		final HashCode linked = FileUtils.hashDirectory(dir);
+		assertFalse(hash.equals(linked));
+
+		// 不跟随链接, 只计算链接目标
+		Files.delete(dir.resolve("link"));
+		Files.createSymbolicLink(dir.resolve("link"), Paths.get("d2"));
+		assertFalse(linked.equals(FileUtils.hashDirectory(dir)));
+		Files.delete(dir.resolve("link"));
+		Files.createSymbolicLink(dir.resolve("link"), Paths.get("d1"));
+		assertEquals(linked, FileUtils.hashDirectory(dir));
+	}
+
+	@Test
+	public void testNamedPipe() throws Exception {
+		final Path dir = tree(root.resolve("a"));
+		if (!mkfifo(dir.resolve("d3/pipe"))) {
+			return;
+		}
+		// 打开命名管道会一直阻塞, 在单独的线程中计算以免测试挂起
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final HashCode hash = executor.submit(new Callable<HashCode>() {
+				@Override
+				public HashCode call() throws IOException {
+					return FileUtils.hasher(dir).parallel(2).hash();
+				}
+			}).get(30, TimeUnit.SECONDS);
+			Files.delete(dir.resolve("d3/pipe"));
+			assertFalse(hash.equals(FileUtils.hashDirectory(dir)));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidDirectory() throws IOException {
+		FileUtils.hashDirectory(root.resolve("missing"));
+	}
+}
@@ -0,0 +1,101 @@
+package com.icloudportal.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 测试{@link DirectoryTasks}的错误记录和目录的完成顺序。
+ */
+public class DirectoryTasksTest {
+
+	private static final Path FILE = Paths.get("file");
+
+	private static final class Directory extends DirectoryTasks.Directory {
+
+		private final String name;
+		private final List<String> completed;
+		private final AtomicInteger running = new AtomicInteger();
+
+		Directory(String name, DirectoryTasks.Directory parent, List<String> completed) {
+			super(parent);
+			this.name = name;
+			this.completed = completed;
+		}
+
+		@Override
+		void complete() {
+			// 记录完成时尚未结束的任务数量, 在测试的线程中检查
+			synchronized (completed) {
+				completed.add(name + ":" + running.get());
+			}
+		}
+	}
+
+	private static void execute(DirectoryTasks tasks, final Directory directory) throws IOException {
+		directory.running.incrementAndGet();
+		tasks.execute(FILE, directory, new DirectoryTasks.FileTask() {
+			@Override
+			public void run() throws IOException {
+				directory.running.decrementAndGet();
+			}
+		});
+	}
+
+	@Test
+	public void testDirectoryCompletion() throws IOException {
+		final List<String> completed = Lists.newArrayList();
+		try (DirectoryTasks tasks = new DirectoryTasks("test", null, 4)) {
+			final Directory root = new Directory("root", null, completed);
+			final Directory child = new Directory("child", root, completed);
+			for (int i = 0; i < 100; i++) {
+				execute(tasks, i % 2 == 0 ? root : child);
+			}
+			child.release();
+			root.release();
+			tasks.await();
+			tasks.check();
+		}
+		// 所有子项的任务结束后目录才完成, 子目录先于父目录完成, await()返回时都已完成
+		assertEquals(Lists.newArrayList("child:0", "root:0"), completed);
+	}
+
+	@Test
+	public void testFailures() {
+		final IOException first = new IOException("first");
+		try (DirectoryTasks tasks = new DirectoryTasks("test", null, 1)) {
+			final Directory root = new Directory("root", null, Lists.<String> newArrayList());
+			tasks.execute(FILE, root, new DirectoryTasks.FileTask() {
+				@Override
+				public void run() throws IOException {
+					throw first;
+				}
+			});
+			tasks.execute(FILE, root, new DirectoryTasks.FileTask() {
+				@Override
+				public void run() throws IOException {
+					throw new IllegalStateException("second");
+				}
+			});
+			assertTrue(tasks.isFailed());
+			tasks.await();
+			tasks.check();
+			fail();
+		} catch (IOException e) {
+			assertSame(first, e);
+			assertEquals(1, e.getSuppressed().length);
+			assertEquals("Failed to test file", e.getSuppressed()[0].getMessage());
+		}
+	}
+}
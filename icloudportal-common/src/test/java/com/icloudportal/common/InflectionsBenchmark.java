@@ -0,0 +1,68 @@
+package com.icloudportal.common;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import com.google.common.collect.Lists;
+import com.icloudportal.common.Inflections.Dispatcher;
+import com.icloudportal.common.Inflections.Rule;
+
+/**
+ * 比较英语规则逐个执行与{@link Dispatcher}的单复数转换耗时, 运行方法见{@link BenchmarkRunner}。
+ */
+public class InflectionsBenchmark {
+
+	private static final String[] STEMS = { "order", "line", "customer", "address", "company", "category",
+			"status", "box", "church", "wife", "analysis", "datum", "person", "child", "octopus", "query", "user",
+			"invoice", "product", "tax", "series", "matrix", "vertex", "hive", "mouse", "shoe", "movie", "news" };
+
+	public static void main(String[] args) throws Exception {
+		Inflector.getInstance();
+		final Inflections inflections = Inflections.getInstance();
+		final Rule[] plurals = inflections.getPluralDispatcher().getRules();
+		final Dispatcher dispatcher = new Dispatcher(plurals);
+		final List<String> words = words(100000);
+		final BenchmarkRunner runner = new BenchmarkRunner(5, 11);
+
+		runner.run("pluralize (linear rules)", words.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int length = 0;
+				for (String word : words) {
+					for (Rule rule : plurals) {
+						final String result = rule.apply(word);
+						if (result != null) {
+							length += result.length();
+							break;
+						}
+					}
+				}
+				return length;
+			}
+		});
+		runner.run("pluralize (dispatcher)", words.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int length = 0;
+				for (String word : words) {
+					final String result = dispatcher.apply(word);
+					if (result != null) {
+						length += result.length();
+					}
+				}
+				return length;
+			}
+		});
+	}
+
+	private static List<String> words(int count) {
+		final Random random = new Random(16);
+		final List<String> words = Lists.newArrayListWithCapacity(count);
+		for (int i = 0; i < count; i++) {
+			final String stem = STEMS[random.nextInt(STEMS.length)];
+			words.add(random.nextBoolean() ? stem : STEMS[random.nextInt(STEMS.length)] + "_" + stem);
+		}
+		return words;
+	}
+}
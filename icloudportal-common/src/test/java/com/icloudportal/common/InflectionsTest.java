@@ -0,0 +1,151 @@
+package com.icloudportal.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.icloudportal.common.Inflections.Dispatcher;
+import com.icloudportal.common.Inflections.Rule;
+
+/**
+ * 比较{@link Dispatcher}与逐个执行规则的结果。
+ */
+public class InflectionsTest {
+
+	private static final String[] PIECES = { "a", "b", "c", "s", "x", "(a|b)", "(?:ab|c)", "(a|)", "[abc]",
+			"[^a]", ".", "a?", "b*", "c+", "a{2}", "\\.", "^", "(ch|sh)", "(?i)", "(?=s)", "\\w", "A" };
+
+	private static final String[] REPLACEMENTS = { "$0es", "z", "", "$0", "ies" };
+
+	private static final String LETTERS = "abcsxhAB.";
+
+	private static final String[] WORDS = { "quiz", "ox", "box", "mouse", "louse", "matrix", "vertex", "index",
+			"church", "class", "dish", "fox", "query", "day", "hive", "wife", "wolf", "half", "analysis", "datum",
+			"medium", "buffalo", "tomato", "bus", "alias", "status", "octopus", "virus", "axis", "testis", "news",
+			"dog", "person", "man", "child", "sex", "move", "equipment", "information", "rice", "money", "species",
+			"series", "fish", "sheep", "movie", "shoe", "crisis", "diagnosis", "basis", "thesis", "perspective",
+			"archive", "address", "user_account", "OrderLine", "x", "a.b", "y", "ies", "ves", "ses", "ices" };
+
+	/**
+	 * 按照规则的顺序逐个执行, 第一个匹配的规则的结果即为结果。
+	 */
+	private static String applyLinear(Rule[] rules, String word) {
+		for (Rule rule : rules) {
+			final String result = rule.apply(word);
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private static void assertSame(Rule[] rules, String word) {
+		final String message = word + " " + toString(rules);
+		assertEquals(message, applyLinear(rules, word), new Dispatcher(rules).apply(word));
+	}
+
+	private static String toString(Rule[] rules) {
+		final StringBuilder text = new StringBuilder();
+		for (Rule rule : rules) {
+			text.append(rule.getPattern()).append(" -> ").append(rule.getReplacement()).append("; ");
+		}
+		return text.toString();
+	}
+
+	@Test
+	public void testTopLevelAlternation() {
+		final Inflections inflections = Inflections.builder().plural("$", "s").plural("ch|sh$", "$0es").build();
+		assertEquals("chesart", inflections.pluralize("chart"));
+		assertEquals("dishes", inflections.pluralize("dish"));
+		assertEquals("dogs", inflections.pluralize("dog"));
+	}
+
+	@Test
+	public void testEndings() {
+		assertEquals(ImmutableSet.of("octopus", "virus"), Dispatcher.getEndings("(octop|vir)us$"));
+		assertEquals(ImmutableSet.of("ch", "sh"), Dispatcher.getEndings("(ch|sh)$"));
+		assertEquals(ImmutableSet.of("sis", "ses"), Dispatcher.getEndings("s(is|es)$"));
+		assertNull(Dispatcher.getEndings("ch|sh$"));
+		assertNull(Dispatcher.getEndings("(a|b)|c$"));
+		assertNull(Dispatcher.getEndings("(?i)ch$"));
+		assertNull(Dispatcher.getEndings("ch"));
+		assertNull(Dispatcher.getEndings("ch\\$"));
+	}
+
+	@Test
+	public void testEnglishRules() {
+		// 初始化英语规则
+		Inflector.getInstance();
+		final Inflections inflections = Inflections.getInstance();
+		final Rule[] plurals = inflections.getPluralDispatcher().getRules();
+		final Rule[] singulars = inflections.getSingularDispatcher().getRules();
+		for (String word : WORDS) {
+			for (String form : new String[] { word, word.toUpperCase(), Character.toUpperCase(word.charAt(0))
+					+ word.substring(1), word + "s", word + "es", word + "\n" }) {
+				assertSame(plurals, form);
+				assertSame(singulars, form);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomRules() {
+		final Random random = new Random(16);
+		for (int i = 0; i < 2000; i++) {
+			final Rule[] rules = randomRules(random);
+			for (int j = 0; j < 50; j++) {
+				assertSame(rules, randomWord(random));
+			}
+		}
+	}
+
+	private static Rule[] randomRules(Random random) {
+		final List<Rule> rules = Lists.newArrayList();
+		final int count = 1 + random.nextInt(8);
+		while (rules.size() < count) {
+			final String replacement = REPLACEMENTS[random.nextInt(REPLACEMENTS.length)];
+			if (random.nextInt(6) == 0) {
+				rules.add(new Rule(randomWord(random), replacement, true));
+				continue;
+			}
+			final StringBuilder pattern = new StringBuilder(randomSequence(random));
+			if (random.nextInt(4) == 0) {
+				pattern.append('|').append(randomSequence(random));
+			}
+			if (random.nextInt(6) != 0) {
+				pattern.append('$');
+			}
+			try {
+				rules.add(new Rule(pattern.toString(), replacement, false));
+			} catch (PatternSyntaxException e) {
+			}
+		}
+		return rules.toArray(new Rule[rules.size()]);
+	}
+
+	private static String randomSequence(Random random) {
+		final StringBuilder sequence = new StringBuilder();
+		for (int i = random.nextInt(4); i >= 0; i--) {
+			sequence.append(PIECES[random.nextInt(PIECES.length)]);
+		}
+		return sequence.toString();
+	}
+
+	private static String randomWord(Random random) {
+		final StringBuilder word = new StringBuilder();
+		for (int i = random.nextInt(6); i >= 0; i--) {
+			word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+		}
+		if (random.nextInt(50) == 0) {
+			word.append('\n');
+		}
+		return word.toString();
+	}
+}
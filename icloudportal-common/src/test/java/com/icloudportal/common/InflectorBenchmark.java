@@ -0,0 +1,97 @@
+package com.icloudportal.common;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 比较基于正则表达式的{@link RegexInflector}与{@link Inflector}的分词器的耗时,
+ * 运行方法见{@link BenchmarkRunner}。运行时不要启用转换结果的缓存。
+ */
+public class InflectorBenchmark {
+
+	private static final String[] PARTS = { "order", "Line", "customer", "Address", "HTTP", "Request", "id",
+			"_", "-", " ", "Invoice", "XML", "Parser", "user", "Account", "2" };
+
+	public static void main(String[] args) throws Exception {
+		final Inflector inflector = Inflector.getInstance();
+		final List<String> words = words(100000);
+		final BenchmarkRunner runner = new BenchmarkRunner(5, 11);
+
+		runner.run("underscore (regex)", words.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int length = 0;
+				for (String word : words) {
+					length += RegexInflector.underscore(word).length();
+				}
+				return length;
+			}
+		});
+		runner.run("underscore (tokenizer)", words.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int length = 0;
+				for (String word : words) {
+					length += inflector.underscore(word).length();
+				}
+				return length;
+			}
+		});
+		runner.run("camelize (regex)", words.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int length = 0;
+				for (String word : words) {
+					length += RegexInflector.camelize(word, false).length();
+				}
+				return length;
+			}
+		});
+		runner.run("camelize (tokenizer)", words.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int length = 0;
+				for (String word : words) {
+					length += inflector.camelize(word).length();
+				}
+				return length;
+			}
+		});
+		runner.run("titleize (regex)", words.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int length = 0;
+				for (String word : words) {
+					length += RegexInflector.titleize(word).length();
+				}
+				return length;
+			}
+		});
+		runner.run("titleize (tokenizer)", words.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int length = 0;
+				for (String word : words) {
+					length += inflector.titleize(word).length();
+				}
+				return length;
+			}
+		});
+	}
+
+	private static List<String> words(int count) {
+		final Random random = new Random(18);
+		final List<String> words = Lists.newArrayListWithCapacity(count);
+		for (int i = 0; i < count; i++) {
+			final StringBuilder word = new StringBuilder("x");
+			for (int j = 1 + random.nextInt(4); j > 0; j--) {
+				word.append(PARTS[random.nextInt(PARTS.length)]);
+			}
+			words.add(word.toString());
+		}
+		return words;
+	}
+}
@@ -0,0 +1,71 @@
+package com.icloudportal.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * 测试{@link Inflector}的转换结果缓存: 统计信息、大小限制, 以及规则变化后替换缓存。
+ */
+public class InflectorCacheTest {
+
+	@Test
+	public void testDisabled() {
+		final Inflector inflector = new Inflector(0);
+		assertEquals("order_lines", inflector.tableize("OrderLine"));
+		assertTrue(inflector.getCacheStats().isEmpty());
+	}
+
+	@Test
+	public void testStats() {
+		final Inflector inflector = new Inflector(100);
+		assertEquals("order_lines", inflector.tableize("OrderLine"));
+		assertEquals("order_lines", inflector.tableize("OrderLine"));
+		assertEquals("order_lines", inflector.tableize("OrderLine"));
+		assertEquals("OrderLine", inflector.classify("order_lines"));
+
+		final CacheStats tableize = inflector.getCacheStats().get("tableize");
+		assertEquals(1, tableize.missCount());
+		assertEquals(2, tableize.hitCount());
+		final CacheStats classify = inflector.getCacheStats().get("classify");
+		assertEquals(1, classify.missCount());
+		assertEquals(0, classify.hitCount());
+		assertEquals(0, inflector.getCacheStats().get("humanize").requestCount());
+
+		inflector.invalidateCache();
+		assertEquals("order_lines", inflector.tableize("OrderLine"));
+		assertEquals(2, inflector.getCacheStats().get("tableize").missCount());
+	}
+
+	@Test
+	public void testMaximumSize() {
+		final Inflector inflector = new Inflector(4);
+		final Inflector uncached = new Inflector(0);
+		for (int i = 0; i < 20; i++) {
+			assertEquals(uncached.tableize("Item" + i), inflector.tableize("Item" + i));
+		}
+		final CacheStats stats = inflector.getCacheStats().get("tableize");
+		assertEquals(20, stats.missCount());
+		assertTrue(stats.toString(), stats.evictionCount() >= 16);
+	}
+
+	@Test
+	public void testRuleChange() {
+		final Inflector inflector = new Inflector(100);
+		assertEquals("blorps", inflector.tableize("Blorp"));
+		assertEquals("Blorpen", inflector.classify("blorpen"));
+		assertEquals("blorps", inflector.tableize("Blorp"));
+		assertEquals(1, inflector.getCacheStats().get("tableize").hitCount());
+
+		// 添加规则后缓存被替换, 统计信息重新开始
+		Inflections.getInstance().irregular("blorp", "blorpen");
+		assertEquals("blorpen", inflector.tableize("Blorp"));
+		assertEquals("Blorp", inflector.classify("blorpen"));
+		final CacheStats tableize = inflector.getCacheStats().get("tableize");
+		assertEquals(1, tableize.missCount());
+		assertEquals(0, tableize.hitCount());
+	}
+}
@@ -0,0 +1,207 @@
+package com.icloudportal.common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 比较{@link Inflector}的分词器与基于正则表达式的{@link RegexInflector}的结果。
+ */
+public class InflectorTest {
+
+	private static final List<String> SPECIAL = Arrays.asList("AddressBook", "address_book", "Address book",
+			"contact_id", "_id", "__id", "a__id", "", "  ", "HTMLParser", "ABCDef", "ABcDEf", "a1B2", "x_id_",
+			"\u0001a\u0001", "İstanbul", "ΟΔΟΣ", "Iİ", "_", "a-_- b", "ID", "Id", "id",
+			"address-list", "  spaced  word ", "x\ty", "octopus", "Person", "ÉtéFort", "people", "mice",
+			"OrderLine", "order_lines", "XMLHttpRequest", "userID");
+
+	private static final String ASCII = "aAbBIiZz09_- \t\n\u000B";
+	private static final String ALL = ASCII + "\f\r\u0001\u0085 éİΣ";
+
+	private final Inflector inflector = Inflector.getInstance();
+
+	private static List<String> corpus(int count) {
+		final List<String> words = Lists.newArrayList(SPECIAL);
+		final Random random = new Random(18);
+		for (int i = 0; i < count; i++) {
+			final String letters = i % 2 == 0 ? ASCII : ALL;
+			final StringBuilder word = new StringBuilder();
+			for (int j = random.nextInt(10); j > 0; j--) {
+				word.append(letters.charAt(random.nextInt(letters.length())));
+			}
+			words.add(word.toString());
+		}
+		return words;
+	}
+
+	private interface Operation {
+		String apply(String word);
+	}
+
+	/**
+	 * 比较两个转换的结果, 抛出异常时比较异常的类型。
+	 */
+	private static void assertSame(String name, Operation expected, Operation actual, List<String> words) {
+		for (String word : words) {
+			assertEquals(name + " [" + word + "]", run(expected, word), run(actual, word));
+		}
+	}
+
+	private static String run(Operation operation, String word) {
+		try {
+			return operation.apply(word);
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+
+	@Test
+	public void testUnderscore() {
+		assertSame("underscore", new Operation() {
+			@Override
+			public String apply(String word) {
+				return RegexInflector.underscore(word);
+			}
+		}, new Operation() {
+			@Override
+			public String apply(String word) {
+				return inflector.underscore(word);
+			}
+		}, corpus(50000));
+	}
+
+	@Test
+	public void testCamelize() {
+		final List<String> words = corpus(50000);
+		assertSame("camelize", new Operation() {
+			@Override
+			public String apply(String word) {
+				return RegexInflector.camelize(word, false);
+			}
+		}, new Operation() {
+			@Override
+			public String apply(String word) {
+				return inflector.camelize(word);
+			}
+		}, words);
+		assertSame("lowerCamelize", new Operation() {
+			@Override
+			public String apply(String word) {
+				return RegexInflector.camelize(word, true);
+			}
+		}, new Operation() {
+			@Override
+			public String apply(String word) {
+				return inflector.camelize(word, true);
+			}
+		}, words);
+	}
+
+	@Test
+	public void testDasherize() {
+		assertSame("dasherize", new Operation() {
+			@Override
+			public String apply(String word) {
+				return RegexInflector.dasherize(word);
+			}
+		}, new Operation() {
+			@Override
+			public String apply(String word) {
+				return inflector.dasherize(word);
+			}
+		}, corpus(50000));
+	}
+
+	@Test
+	public void testHumanize() {
+		final List<String> words = corpus(50000);
+		assertSame("humanize", new Operation() {
+			@Override
+			public String apply(String word) {
+				return RegexInflector.humanize(word);
+			}
+		}, new Operation() {
+			@Override
+			public String apply(String word) {
+				return inflector.humanize(word);
+			}
+		}, words);
+		assertSame("titleize", new Operation() {
+			@Override
+			public String apply(String word) {
+				return RegexInflector.titleize(word);
+			}
+		}, new Operation() {
+			@Override
+			public String apply(String word) {
+				return inflector.titleize(word);
+			}
+		}, words);
+	}
+
+	@Test
+	public void testTableizeAndClassify() {
+		final List<String> words = corpus(20000);
+		assertSame("tableize", new Operation() {
+			@Override
+			public String apply(String word) {
+				return RegexInflector.tableize(word);
+			}
+		}, new Operation() {
+			@Override
+			public String apply(String word) {
+				return inflector.tableize(word);
+			}
+		}, words);
+		assertSame("classify", new Operation() {
+			@Override
+			public String apply(String word) {
+				return RegexInflector.classify(word);
+			}
+		}, new Operation() {
+			@Override
+			public String apply(String word) {
+				return inflector.classify(word);
+			}
+		}, words);
+	}
+
+	@Test
+	public void testAppendable() throws IOException {
+		final StringBuilder out = new StringBuilder();
+		for (String word : corpus(20000)) {
+			out.setLength(0);
+			inflector.underscore(word, out);
+			assertEquals(word, RegexInflector.underscore(word), out.toString());
+			out.setLength(0);
+			inflector.dasherize(word, out);
+			assertEquals(word, RegexInflector.dasherize(word), out.toString());
+			out.setLength(0);
+			inflector.camelize(word, true, out);
+			assertEquals(word, RegexInflector.camelize(word, true), out.toString());
+		}
+	}
+
+	@Test
+	public void testBatch() {
+		final List<String> words = corpus(10000).subList(0, 5000);
+		final List<String> underscored = inflector.underscoreAll(words);
+		final List<String> camelized = inflector.camelizeAll(words, false);
+		final List<String> tableized = inflector.tableizeAll(words);
+		final List<String> classified = inflector.classifyAll(words);
+		for (int i = 0; i < words.size(); i++) {
+			final String word = words.get(i);
+			assertEquals(word, inflector.underscore(word), underscored.get(i));
+			assertEquals(word, inflector.camelize(word), camelized.get(i));
+			assertEquals(word, inflector.tableize(word), tableized.get(i));
+			assertEquals(word, inflector.classify(word), classified.get(i));
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.icloudportal.common;
+
+import com.google.common.base.CaseFormat;
+
+/**
+ * 分词器之前基于正则表达式的{@link Inflector}转换, 作为比较结果和耗时的基准。
+ */
+final class RegexInflector {
+
+	private RegexInflector() {
+	}
+
+	static String underscore(String camelCase) {
+		return camelCase.trim()
+				.replaceAll("([A-Z]+)([A-Z][a-z])", "$1_$2")
+				.replaceAll("([a-z\\d])([A-Z])", "$1_$2")
+				.replaceAll("[-\\s]+", "_")
+				.toLowerCase();
+	}
+
+	static String camelize(String word, boolean lower) {
+		final CaseFormat target = lower ? CaseFormat.LOWER_CAMEL : CaseFormat.UPPER_CAMEL;
+		return CaseFormat.LOWER_UNDERSCORE.to(target, underscore(word));
+	}
+
+	static String dasherize(String word) {
+		return CaseFormat.LOWER_UNDERSCORE.to(CaseFormat.LOWER_HYPHEN, underscore(word));
+	}
+
+	static String humanize(String word) {
+		final String result = underscore(word)
+				.replaceAll("_id$", "")
+				.replaceAll("\\A_+", "")
+				.replaceAll("[_\\s]+", " ");
+		return capitalize(result);
+	}
+
+	static String titleize(String word) {
+		return capitalize(humanize(underscore(word)));
+	}
+
+	static String tableize(String camelCase) {
+		return Inflector.getInstance().pluralize(underscore(camelCase));
+	}
+
+	static String classify(String text) {
+		return camelize(underscore(Inflector.getInstance().singularize(text)), false);
+	}
+
+	private static String capitalize(String word) {
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+	}
+}
@@ -0,0 +1,61 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class AdjacencyTest {
+
+	private static List<Integer> targets(Adjacency adjacency, int id) {
+		final List<Integer> targets = Lists.newArrayList();
+		for (int i = adjacency.start(id), end = adjacency.end(id); i < end; i++) {
+			targets.add(adjacency.target(i));
+		}
+		return targets;
+	}
+
+	@Test
+	public void testInsertionOrder() {
+		final Adjacency adjacency = new Adjacency.Builder().add(2, 5).add(0, 1).add(2, 3).add(0, 4).add(2, 0)
+				.build(6);
+		assertEquals(ImmutableList.of(1, 4), targets(adjacency, 0));
+		assertEquals(ImmutableList.of(), targets(adjacency, 1));
+		assertEquals(ImmutableList.of(5, 3, 0), targets(adjacency, 2));
+		assertEquals(ImmutableList.of(), targets(adjacency, 5));
+	}
+
+	@Test
+	public void testOutOfRange() {
+		final Adjacency adjacency = new Adjacency.Builder().add(0, 1).build(2);
+		assertEquals(ImmutableList.of(), targets(adjacency, -1));
+		assertEquals(ImmutableList.of(), targets(adjacency, 2));
+		assertEquals(ImmutableList.of(), targets(new Adjacency.Builder().build(0), 0));
+	}
+
+	@Test
+	public void testRandom() {
+		final Random random = new Random(12);
+		final int symbols = 500;
+		final List<List<Integer>> expected = Lists.newArrayList();
+		for (int i = 0; i < symbols; i++) {
+			expected.add(Lists.<Integer> newArrayList());
+		}
+		final Adjacency.Builder builder = new Adjacency.Builder();
+		for (int i = 0; i < 5000; i++) {
+			final int source = random.nextInt(symbols);
+			final int target = random.nextInt(symbols);
+			builder.add(source, target);
+			expected.get(source).add(target);
+		}
+		final Adjacency adjacency = builder.build(symbols);
+		for (int i = 0; i < symbols; i++) {
+			assertEquals(expected.get(i), targets(adjacency, i));
+		}
+	}
+}
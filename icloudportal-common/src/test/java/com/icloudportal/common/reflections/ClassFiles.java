@@ -0,0 +1,82 @@
+package com.icloudportal.common.reflections;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.axelor.internal.asm.ClassWriter;
+import com.axelor.internal.asm.Opcodes;
+import com.google.common.io.ByteStreams;
+
+/**
+ * 在临时目录中生成或者复制类文件, 供扫描测试使用。
+ */
+final class ClassFiles {
+
+	private ClassFiles() {
+	}
+
+	/**
+	 * 生成一个类文件。
+	 *
+	 * @param root
+	 *            类目录
+	 * @param name
+	 *            类名
+	 * @param superName
+	 *            父类名
+	 * @param annotations
+	 *            类上的注解
+	 * @return 类文件
+	 */
+	static Path write(Path root, String name, String superName, String... annotations) throws IOException {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, name.replace('.', '/'), null, superName.replace('.', '/'),
+				null);
+		for (String annotation : annotations) {
+			writer.visitAnnotation("L" + annotation.replace('.', '/') + ";", true).visitEnd();
+		}
+		writer.visitEnd();
+		return write(root, name, writer.toByteArray());
+	}
+
+	/**
+	 * 将测试中编译的类复制到类目录。
+	 *
+	 * @param root
+	 *            类目录
+	 * @param type
+	 *            要复制的类
+	 * @return 类文件
+	 */
+	static Path copy(Path root, Class<?> type) throws IOException {
+		final String resource = type.getName().replace('.', '/') + ".class";
+		try (InputStream in = type.getClassLoader().getResourceAsStream(resource)) {
+			return write(root, type.getName(), ByteStreams.toByteArray(in));
+		}
+	}
+
+	private static Path write(Path root, String name, byte[] bytes) throws IOException {
+		final Path file = root.resolve(name.replace('.', '/') + ".class");
+		Files.createDirectories(file.getParent());
+		return Files.write(file, bytes);
+	}
+
+	/**
+	 * 返回只包含给定目录的类加载器, 父加载器是加载测试的类加载器。
+	 *
+	 * @param roots
+	 *            类目录或者jar文件
+	 * @return 类加载器
+	 */
+	static URLClassLoader loader(Path... roots) throws IOException {
+		final URL[] urls = new URL[roots.length];
+		for (int i = 0; i < roots.length; i++) {
+			urls[i] = roots[i].toUri().toURL();
+		}
+		return new URLClassLoader(urls, ClassFiles.class.getClassLoader());
+	}
+}
@@ -0,0 +1,139 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.icloudportal.common.reflections.fixture.Base;
+import com.icloudportal.common.reflections.fixture.Billing;
+import com.icloudportal.common.reflections.fixture.Customer;
+import com.icloudportal.common.reflections.fixture.Invoice;
+import com.icloudportal.common.reflections.fixture.Kind;
+import com.icloudportal.common.reflections.fixture.Layer;
+import com.icloudportal.common.reflections.fixture.Model;
+import com.icloudportal.common.reflections.fixture.Plain;
+import com.icloudportal.common.reflections.fixture.Service;
+import com.icloudportal.common.reflections.fixture.Stereotype;
+
+/**
+ * 测试{@link ClassFinder}在扫描索引上检查注解属性和元注解。
+ */
+public class ClassFinderTest {
+
+	private static final String PACKAGE = Base.class.getPackage().getName();
+
+	private static ClassFinder<?> types() {
+		return Reflections.findTypes(ClassFinderTest.class.getClassLoader()).within(PACKAGE);
+	}
+
+	private static ClassFinder<Base> subTypes() {
+		return Reflections.findSubTypesOf(Base.class, ClassFinderTest.class.getClassLoader()).within(PACKAGE);
+	}
+
+	/**
+	 * 同时检查加载类的结果、不加载类的描述, 以及按父类查找时的结果。
+	 */
+	private static void assertFound(Set<Class<?>> expected, String name, Object value) {
+		assertEquals(name + "=" + value, expected, ImmutableSet.copyOf(types().having(Model.class, name, value).find()));
+		assertEquals(name + "=" + value, expected,
+				ImmutableSet.copyOf(subTypes().having(Model.class, name, value).find()));
+		final Set<Class<?>> described = Sets.newHashSet();
+		for (ClassDescriptor descriptor : types().having(Model.class, name, value).findDescriptors()) {
+			described.add(load(descriptor));
+		}
+		assertEquals(name + "=" + value, expected, described);
+	}
+
+	private static Class<?> load(ClassDescriptor descriptor) {
+		try {
+			return descriptor.load();
+		} catch (ClassNotFoundException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static Set<Class<?>> of(Class<?>... classes) {
+		return ImmutableSet.copyOf(classes);
+	}
+
+	@Test
+	public void testStringAttribute() {
+		assertFound(of(Customer.class), "name", "customer");
+		assertFound(of(), "name", "unknown");
+	}
+
+	@Test
+	public void testEnumAttribute() {
+		assertFound(of(Invoice.class), "kind", Kind.VIEW);
+		// Plain没有给出kind, 使用默认值ENTITY
+		assertFound(of(Customer.class, Plain.class), "kind", Kind.ENTITY);
+	}
+
+	@Test
+	public void testArrayAttribute() {
+		// 数组包含给定的值
+		assertFound(of(Customer.class, Invoice.class), "tags", "b");
+		assertFound(of(Customer.class), "tags", "a");
+		// 数组与给定的数组相等
+		assertFound(of(Customer.class), "tags", new String[] { "a", "b" });
+		assertFound(of(Plain.class), "tags", new String[0]);
+	}
+
+	@Test
+	public void testClassAttribute() {
+		assertFound(of(Customer.class), "handler", String.class);
+		assertFound(of(Invoice.class, Plain.class), "handler", Object.class);
+	}
+
+	@Test
+	public void testDefaultValue() {
+		assertFound(of(Customer.class), "order", 2);
+		assertFound(of(Invoice.class, Plain.class), "order", 0);
+		assertFound(of(Plain.class), "name", "");
+	}
+
+	@Test
+	public void testMetaAnnotation() {
+		// 直接使用的注解, 注解上的注解, 以及间接的元注解; 注解类本身也是使用了元注解的类
+		assertEquals(of(Billing.class), ImmutableSet.copyOf(types().havingMeta(Service.class).find()));
+		assertEquals(of(Service.class, Billing.class), ImmutableSet.copyOf(types().havingMeta(Layer.class).find()));
+		assertEquals(of(Layer.class, Service.class, Billing.class),
+				ImmutableSet.copyOf(types().havingMeta(Stereotype.class).find()));
+		assertEquals(of(Billing.class), ImmutableSet.copyOf(subTypes().havingMeta(Stereotype.class).find()));
+		assertEquals(of(Customer.class, Invoice.class, Plain.class),
+				ImmutableSet.copyOf(types().havingMeta(Model.class).find()));
+	}
+
+	@Test
+	public void testAnyCondition() {
+		final Set<Class<?>> found = ImmutableSet.copyOf(subTypes().having(Model.class, "kind", Kind.VIEW)
+				.havingMeta(Stereotype.class).any().find());
+		assertEquals(of(Invoice.class, Billing.class), found);
+		assertEquals(of(), ImmutableSet.copyOf(subTypes().having(Model.class, "kind", Kind.VIEW)
+				.havingMeta(Stereotype.class).find()));
+	}
+
+	@Test
+	public void testTypesAllConditions() {
+		// 类型为Object时也要同时满足所有条件
+		assertEquals(of(Invoice.class), ImmutableSet.copyOf(types().having(Model.class)
+				.having(Model.class, "kind", Kind.VIEW).find()));
+		assertEquals(1, types().having(Model.class).having(Model.class, "kind", Kind.VIEW).findDescriptors().size());
+		assertEquals(of(), ImmutableSet.copyOf(types().having(Model.class, "kind", Kind.VIEW)
+				.havingMeta(Stereotype.class).find()));
+		assertEquals(0, types().having(Model.class, "kind", Kind.VIEW).havingMeta(Stereotype.class)
+				.findDescriptors().size());
+	}
+
+	@Test
+	public void testTypesAnyCondition() {
+		assertEquals(of(Customer.class, Invoice.class, Plain.class), ImmutableSet.copyOf(types().having(Model.class)
+				.having(Model.class, "kind", Kind.VIEW).any().find()));
+		assertEquals(of(Invoice.class, Layer.class, Service.class, Billing.class), ImmutableSet.copyOf(types()
+				.having(Model.class, "kind", Kind.VIEW).havingMeta(Stereotype.class).any().find()));
+	}
+}
@@ -0,0 +1,159 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.icloudportal.common.FileUtils;
+import com.icloudportal.common.reflections.ClassScanner.Collector;
+
+public class ClassIndexStoreTest {
+
+	private static final Set<String> NONE = Collections.emptySet();
+
+	private Path root;
+	private File directory;
+	private ClassPathEntry entry;
+	private ClassIndexStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("class-index-store");
+		directory = new File(root.toFile(), "index");
+		final File classes = new File(root.toFile(), "classes");
+		classes.mkdir();
+		entry = ClassPathEntry.of(classes);
+		store = new ClassIndexStore(directory);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	private void save() {
+		save(entry, NONE);
+	}
+
+	private void save(ClassPathEntry entry, Set<String> scope) {
+		final ClassIndex index = new ClassIndex(entry.getFile().getPath(), entry.getFingerprint(), scope,
+				Maps.<String, Collector> newLinkedHashMap());
+		store.save(entry, index, NONE);
+	}
+
+	private File getIndexFile() {
+		final File[] files = directory.listFiles();
+		assertEquals(1, files.length);
+		return files[0];
+	}
+
+	@Test
+	public void testSaveAndLoad() {
+		save();
+		assertNotNull(store.load(entry, NONE, NONE));
+	}
+
+	@Test
+	public void testPrivateDirectory() throws IOException {
+		save();
+		if (isPosix()) {
+			assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory.toPath())));
+		}
+	}
+
+	@Test
+	public void testWritableByOthers() throws IOException {
+		if (!isPosix()) {
+			return;
+		}
+		save();
+		Files.setPosixFilePermissions(getIndexFile().toPath(), PosixFilePermissions.fromString("rw-rw-rw-"));
+		assertNull(store.load(entry, NONE, NONE));
+		Files.setPosixFilePermissions(getIndexFile().toPath(), PosixFilePermissions.fromString("rw-------"));
+		Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+		assertNull(store.load(entry, NONE, NONE));
+	}
+
+	@Test
+	public void testCorruptFile() throws IOException {
+		save();
+		final File file = getIndexFile();
+		final byte[] bytes = Files.readAllBytes(file.toPath());
+		for (int i = 8; i < bytes.length; i++) {
+			bytes[i] = (byte) 0xFF;
+		}
+		Files.write(file.toPath(), bytes);
+		assertNull(store.load(entry, NONE, NONE));
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		final String location = System.getProperty(ClassIndexStore.STORE_PROPERTY);
+		try {
+			System.clearProperty(ClassIndexStore.STORE_PROPERTY);
+			assertNull(ClassIndexStore.getDefault());
+			System.setProperty(ClassIndexStore.STORE_PROPERTY, "false");
+			assertNull(ClassIndexStore.getDefault());
+			System.setProperty(ClassIndexStore.STORE_PROPERTY, "true");
+			assertNotNull(ClassIndexStore.getDefault());
+		} finally {
+			if (location == null) {
+				System.clearProperty(ClassIndexStore.STORE_PROPERTY);
+			} else {
+				System.setProperty(ClassIndexStore.STORE_PROPERTY, location);
+			}
+		}
+	}
+
+	@Test
+	public void testPruneRemovedEntry() throws IOException {
+		final File other = new File(root.toFile(), "other");
+		other.mkdir();
+		save(ClassPathEntry.of(other), NONE);
+		FileUtils.deleteDirectory(other.toPath());
+
+		save();
+		assertNotNull(store.load(entry, NONE, NONE));
+		assertEquals(1, directory.listFiles().length);
+	}
+
+	@Test
+	public void testPruneChangedEntry() throws IOException {
+		save(entry, ImmutableSet.of("com.example"));
+		Files.write(entry.getFile().toPath().resolve("Foo.class"), new byte[] { 1, 2, 3 });
+		entry = ClassPathEntry.of(entry.getFile());
+
+		// 只剩下新保存的整个条目的索引
+		save();
+		assertEquals(1, directory.listFiles().length);
+		assertNotNull(store.load(entry, NONE, NONE));
+	}
+
+	@Test
+	public void testPruneCount() {
+		for (int i = 0; i < ClassIndexStore.MAX_FILES + 5; i++) {
+			save(entry, ImmutableSet.of("p" + i));
+		}
+		assertEquals(ClassIndexStore.MAX_FILES, directory.listFiles().length);
+		assertNotNull(store.load(entry, ImmutableSet.of("p" + (ClassIndexStore.MAX_FILES + 4)), NONE));
+	}
+
+	private static boolean isPosix() {
+		return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+	}
+}
@@ -0,0 +1,144 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.icloudportal.common.reflections.ClassPathEntry.Fingerprint;
+import com.icloudportal.common.reflections.ClassScanner.Collector;
+
+public class ClassIndexTest {
+
+	private static ClassIndex sample() {
+		final Map<String, Collector> classes = Maps.newLinkedHashMap();
+		final Map<String, Map<String, Object>> attributes = ImmutableMap.<String, Map<String, Object>> of(
+				"javax/inject/Named", ImmutableMap.<String, Object> of("value", "foo", "order", 3,
+						"tags", Arrays.<Object> asList("a", "b")));
+		final MemberTable members = new MemberTable.Builder()
+				.add(MemberTable.FIELD, "name", "Ljava/lang/String;", Arrays.asList("javax/inject/Inject"))
+				.add(MemberTable.METHOD, "run", "()V", Arrays.asList("javax/annotation/PostConstruct"))
+				.build();
+		classes.put("com/example/Foo", new Collector(Arrays.asList("java/lang/Object", "java/io/Serializable"),
+				Arrays.asList("javax/inject/Named"), attributes, null, members, 42L));
+		classes.put("com/example/Bar", new Collector(Arrays.asList("com/example/Foo"), null, null,
+				ImmutableMap.<String, Object> of("enabled", true, "size", 2L), null, 7L));
+		return new ClassIndex("/tmp/foo.jar", new Fingerprint(100, 200, 300), ImmutableSet.of("com.example"),
+				classes);
+	}
+
+	private static byte[] toBytes(ClassIndex index) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		index.write(out);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final ClassIndex index = sample();
+		final ClassIndex copy = ClassIndex.read(ByteBuffer.wrap(toBytes(index)));
+		assertEquals(index.getPath(), copy.getPath());
+		assertEquals(index.getFingerprint(), copy.getFingerprint());
+		assertEquals(index.getScope(), copy.getScope());
+		assertEquals(index.getClasses().keySet(), copy.getClasses().keySet());
+		for (String name : index.getClasses().keySet()) {
+			final Collector expected = index.getClasses().get(name);
+			final Collector actual = copy.getClasses().get(name);
+			assertEquals(expected.getStamp(), actual.getStamp());
+			assertEquals(expected.getSuperNames() == null ? null : ImmutableSet.copyOf(expected.getSuperNames()),
+					actual.getSuperNames() == null ? null : ImmutableSet.copyOf(actual.getSuperNames()));
+			assertEquals(expected.getAttributes(), actual.getAttributes());
+			assertEquals(expected.getDefaults(), actual.getDefaults());
+			final MemberTable members = expected.getMembers();
+			if (members == null) {
+				assertNull(actual.getMembers());
+				continue;
+			}
+			assertEquals(members.size(), actual.getMembers().size());
+			for (int i = 0; i < members.size(); i++) {
+				assertEquals(members.getKind(i), actual.getMembers().getKind(i));
+				assertEquals(members.getName(i), actual.getMembers().getName(i));
+				assertEquals(members.getDescriptor(i), actual.getMembers().getDescriptor(i));
+				assertEquals(members.getAnnotations(i), actual.getMembers().getAnnotations(i));
+			}
+		}
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		final ClassIndex index = new ClassIndex("", new Fingerprint(0, 0, 0), Collections.<String> emptySet(),
+				Maps.<String, Collector> newLinkedHashMap());
+		assertEquals(0, ClassIndex.read(ByteBuffer.wrap(toBytes(index))).getClasses().size());
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		final byte[] bytes = toBytes(sample());
+		for (int length = 0; length < bytes.length; length++) {
+			assertInvalid(Arrays.copyOf(bytes, length));
+		}
+	}
+
+	@Test
+	public void testNegativeCount() throws IOException {
+		final byte[] bytes = toBytes(sample());
+		// 将每个位置上的四个字节依次替换为负数或者过大的数量
+		for (int value : new int[] { -1, Integer.MIN_VALUE, Integer.MAX_VALUE }) {
+			for (int offset = 8; offset + 4 <= bytes.length; offset++) {
+				final byte[] corrupt = bytes.clone();
+				ByteBuffer.wrap(corrupt).putInt(offset, value);
+				readQuietly(corrupt);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomCorruption() throws IOException {
+		final byte[] bytes = toBytes(sample());
+		final Random random = new Random(1);
+		for (int i = 0; i < 5000; i++) {
+			final byte[] corrupt = bytes.clone();
+			for (int j = random.nextInt(4); j >= 0; j--) {
+				corrupt[8 + random.nextInt(corrupt.length - 8)] = (byte) random.nextInt();
+			}
+			readQuietly(corrupt);
+		}
+	}
+
+	@Test
+	public void testInvalidHeader() throws IOException {
+		final byte[] bytes = toBytes(sample());
+		bytes[0] ^= 1;
+		assertInvalid(bytes);
+	}
+
+	/**
+	 * 损坏的索引可以被读取（例如只修改了字符串的内容）, 或者抛出{@link IOException}, 不能抛出其他异常。
+	 */
+	private static void readQuietly(byte[] bytes) {
+		try {
+			ClassIndex.read(ByteBuffer.wrap(bytes));
+		} catch (IOException e) {
+		}
+	}
+
+	private static void assertInvalid(byte[] bytes) {
+		try {
+			ClassIndex.read(ByteBuffer.wrap(bytes));
+			fail("invalid index was read");
+		} catch (IOException e) {
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.icloudportal.common.FileUtils;
+
+public class ClassPathEntryTest {
+
+	private Path root;
+	private ClassPathEntry entry;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("class-path-entry");
+		final Path pkg = Files.createDirectories(root.resolve("com/example"));
+		Files.write(pkg.resolve("Foo.class"), new byte[] { 1, 2, 3 });
+		Files.write(pkg.resolve("foo.properties"), new byte[] { 4 });
+		// com/example/loop指向com, 形成符号链接循环
+		Files.createSymbolicLink(pkg.resolve("loop"), root.resolve("com"));
+		entry = ClassPathEntry.of(root.toFile());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleter(root).delete();
+	}
+
+	@Test
+	public void testScanSymbolicLinkCycle() throws IOException {
+		final List<String> types = Lists.newArrayList();
+		entry.scan(new ClassPathEntry.ClassHandler() {
+			@Override
+			public boolean acceptPackage(String path) {
+				return true;
+			}
+
+			@Override
+			public boolean accept(String resourceName) {
+				return true;
+			}
+
+			@Override
+			public void handle(String type, byte[] bytes, int length) {
+				types.add(type);
+			}
+
+			@Override
+			public void failed(String type, IOException error) {
+			}
+		});
+		assertEquals(ImmutableList.of("com.example.Foo"), types);
+	}
+
+	@Test
+	public void testFingerprintSymbolicLinkCycle() throws IOException {
+		assertEquals(3L, entry.getFingerprint().size);
+	}
+
+	@Test
+	public void testResourceNamesSymbolicLinkCycle() throws IOException {
+		final List<String> names = entry.getResourceNames();
+		Collections.sort(names);
+		assertEquals(ImmutableList.of("com/example/Foo.class", "com/example/foo.properties"), names);
+	}
+}
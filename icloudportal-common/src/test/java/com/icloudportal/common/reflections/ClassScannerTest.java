@@ -0,0 +1,127 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.icloudportal.common.FileUtils;
+
+public class ClassScannerTest {
+
+	private static final byte[] GARBAGE = { 1, 2, 3, 4, 5, 6, 7, 8 };
+
+	private Path root;
+	private Path classes;
+	private Path jar;
+	private URLClassLoader loader;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("class-scanner");
+		classes = Files.createDirectory(root.resolve("classes"));
+		ClassFiles.write(classes, "gen.scan.Base", "java.lang.Object");
+		ClassFiles.write(classes, "gen.scan.Foo", "gen.scan.Base");
+		ClassFiles.write(classes, "gen.other.Bar", "gen.scan.Base");
+		// 无法解析的类文件和jar文件, 读取时会记录错误
+		Files.createDirectories(classes.resolve("gen/other"));
+		Files.createDirectories(classes.resolve("gen/scanner"));
+		Files.write(classes.resolve("gen/other/Broken.class"), GARBAGE);
+		Files.write(classes.resolve("gen/scanner/Broken.class"), GARBAGE);
+		jar = Files.write(root.resolve("broken.jar"), GARBAGE);
+		loader = ClassFiles.loader(classes);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Reflections.invalidate(loader);
+		loader.close();
+		FileUtils.deleter(root).delete();
+	}
+
+	/**
+	 * 扫描并返回快照中读取类文件时的错误数量。
+	 */
+	private static int scanErrors(ClassLoader loader, String pkg, String... patterns) {
+		final ClassScanner scanner = new ClassScanner(loader, pkg);
+		for (String pattern : patterns) {
+			scanner.byURL(pattern);
+		}
+		scanner.getSubTypeDescriptors(Object.class);
+		return ScanCache.getIfPresent(loader, ImmutableSet.of(pkg), ImmutableSet.copyOf(patterns)).getErrorCount();
+	}
+
+	private static Set<String> names(Set<ClassDescriptor> descriptors) {
+		final Set<String> names = Sets.newHashSet();
+		for (ClassDescriptor descriptor : descriptors) {
+			names.add(descriptor.getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testScanFromPoolThread() throws Exception {
+		// 单线程的线程池中开始的扫描, 条目任务只能在调用者的线程中执行
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Set<String> found = executor.submit(new Callable<Set<String>>() {
+				@Override
+				public Set<String> call() throws Exception {
+					final ClassScanner scanner = new ClassScanner(loader, "gen.scan").using(executor);
+					return names(scanner.getSubTypeDescriptors(Object.class));
+				}
+			}).get(30, TimeUnit.SECONDS);
+			assertEquals(ImmutableSet.of("gen.scan.Base", "gen.scan.Foo"), found);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPackageScope() {
+		// gen.other和gen.scanner中的类文件不会被读取
+		assertEquals(0, scanErrors(loader, "gen.scan"));
+		assertEquals(ImmutableSet.of("gen.scan.Base", "gen.scan.Foo"),
+				names(new ClassScanner(loader, "gen.scan").getSubTypeDescriptors(Object.class)));
+		assertEquals(2, scanErrors(loader, "gen"));
+	}
+
+	@Test
+	public void testURLScope() throws IOException {
+		try (URLClassLoader withJar = ClassFiles.loader(classes, jar)) {
+			// 与URL模式不匹配的jar文件不会被打开
+			final String pattern = "glob:" + classes.toUri().toURL().getFile() + "**";
+			assertEquals(0, scanErrors(withJar, "gen.scan", pattern));
+			assertEquals(1, scanErrors(withJar, "gen.scan"));
+			Reflections.invalidate(withJar);
+		}
+	}
+
+	@Test
+	public void testSymbolicLinkURL() throws IOException {
+		final Path link = Files.createSymbolicLink(root.resolve("link"), classes);
+		try (URLClassLoader linked = ClassFiles.loader(link)) {
+			final String file = linked.getResource("gen/scan/Foo.class").getFile();
+			assertEquals(link.toUri().toURL().getFile() + "gen/scan/Foo.class", file);
+			// URL模式与ClassLoader返回的URL匹配, 而不是链接的目标
+			assertEquals(ImmutableSet.of("gen.scan.Base", "gen.scan.Foo"), names(new ClassScanner(linked, "gen.scan")
+					.byURL("glob:" + link.toUri().toURL().getFile() + "**").getSubTypeDescriptors(Object.class)));
+			assertEquals(ImmutableSet.of(), names(new ClassScanner(linked, "gen.scan")
+					.byURL("glob:" + classes.toUri().toURL().getFile() + "**").getSubTypeDescriptors(Object.class)));
+			Reflections.invalidate(linked);
+		}
+	}
+}
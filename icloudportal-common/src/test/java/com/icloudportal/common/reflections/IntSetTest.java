@@ -0,0 +1,51 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class IntSetTest {
+
+	@Test
+	public void testAddAndContains() {
+		final IntSet set = new IntSet();
+		final Set<Integer> expected = Sets.newHashSet();
+		final List<Integer> order = Lists.newArrayList();
+		final Random random = new Random(3);
+		for (int i = 0; i < 20000; i++) {
+			// 编号稀疏并且包含大量重复, 也包含相差2的幂的编号
+			final int value = i % 3 == 0 ? random.nextInt(5000) << 12 : random.nextInt(100000);
+			final boolean added = expected.add(value);
+			assertEquals(added, set.add(value));
+			if (added) {
+				order.add(value);
+			}
+		}
+		assertEquals(expected.size(), set.size());
+		for (int i = 0; i < order.size(); i++) {
+			assertEquals(order.get(i).intValue(), set.get(i));
+		}
+		for (int value = 0; value < 100000; value++) {
+			assertEquals(expected.contains(value), set.contains(value));
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		final IntSet set = new IntSet();
+		assertEquals(0, set.size());
+		assertFalse(set.contains(0));
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.contains(0));
+	}
+}
@@ -0,0 +1,66 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.icloudportal.common.reflections.fixture.Endpoint;
+import com.icloudportal.common.reflections.fixture.Generated;
+import com.icloudportal.common.reflections.fixture.Handler;
+import com.icloudportal.common.reflections.fixture.SubEndpoint;
+
+/**
+ * 测试{@link Reflections#findMethodsAnnotatedWith(Class)}和
+ * {@link Reflections#findFieldsAnnotatedWith(Class)}的成员索引。
+ */
+public class MemberFinderTest {
+
+	private static final String PACKAGE = Endpoint.class.getPackage().getName();
+	private static final ClassLoader LOADER = MemberFinderTest.class.getClassLoader();
+
+	@Test
+	public void testMethods() throws Exception {
+		final Set<Method> expected = ImmutableSet.of(Endpoint.class.getDeclaredMethod("handle"),
+				Endpoint.class.getDeclaredMethod("handle", String.class),
+				Endpoint.class.getDeclaredMethod("describe", String[].class, int.class),
+				SubEndpoint.class.getDeclaredMethod("handle"));
+		assertEquals(expected, Reflections.findMethodsAnnotatedWith(Handler.class, LOADER).within(PACKAGE).find());
+	}
+
+	@Test
+	public void testFields() throws Exception {
+		final Set<Field> expected = ImmutableSet.of(Endpoint.class.getDeclaredField("name"),
+				Endpoint.class.getDeclaredField("count"));
+		assertEquals(expected, Reflections.findFieldsAnnotatedWith(Handler.class, LOADER).within(PACKAGE).find());
+	}
+
+	@Test
+	public void testClassRetention() throws Exception {
+		// 索引来自字节码, 所以也包括反射时不可见的注解
+		final Method method = Endpoint.class.getDeclaredMethod("generated");
+		assertNull(method.getAnnotation(Generated.class));
+		assertEquals(ImmutableSet.of(method),
+				Reflections.findMethodsAnnotatedWith(Generated.class, LOADER).within(PACKAGE).find());
+		assertEquals(ImmutableSet.of(Endpoint.class.getDeclaredField("count"), Endpoint.class.getDeclaredField("stamp")),
+				Reflections.findFieldsAnnotatedWith(Generated.class, LOADER).within(PACKAGE).find());
+	}
+
+	@Test
+	public void testDescriptors() {
+		final Set<String> found = ImmutableSet.copyOf(Iterables.transform(
+				Reflections.findMethodsAnnotatedWith(Handler.class, LOADER).within(PACKAGE).findDescriptors(),
+				Functions.toStringFunction()));
+		assertEquals(ImmutableSet.of(Endpoint.class.getName() + ".handle()V",
+				Endpoint.class.getName() + ".handle(Ljava/lang/String;)V",
+				Endpoint.class.getName() + ".describe([Ljava/lang/String;I)Ljava/lang/String;",
+				SubEndpoint.class.getName() + ".handle()V"), found);
+	}
+}
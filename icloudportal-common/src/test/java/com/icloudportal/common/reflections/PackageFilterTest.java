@@ -0,0 +1,53 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class PackageFilterTest {
+
+	private final PackageFilter filter = new PackageFilter(Arrays.asList("com.example", "org.acme.core"));
+
+	@Test
+	public void testClass() {
+		assertTrue(filter.acceptsClass("com.example.Foo"));
+		assertTrue(filter.acceptsClass("com.example.sub.Foo"));
+		assertTrue(filter.acceptsClass("org.acme.core.Bar"));
+		assertFalse(filter.acceptsClass("com.Foo"));
+		assertFalse(filter.acceptsClass("com.examples.Foo"));
+		assertFalse(filter.acceptsClass("org.acme.Bar"));
+		assertFalse(filter.acceptsClass("net.Foo"));
+	}
+
+	@Test
+	public void testResource() {
+		assertTrue(filter.acceptsResource("com/example/Foo.class"));
+		assertTrue(filter.acceptsResource("org/acme/core/a/Bar.class"));
+		assertFalse(filter.acceptsResource("com/examples/Foo.class"));
+		assertFalse(filter.acceptsResource("Foo.class"));
+	}
+
+	@Test
+	public void testDirectory() {
+		// 包的上级目录需要遍历, 其他目录跳过
+		assertTrue(filter.acceptsDirectory("com/"));
+		assertTrue(filter.acceptsDirectory("org/acme/"));
+		assertTrue(filter.acceptsDirectory("com/example/"));
+		assertTrue(filter.acceptsDirectory("com/example/sub/"));
+		assertFalse(filter.acceptsDirectory("net/"));
+		assertFalse(filter.acceptsDirectory("com/examples/"));
+		assertFalse(filter.acceptsDirectory("org/acme/other/"));
+	}
+
+	@Test
+	public void testAll() {
+		final PackageFilter all = new PackageFilter(Collections.<String> emptyList());
+		assertTrue(all.acceptsClass("Foo"));
+		assertTrue(all.acceptsResource("net/Foo.class"));
+		assertTrue(all.acceptsDirectory("net/"));
+	}
+}
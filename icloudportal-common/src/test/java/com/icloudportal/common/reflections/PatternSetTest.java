@@ -0,0 +1,81 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * 比较{@link PatternSet}的字面检查与逐个使用正则表达式的匹配结果。
+ */
+public class PatternSetTest {
+
+	private static final List<String> VALUES = Arrays.asList("foo.xml", "foo.xml\n", "foo.xml\r\n", "a/foo.xml",
+			"a/foo.xml\n", "META-INF/x.xml", "META-INF/x.xml\n", "META-INF/a/x.xml", "x\nfoo.xml", "com/A.class",
+			"com/a/B.class", "com/a/B.class ", "", "\n");
+
+	private static final List<String> PATTERNS = Arrays.asList("glob:foo.xml", "glob:**/foo.xml",
+			"glob:META-INF/*.xml", "glob:com/**.class", "glob:com/?/*.class", "^META-INF/.*\\.xml$", "foo\\.xml",
+			"\\.class$", "^com/a/B\\.class$");
+
+	/**
+	 * 单独编译的模式, glob模式完全匹配, 正则表达式按给定的方式匹配。
+	 */
+	private static boolean expected(String pattern, String value, boolean partial) {
+		final Pattern compiled = Pattern.compile(PatternSet.toRegex(pattern));
+		if (pattern.startsWith(PatternSet.GLOB) || !partial) {
+			return compiled.matcher(value).matches();
+		}
+		return compiled.matcher(value).find();
+	}
+
+	@Test
+	public void testSinglePatterns() {
+		for (boolean partial : new boolean[] { true, false }) {
+			for (String pattern : PATTERNS) {
+				final PatternSet set = PatternSet.compile(Arrays.asList(pattern), partial);
+				for (String value : VALUES) {
+					assertEquals(pattern + " " + partial + " [" + value + "]", expected(pattern, value, partial),
+							set.matches(value));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMergedPatterns() {
+		for (boolean partial : new boolean[] { true, false }) {
+			final PatternSet set = PatternSet.compile(PATTERNS, partial);
+			for (String value : VALUES) {
+				boolean any = false;
+				for (String pattern : PATTERNS) {
+					any |= expected(pattern, value, partial);
+				}
+				assertEquals(partial + " [" + value + "]", any, set.matches(value));
+			}
+		}
+	}
+
+	@Test
+	public void testGlobWithLineTerminator() {
+		final PatternSet set = PatternSet.compile(Arrays.asList("glob:foo.xml", "glob:com/?/*.class"), true);
+		assertEquals(true, set.matches("foo.xml"));
+		assertEquals(false, set.matches("foo.xml\n"));
+		assertEquals(true, set.matches("com/a/B.class"));
+		assertEquals(false, set.matches("com/a/B.class\n"));
+	}
+
+	@Test
+	public void testNamedGroups() {
+		// 每个表达式单独有效, 合并后分组名重复
+		for (boolean partial : new boolean[] { true, false }) {
+			final PatternSet set = PatternSet.compile(Arrays.asList("(?<n>a.*b)", "(?<n>c.*d)"), partial);
+			assertEquals(true, set.matches("axb"));
+			assertEquals(true, set.matches("cxd"));
+			assertEquals(false, set.matches("axd"));
+		}
+	}
+}
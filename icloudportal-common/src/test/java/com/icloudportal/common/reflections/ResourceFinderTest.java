@@ -0,0 +1,190 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.reflect.ClassPath;
+import com.google.common.reflect.ClassPath.ResourceInfo;
+import com.icloudportal.common.FileUtils;
+
+/**
+ * 比较{@link ResourceFinder}与逐个检查{@link ClassPath}中所有资源的查找结果。
+ */
+public class ResourceFinderTest {
+
+	private static final List<String> PATTERNS = Arrays.asList("^META-INF/.*\\.xml$", "persistence\\.xml",
+			"\\.properties$", "^com/example/", "Foo", "x", "^META-INF/views/[a-z]+\\.xml$", "^nothing/");
+
+	private Path root;
+	private URLClassLoader loader;
+	private Path classes;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("resource-finder");
+		classes = root.resolve("classes");
+		write(classes, "META-INF/persistence.xml");
+		write(classes, "META-INF/views/a.xml");
+		write(classes, "META-INF/views/b.xml");
+		write(classes, "com/example/Foo.class");
+		write(classes, "com/example/data.properties");
+		write(classes, "readme.txt");
+
+		final Manifest manifest = new Manifest();
+		manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(root.resolve("lib.jar")), manifest)) {
+			for (String name : Arrays.asList("META-INF/", "META-INF/persistence.xml", "META-INF/jar.xml",
+					"com/example/Bar.class", "lib/x.properties")) {
+				out.putNextEntry(new ZipEntry(name));
+				out.closeEntry();
+			}
+		}
+		loader = ClassFiles.loader(classes, root.resolve("lib.jar"));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Reflections.invalidate(loader);
+		loader.close();
+		FileUtils.deleter(root).delete();
+	}
+
+	private static void write(Path dir, String name) throws IOException {
+		final Path file = dir.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, name.getBytes("UTF-8"));
+	}
+
+	/**
+	 * 查找资源索引之前的实现: 每个名字模式都检查类路径上的所有资源,
+	 * 每个匹配的URL模式都添加一次。
+	 */
+	private List<URL> expected(List<String> namePatterns, List<String> pathPatterns, boolean partial)
+			throws IOException {
+		final List<URL> all = Lists.newArrayList();
+		for (String namePattern : namePatterns) {
+			for (ResourceInfo info : ClassPath.from(loader).getResources()) {
+				if (!matches(Pattern.compile(namePattern), info.getResourceName(), partial)) {
+					continue;
+				}
+				for (URL url : Collections.list(loader.getResources(info.getResourceName()))) {
+					if (pathPatterns.isEmpty()) {
+						all.add(url);
+					}
+					for (String pathPattern : pathPatterns) {
+						if (matches(Pattern.compile(pathPattern), url.getFile(), partial)) {
+							all.add(url);
+						}
+					}
+				}
+			}
+		}
+		return all;
+	}
+
+	private static boolean matches(Pattern pattern, String value, boolean partial) {
+		final Matcher matcher = pattern.matcher(value);
+		return partial ? matcher.find() : matcher.matches();
+	}
+
+	private ResourceFinder finder(List<String> namePatterns, List<String> pathPatterns) {
+		final ResourceFinder finder = Reflections.findResources(loader);
+		for (String pattern : namePatterns) {
+			finder.byName(pattern);
+		}
+		for (String pattern : pathPatterns) {
+			finder.byURL(pattern);
+		}
+		return finder;
+	}
+
+	private static List<String> toStrings(List<URL> urls) {
+		final List<String> strings = Lists.newArrayList();
+		for (URL url : urls) {
+			strings.add(url.toString());
+		}
+		return strings;
+	}
+
+	private void assertSame(List<String> namePatterns, List<String> pathPatterns) throws IOException {
+		final String message = namePatterns + " " + pathPatterns;
+		assertEquals(message, toStrings(expected(namePatterns, pathPatterns, true)),
+				toStrings(finder(namePatterns, pathPatterns).find()));
+		assertEquals(message, toStrings(expected(namePatterns, pathPatterns, false)),
+				toStrings(finder(namePatterns, pathPatterns).match()));
+	}
+
+	@Test
+	public void testSinglePattern() throws IOException {
+		for (String pattern : PATTERNS) {
+			assertSame(ImmutableList.of(pattern), ImmutableList.<String> of());
+		}
+	}
+
+	@Test
+	public void testSeveralPatterns() throws IOException {
+		// 所有模式在一次遍历中求值, 结果仍然按模式的顺序排列
+		assertSame(PATTERNS, ImmutableList.<String> of());
+		assertSame(Lists.reverse(PATTERNS), ImmutableList.<String> of());
+		assertSame(ImmutableList.of("^META-INF/", "^META-INF/views/"), ImmutableList.<String> of());
+	}
+
+	@Test
+	public void testURLPattern() throws IOException {
+		for (String pattern : Arrays.asList("\\.jar!/", "/classes/", ".*/classes/.*")) {
+			assertSame(PATTERNS, ImmutableList.of(pattern));
+		}
+	}
+
+	@Test
+	public void testOverlappingURLPatterns() throws IOException {
+		// 与多个URL模式匹配的资源只返回一次
+		final List<URL> found = finder(ImmutableList.of("^META-INF/persistence\\.xml$"),
+				ImmutableList.of("\\.jar!/", "lib")).find();
+		assertEquals(1, found.size());
+		assertTrue(found.get(0).toString().endsWith("lib.jar!/META-INF/persistence.xml"));
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		final List<String> names = ImmutableList.of("^META-INF/added\\.xml$");
+		assertTrue(finder(names, ImmutableList.<String> of()).find().isEmpty());
+
+		// 新增的资源在清除缓存的索引之后才能找到
+		write(classes, "META-INF/added.xml");
+		assertTrue(finder(names, ImmutableList.<String> of()).find().isEmpty());
+		Reflections.invalidate(loader);
+		assertEquals(1, finder(names, ImmutableList.<String> of()).find().size());
+		assertSame(PATTERNS, ImmutableList.<String> of());
+	}
+
+	@Test
+	public void testGlob() {
+		final List<URL> found = finder(ImmutableList.of("glob:META-INF/*.xml"), ImmutableList.<String> of()).find();
+		assertEquals(3, found.size());
+		for (URL url : found) {
+			assertFalse(url.toString().contains("/views/"));
+		}
+	}
+}
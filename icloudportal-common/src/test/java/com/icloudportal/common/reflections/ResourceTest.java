@@ -0,0 +1,206 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.icloudportal.common.FileUtils;
+
+/**
+ * 比较{@link Resource#getContent()}与{@link Resource#openStream()}读取的内容,
+ * 并检查{@link MappedJar}无法解析jar文件时回退到流。
+ */
+public class ResourceTest {
+
+	private static final byte[] SMALL = "<persistence/>".getBytes();
+	private static final byte[] LARGE = new byte[Resource.MAP_THRESHOLD + 100];
+
+	static {
+		for (int i = 0; i < LARGE.length; i++) {
+			LARGE[i] = (byte) (i * 31 + i / 7);
+		}
+	}
+
+	private Path root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("resource");
+		MappedJar.invalidateAll();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		MappedJar.invalidateAll();
+		FileUtils.deleter(root).delete();
+	}
+
+	private Path jar(String name, String comment) throws IOException {
+		final Path file = root.resolve(name);
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+			if (comment != null) {
+				out.setComment(comment);
+			}
+			stored(out, "META-INF/small.xml", SMALL);
+			stored(out, "META-INF/large.bin", LARGE);
+			out.putNextEntry(new ZipEntry("META-INF/deflated.bin"));
+			out.write(LARGE);
+			out.closeEntry();
+		}
+		return file;
+	}
+
+	private static void stored(ZipOutputStream out, String name, byte[] bytes) throws IOException {
+		final ZipEntry entry = new ZipEntry(name);
+		final CRC32 crc = new CRC32();
+		crc.update(bytes);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(bytes.length);
+		entry.setCompressedSize(bytes.length);
+		entry.setCrc(crc.getValue());
+		out.putNextEntry(entry);
+		out.write(bytes);
+		out.closeEntry();
+	}
+
+	private static Resource resource(Path jar, String name) throws IOException {
+		return new Resource(name, new URL("jar:" + jar.toUri().toURL() + "!/" + name));
+	}
+
+	private static byte[] toBytes(ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	private static void assertSameContent(Resource resource, byte[] expected) throws IOException {
+		final byte[] streamed;
+		try (InputStream in = resource.openStream()) {
+			streamed = ByteStreams.toByteArray(in);
+		}
+		assertArrayEquals(expected, streamed);
+		assertArrayEquals(streamed, toBytes(resource.getContent()));
+	}
+
+	/**
+	 * jar文件损坏时两种读取方式都报告IO错误, 不回退到映射。
+	 */
+	private static void assertUnreadable(Resource resource) throws IOException {
+		assertFalse(resource.isMapped());
+		try {
+			resource.getContent();
+			fail("corrupt jar was read");
+		} catch (IOException e) {
+		}
+		try {
+			resource.openStream().close();
+			fail("corrupt jar was read");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testStoredEntries() throws IOException {
+		final Path jar = jar("stored.jar", null);
+
+		final Resource large = resource(jar, "META-INF/large.bin");
+		assertTrue(large.isMapped());
+		assertSameContent(large, LARGE);
+
+		// 小的条目复制到堆中
+		final Resource small = resource(jar, "META-INF/small.xml");
+		assertFalse(small.isMapped());
+		assertSameContent(small, SMALL);
+		assertTrue(small.getContent().isReadOnly());
+	}
+
+	@Test
+	public void testDeflatedEntry() throws IOException {
+		final Resource deflated = resource(jar("deflated.jar", null), "META-INF/deflated.bin");
+		assertFalse(deflated.isMapped());
+		assertSameContent(deflated, LARGE);
+	}
+
+	@Test
+	public void testArchiveComment() throws IOException {
+		final Path jar = jar("comment.jar", "built by test");
+		assertTrue(resource(jar, "META-INF/large.bin").isMapped());
+		assertSameContent(resource(jar, "META-INF/large.bin"), LARGE);
+		assertSameContent(resource(jar, "META-INF/small.xml"), SMALL);
+	}
+
+	@Test
+	public void testCommentContainingEndSignature() throws IOException {
+		// 注释中包含中央目录结束记录的签名 "PK\5\6"
+		final Path jar = jar("signature.jar", "PK\u0005\u0006 0123456789012345678901234567890");
+		assertTrue(resource(jar, "META-INF/large.bin").isMapped());
+		assertSameContent(resource(jar, "META-INF/large.bin"), LARGE);
+	}
+
+	@Test
+	public void testCorruptCentralDirectory() throws IOException {
+		final Path jar = jar("corrupt.jar", null);
+		try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(end, channel.size() - 22);
+			channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 0 }), end.getInt(16));
+		}
+		assertUnreadable(resource(jar, "META-INF/large.bin"));
+		assertUnreadable(resource(jar, "META-INF/small.xml"));
+	}
+
+	@Test
+	public void testTruncatedCentralDirectory() throws IOException {
+		final Path jar = jar("truncated.jar", null);
+		try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 30);
+		}
+		assertUnreadable(resource(jar, "META-INF/large.bin"));
+	}
+
+	@Test
+	public void testFiles() throws IOException {
+		final Path large = Files.write(root.resolve("large.bin"), LARGE);
+		final Path small = Files.write(root.resolve("small.xml"), SMALL);
+
+		final Resource mapped = new Resource("large.bin", large.toUri().toURL());
+		assertTrue(mapped.isMapped());
+		assertSameContent(mapped, LARGE);
+
+		final Resource copied = new Resource("small.xml", small.toUri().toURL());
+		assertFalse(copied.isMapped());
+		assertSameContent(copied, SMALL);
+	}
+
+	@Test
+	public void testCopiedContentSurvivesRewrite() throws IOException {
+		final Path jar = jar("rewrite.jar", null);
+		final ByteBuffer content = resource(jar, "META-INF/small.xml").getContent();
+
+		// 原地改写jar文件之后, 复制的内容不受影响
+		try (OutputStream out = Files.newOutputStream(jar)) {
+			out.write(new byte[10]);
+		}
+		assertArrayEquals(SMALL, toBytes(content));
+	}
+}
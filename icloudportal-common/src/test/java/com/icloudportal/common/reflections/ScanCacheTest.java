@@ -0,0 +1,129 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.icloudportal.common.FileUtils;
+
+public class ScanCacheTest {
+
+	private static final Set<String> PACKAGES = ImmutableSet.of("gen.cache");
+	private static final Set<String> NONE = ImmutableSet.of();
+
+	private Path root;
+	private Path classes;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("scan-cache");
+		classes = Files.createDirectory(root.resolve("classes"));
+		ClassFiles.write(classes, "gen.cache.Base", "java.lang.Object");
+		ClassFiles.write(classes, "gen.cache.Foo", "gen.cache.Base");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleter(root).delete();
+	}
+
+	private static ClassFinder<?> finder(ClassLoader loader) throws ClassNotFoundException {
+		return Reflections.findSubTypesOf(loader.loadClass("gen.cache.Base"), loader).within("gen.cache");
+	}
+
+	private static Callable<ScanSnapshot> scanner(final AtomicInteger scans) {
+		return new Callable<ScanSnapshot>() {
+			@Override
+			public ScanSnapshot call() throws Exception {
+				scans.incrementAndGet();
+				return ScanSnapshotTest.snapshot(ScanSnapshotTest.randomClasses(new Random(1), 10));
+			}
+		};
+	}
+
+	@Test
+	public void testReuseSnapshot() throws Exception {
+		try (URLClassLoader loader = ClassFiles.loader(classes)) {
+			assertEquals(1, finder(loader).find().size());
+			final ScanSnapshot snapshot = ScanCache.getIfPresent(loader, PACKAGES, NONE);
+			assertNotNull(snapshot);
+
+			// 以相同条件创建的另一个ClassFinder使用同一个快照
+			assertEquals(1, finder(loader).find().size());
+			assertEquals(1, finder(loader).findDescriptors().size());
+			assertSame(snapshot, ScanCache.getIfPresent(loader, PACKAGES, NONE));
+
+			Reflections.invalidate(loader);
+			assertNull(ScanCache.getIfPresent(loader, PACKAGES, NONE));
+			assertEquals(1, finder(loader).find().size());
+			assertNotSame(snapshot, ScanCache.getIfPresent(loader, PACKAGES, NONE));
+		}
+	}
+
+	@Test
+	public void testScanOnce() throws Exception {
+		final AtomicInteger scans = new AtomicInteger();
+		final Callable<ScanSnapshot> scanner = scanner(scans);
+		try (URLClassLoader loader = ClassFiles.loader(classes)) {
+			final ScanSnapshot snapshot = ScanCache.get(loader, PACKAGES, NONE, scanner);
+			assertSame(snapshot, ScanCache.get(loader, PACKAGES, NONE, scanner));
+			assertEquals(1, scans.get());
+			Reflections.invalidate(loader);
+		}
+	}
+
+	@Test
+	public void testMaximumSize() throws Exception {
+		final Callable<ScanSnapshot> scanner = scanner(new AtomicInteger());
+		try (URLClassLoader loader = ClassFiles.loader(classes)) {
+			for (int i = 0; i < ScanCache.MAX_SNAPSHOTS * 2; i++) {
+				ScanCache.get(loader, ImmutableSet.of("gen.p" + i), NONE, scanner);
+			}
+			final AtomicInteger count = new AtomicInteger();
+			ScanCache.forEach(loader, new ScanCache.KeyVisitor() {
+				@Override
+				public void visit(Set<String> packages, Set<String> patterns) {
+					count.incrementAndGet();
+				}
+			});
+			assertTrue(count.get() <= ScanCache.MAX_SNAPSHOTS);
+			Reflections.invalidate(loader);
+		}
+	}
+
+	@Test
+	public void testLoaderNotRetained() throws Exception {
+		final WeakReference<ClassLoader> reference = scanAndDiscard();
+		for (int i = 0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertNull("class loader is retained by the scan cache", reference.get());
+	}
+
+	private WeakReference<ClassLoader> scanAndDiscard() throws Exception {
+		final URLClassLoader loader = ClassFiles.loader(classes);
+		assertEquals(1, finder(loader).find().size());
+		assertNotNull(ScanCache.getIfPresent(loader, PACKAGES, NONE));
+		loader.close();
+		return new WeakReference<ClassLoader>(loader);
+	}
+}
@@ -0,0 +1,118 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.icloudportal.common.FileUtils;
+
+/**
+ * 测试重新扫描只读取发生了变化的类路径条目, 并报告新增的、删除的和变化的类。
+ */
+public class ScanDeltaTest {
+
+	private static final Set<String> PACKAGES = ImmutableSet.of("gen.delta");
+	private static final Set<String> NONE = ImmutableSet.of();
+
+	private Path root;
+	private Path changing;
+	private Path stable;
+	private URLClassLoader loader;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("scan-delta");
+		changing = Files.createDirectory(root.resolve("changing"));
+		stable = Files.createDirectory(root.resolve("stable"));
+		ClassFiles.write(changing, "gen.delta.Base", "java.lang.Object");
+		ClassFiles.write(changing, "gen.delta.Kept", "gen.delta.Base");
+		ClassFiles.write(changing, "gen.delta.Changed", "gen.delta.Base");
+		ClassFiles.write(changing, "gen.delta.Removed", "gen.delta.Base");
+		ClassFiles.write(stable, "gen.delta.Stable", "gen.delta.Base");
+		loader = ClassFiles.loader(changing, stable);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Reflections.invalidate(loader);
+		loader.close();
+		FileUtils.deleter(root).delete();
+	}
+
+	private ClassFinder<?> finder() throws ClassNotFoundException {
+		return Reflections.findSubTypesOf(loader.loadClass("gen.delta.Base"), loader).within("gen.delta");
+	}
+
+	private ScanSnapshot snapshot() {
+		final ScanSnapshot snapshot = ScanCache.getIfPresent(loader, PACKAGES, NONE);
+		assertNotNull(snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * 修改时间的精度可能只有一秒, 所以显式地设置修改时间。
+	 */
+	private static void touch(Path file, long time) throws IOException {
+		Files.setLastModifiedTime(file, FileTime.fromMillis(time));
+	}
+
+	@Test
+	public void testRescan() throws Exception {
+		assertEquals(4, finder().findDescriptors().size());
+		final ScanSnapshot previous = snapshot();
+
+		final long later = System.currentTimeMillis() + 60000;
+		touch(ClassFiles.write(changing, "gen.delta.Added", "gen.delta.Base"), later);
+		touch(ClassFiles.write(changing, "gen.delta.Changed", "gen.delta.Base", "gen.delta.Marker"), later);
+		Files.delete(changing.resolve("gen/delta/Removed.class"));
+
+		final ScanDelta delta = finder().rescan();
+		assertEquals(ImmutableSet.of("gen.delta.Added"), delta.getAdded());
+		assertEquals(ImmutableSet.of("gen.delta.Removed"), delta.getRemoved());
+		assertEquals(ImmutableSet.of("gen.delta.Changed"), delta.getChanged());
+
+		// 没有变化的条目被重用, 发生了变化的条目重新读取
+		final ScanSnapshot next = snapshot();
+		assertSame(previous.getCollector("gen.delta.Stable"), next.getCollector("gen.delta.Stable"));
+		assertNotSame(previous.getCollector("gen.delta.Kept"), next.getCollector("gen.delta.Kept"));
+		assertEquals(4, finder().findDescriptors().size());
+	}
+
+	@Test
+	public void testRescanUnchanged() throws Exception {
+		assertEquals(4, finder().findDescriptors().size());
+		final ScanSnapshot previous = snapshot();
+
+		final ScanDelta delta = Reflections.rescan(loader);
+		assertTrue(delta.toString(), delta.isEmpty());
+		final ScanSnapshot next = snapshot();
+		for (String type : previous.getTypes()) {
+			assertSame(type, previous.getCollector(type), next.getCollector(type));
+		}
+	}
+
+	@Test
+	public void testRescanRemovedEntry() throws Exception {
+		assertEquals(4, finder().findDescriptors().size());
+
+		FileUtils.deleter(stable).delete();
+		final ScanDelta delta = Reflections.rescan(loader);
+		assertEquals(ImmutableSet.of("gen.delta.Stable"), delta.getRemoved());
+		assertTrue(delta.getAdded().isEmpty());
+		assertTrue(delta.getChanged().isEmpty());
+	}
+}
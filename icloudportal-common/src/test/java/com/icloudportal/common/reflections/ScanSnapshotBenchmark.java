@@ -0,0 +1,134 @@
+package com.icloudportal.common.reflections;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.icloudportal.common.BenchmarkRunner;
+import com.icloudportal.common.reflections.ClassScanner.Collector;
+
+/**
+ * 在60000个生成的类上比较{@link ScanSnapshot}的反向索引与逐个检查所有类的查询耗时,
+ * 以及快照与原来每个类保存两个<code>HashSet&lt;String&gt;</code>的布局所占用的堆内存。
+ * 运行方法见{@link BenchmarkRunner}, 内存的比较需要足够的堆（例如<code>-Xmx1g</code>）。
+ */
+public class ScanSnapshotBenchmark {
+
+	private static final int CLASSES = 60000;
+
+	private static volatile Object keep;
+
+	public static void main(String[] args) throws Exception {
+		// 先比较内存, 每种布局都从新生成的类创建, 不共享驻留的字符串
+		final long hashSets = retained(new Callable<Object>() {
+			@Override
+			public Object call() {
+				return hashSetLayout(ScanSnapshotTest.randomClasses(new Random(3), CLASSES));
+			}
+		});
+		final long snapshots = retained(new Callable<Object>() {
+			@Override
+			public Object call() {
+				return ScanSnapshotTest.snapshot(ScanSnapshotTest.randomClasses(new Random(3), CLASSES));
+			}
+		});
+		System.out.printf("%-40s %10.1f MB%n", "heap (HashSet<String> per class)", hashSets / 1e6);
+		System.out.printf("%-40s %10.1f MB%n", "heap (snapshot)", snapshots / 1e6);
+
+		final Map<String, Collector> classes = ScanSnapshotTest.randomClasses(new Random(3), CLASSES);
+		final ScanSnapshot snapshot = ScanSnapshotTest.snapshot(classes);
+		final List<String> queries = Lists.newArrayList();
+		final Random random = new Random(7);
+		for (int i = 0; i < 20; i++) {
+			queries.add("com.example.C" + (CLASSES / 2 + random.nextInt(CLASSES / 2)));
+		}
+		final BenchmarkRunner runner = new BenchmarkRunner(1, 5);
+
+		runner.run("getSubTypesOf (full scan)", queries.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int found = 0;
+				for (String type : queries) {
+					found += ScanSnapshotTest.scanSubTypes(classes, type).size();
+				}
+				return found;
+			}
+		});
+		runner.run("getSubTypesOf (snapshot)", queries.size(), new Callable<Object>() {
+			@Override
+			public Object call() {
+				int found = 0;
+				for (String type : queries) {
+					found += snapshot.getSubTypesOf(type).size();
+				}
+				return found;
+			}
+		});
+		runner.run("getTypesAnnotatedWith (full scan)", 1, new Callable<Object>() {
+			@Override
+			public Object call() {
+				return ScanSnapshotTest.scanAnnotated(classes, "a.Entity").size();
+			}
+		});
+		runner.run("getTypesAnnotatedWith (snapshot)", 1, new Callable<Object>() {
+			@Override
+			public Object call() {
+				return snapshot.getTypesAnnotatedWith("a.Entity").size();
+			}
+		});
+	}
+
+	/**
+	 * 原来的布局：类名到两个<code>HashSet&lt;String&gt;</code>（父类和注解）的映射。
+	 */
+	private static Map<String, Object> hashSetLayout(Map<String, Collector> classes) {
+		final Map<String, Object> layout = Maps.newHashMap();
+		for (Map.Entry<String, Collector> item : classes.entrySet()) {
+			final Set<String> supers = Sets.newHashSet(copy(item.getValue().getSuperNames()));
+			final List<String> annotations = copy(item.getValue().getAnnotations());
+			layout.put(copy(item.getKey()), new Object[] { supers,
+					annotations == null ? null : Sets.newHashSet(annotations) });
+		}
+		return layout;
+	}
+
+	/**
+	 * 原来的扫描为每个类创建新的字符串。
+	 */
+	private static String copy(String name) {
+		return new String(name.toCharArray());
+	}
+
+	private static List<String> copy(List<String> names) {
+		if (names == null) {
+			return null;
+		}
+		final List<String> copies = Lists.newArrayListWithCapacity(names.size());
+		for (String name : names) {
+			copies.add(copy(name));
+		}
+		return copies;
+	}
+
+	private static long retained(Callable<Object> factory) throws Exception {
+		final long before = usedMemory();
+		keep = factory.call();
+		final long after = usedMemory();
+		keep = null;
+		return after - before;
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,125 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.icloudportal.common.reflections.ClassScanner.Collector;
+import com.icloudportal.common.reflections.ScanSnapshot.EntryScan;
+
+/**
+ * 比较{@link ScanSnapshot}的反向索引与逐个检查所有类的查询结果。
+ */
+public class ScanSnapshotTest {
+
+	private static final String[] ANNOTATIONS = { "a.Entity", "a.Service", "a.Named", "a.Singleton", "a.Table" };
+
+	static Map<String, Collector> randomClasses(Random random, int count) {
+		final Map<String, Collector> classes = Maps.newLinkedHashMap();
+		final List<String> names = Lists.newArrayList();
+		for (int i = 0; i < count; i++) {
+			final String name = "com.example.C" + i;
+			final Set<String> supers = Sets.newLinkedHashSet();
+			supers.add(names.isEmpty() || random.nextInt(5) == 0 ? "java.lang.Object"
+					: names.get(random.nextInt(names.size())));
+			for (int j = random.nextInt(3); j > 0 && !names.isEmpty(); j--) {
+				supers.add(names.get(random.nextInt(names.size())));
+			}
+			final Set<String> annotations = Sets.newLinkedHashSet();
+			for (int j = random.nextInt(3); j > 0; j--) {
+				annotations.add(ANNOTATIONS[random.nextInt(ANNOTATIONS.length)]);
+			}
+			classes.put(name, new Collector(supers, annotations));
+			names.add(name);
+		}
+		return classes;
+	}
+
+	static ScanSnapshot snapshot(Map<String, Collector> classes) {
+		return new ScanSnapshot(classes, Collections.<String, ClassPathEntry> emptyMap(),
+				Collections.<String, URL> emptyMap(), Collections.<String, Collector> emptyMap(),
+				Collections.<File, EntryScan> emptyMap(), 0);
+	}
+
+	/**
+	 * 每一层都检查所有的类, 与建立反向索引之前的查询相同。
+	 */
+	static Set<String> scanSubTypes(Map<String, Collector> classes, String type) {
+		final Set<String> found = Sets.newHashSet();
+		final Deque<String> pending = new ArrayDeque<>();
+		pending.add(type);
+		while (!pending.isEmpty()) {
+			final String current = pending.poll();
+			for (Map.Entry<String, Collector> item : classes.entrySet()) {
+				final List<String> supers = item.getValue().getSuperNames();
+				if (supers != null && supers.contains(current) && found.add(item.getKey())) {
+					pending.add(item.getKey());
+				}
+			}
+		}
+		return found;
+	}
+
+	static Set<String> scanAnnotated(Map<String, Collector> classes, String annotation) {
+		final Set<String> found = Sets.newHashSet();
+		for (Map.Entry<String, Collector> item : classes.entrySet()) {
+			final List<String> annotations = item.getValue().getAnnotations();
+			if (annotations != null && annotations.contains(annotation)) {
+				found.add(item.getKey());
+			}
+		}
+		return found;
+	}
+
+	@Test
+	public void testSubTypes() {
+		final Map<String, Collector> classes = randomClasses(new Random(3), 1500);
+		final ScanSnapshot snapshot = snapshot(classes);
+		for (String type : ImmutableList.of("java.lang.Object", "com.example.Missing")) {
+			assertEquals(type, scanSubTypes(classes, type), Sets.newHashSet(snapshot.getSubTypesOf(type)));
+		}
+		for (int i = 0; i < 1500; i += 7) {
+			final String type = "com.example.C" + i;
+			assertEquals(type, scanSubTypes(classes, type), Sets.newHashSet(snapshot.getSubTypesOf(type)));
+		}
+	}
+
+	@Test
+	public void testAnnotated() {
+		final Map<String, Collector> classes = randomClasses(new Random(12), 1500);
+		final ScanSnapshot snapshot = snapshot(classes);
+		for (String annotation : Lists.asList("a.Missing", ANNOTATIONS)) {
+			assertEquals(annotation, scanAnnotated(classes, annotation),
+					Sets.newHashSet(snapshot.getTypesAnnotatedWith(annotation)));
+		}
+	}
+
+	@Test
+	public void testTypesAndCollectors() {
+		final Map<String, Collector> classes = randomClasses(new Random(5), 200);
+		final ScanSnapshot snapshot = snapshot(classes);
+		assertEquals(ImmutableList.copyOf(classes.keySet()), snapshot.getTypes());
+		for (Map.Entry<String, Collector> item : classes.entrySet()) {
+			assertEquals(item.getValue(), snapshot.getCollector(item.getKey()));
+		}
+		assertNull(snapshot.getCollector("java.lang.Object"));
+		assertEquals(ImmutableSet.of(), snapshot.getTypesAnnotatedWith("a.Missing"));
+		assertEquals(ImmutableSet.of(), snapshot.getSubTypesOf("com.example.Missing"));
+	}
+}
@@ -0,0 +1,47 @@
+package com.icloudportal.common.reflections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SymbolTableTest {
+
+	@Test
+	public void testAddAndGet() {
+		final SymbolTable symbols = new SymbolTable();
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i, symbols.add("com.example.C" + i));
+		}
+		assertEquals(10000, symbols.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i, symbols.add("com.example.C" + i));
+			assertEquals(i, symbols.get("com.example.C" + i));
+			assertEquals("com.example.C" + i, symbols.get(i));
+		}
+		assertEquals(10000, symbols.size());
+		assertEquals(-1, symbols.get("com.example.Missing"));
+	}
+
+	@Test
+	public void testCollidingHashCodes() {
+		// "Aa"和"BB"的hashCode相同
+		final SymbolTable symbols = new SymbolTable();
+		final String[] names = { "AaAa", "AaBB", "BBAa", "BBBB" };
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(i, symbols.add(names[i]));
+		}
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(i, symbols.get(names[i]));
+		}
+	}
+
+	@Test
+	public void testIntern() {
+		final String name = new String("com.example.Foo".toCharArray());
+		final String copy = new String("com.example.Foo".toCharArray());
+		assertSame(SymbolTable.intern(name), SymbolTable.intern(copy));
+		final SymbolTable symbols = new SymbolTable();
+		assertSame(SymbolTable.intern(name), symbols.get(symbols.add(copy)));
+	}
+}
@@ -0,0 +1,5 @@
+package com.icloudportal.common.reflections.fixture;
+
+@Service
+public class Billing extends Base {
+}
@@ -0,0 +1,5 @@
+package com.icloudportal.common.reflections.fixture;
+
+@Model(name = "customer", kind = Kind.ENTITY, tags = { "a", "b" }, handler = String.class, order = 2)
+public class Customer extends Base {
+}
@@ -0,0 +1,39 @@
+package com.icloudportal.common.reflections.fixture;
+
+/**
+ * 测试成员注解索引所用的类, 包括重载的方法。
+ */
+public class Endpoint {
+
+	@Handler
+	private String name;
+
+	@Handler
+	@Generated
+	protected int count;
+
+	@Generated
+	long stamp;
+
+	String plain;
+
+	@Handler
+	public void handle() {
+	}
+
+	@Handler
+	public void handle(String value) {
+	}
+
+	public void handle(int value) {
+	}
+
+	@Handler
+	static String describe(String[] values, int count) {
+		return null;
+	}
+
+	@Generated
+	void generated() {
+	}
+}
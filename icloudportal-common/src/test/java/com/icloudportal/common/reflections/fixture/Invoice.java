@@ -0,0 +1,5 @@
+package com.icloudportal.common.reflections.fixture;
+
+@Model(name = "invoice", kind = Kind.VIEW, tags = "b")
+public class Invoice extends Base {
+}
@@ -0,0 +1,5 @@
+package com.icloudportal.common.reflections.fixture;
+
+public enum Kind {
+	ENTITY, VIEW
+}
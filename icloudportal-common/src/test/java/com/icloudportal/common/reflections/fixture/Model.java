@@ -0,0 +1,24 @@
+package com.icloudportal.common.reflections.fixture;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 测试注解属性索引所用的注解。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Model {
+
+	String name() default "";
+
+	Kind kind() default Kind.ENTITY;
+
+	String[] tags() default {};
+
+	Class<?> handler() default Object.class;
+
+	int order() default 0;
+}
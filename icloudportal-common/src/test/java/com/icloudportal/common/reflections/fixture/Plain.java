@@ -0,0 +1,5 @@
+package com.icloudportal.common.reflections.fixture;
+
+@Model
+public class Plain extends Base {
+}
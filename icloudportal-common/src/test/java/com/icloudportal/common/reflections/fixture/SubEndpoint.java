@@ -0,0 +1,13 @@
+package com.icloudportal.common.reflections.fixture;
+
+public class SubEndpoint extends Endpoint {
+
+	@Override
+	@Handler
+	public void handle() {
+	}
+
+	@Override
+	public void handle(String value) {
+	}
+}
@@ -0,0 +1,4 @@
+package com.icloudportal.common.reflections.fixture;
+
+public class Unannotated extends Base {
+}